@@ -9,11 +9,36 @@ repositories {
     mavenCentral()
 }
 
+// Benchmarks may replay the test sources' workloads, so they see the test classes and their dependencies too
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+}
+
+configurations["jmhImplementation"].extendsFrom(configurations.testImplementation.get())
+configurations["jmhRuntimeOnly"].extendsFrom(configurations.testRuntimeOnly.get())
+
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+// ./gradlew jmh, or ./gradlew jmh -Pjmh="GraphBenchmarks.removeNodeAndSplit -p topology=GRID" to narrow it down
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks with the GC profiler."
+
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+
+    args("-prof", "gc", "-rf", "json", "-rff", layout.buildDirectory.file("jmh-results.json").get().asFile.path)
+    (project.findProperty("jmh") as String?)?.let { args(it.split(" ")) }
+}
@@ -0,0 +1,153 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static dev.mrcabbagestick.graph.graph.Topology.LINK_TYPE;
+import static dev.mrcabbagestick.graph.graph.Topology.node;
+
+// Every mutating benchmark has its own state rebuilt before each invocation, so one invocation is one
+// operation on a freshly built graph. Building the graph is not part of the measured time, but the GC
+// profiler does count its allocations: subtract the gc.alloc.rate.norm of the matching setupOnly
+// benchmark to get what the operation itself allocates.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBenchmarks {
+    private static final long SEED = 42;
+
+    @State(Scope.Thread)
+    public static class TopologyState {
+        @Param({"CHAIN", "GRID", "STAR", "RANDOM_SPARSE", "NEAR_COMPLETE"})
+        public Topology topology;
+
+        @Param({"100", "10000", "100000"})
+        public int size;
+
+        public Graph<Integer, Integer> graph;
+
+        // Nodes picked from the middle of the node range, away from the seed node of every topology
+        public GraphNode<Integer> middleNode;
+        public GraphNode<Integer> middleNeighbor;
+        public GraphNode<Integer> farNode;
+
+        protected void build(){
+            int nodeCount = topology.nodeCount(size);
+
+            graph = topology.build(size, SEED);
+            middleNode = node(nodeCount / 2);
+            farNode = node(nodeCount - 1);
+
+            // The graph is the same every time, so this only has to be looked up once per trial
+            if(middleNeighbor == null)
+                middleNeighbor = graph.getAdjacencies().get(middleNode).iterator().next().node();
+        }
+    }
+
+    // Read only benchmarks share one graph per trial
+    @State(Scope.Thread)
+    public static class SharedGraph extends TopologyState {
+        @Setup(Level.Trial)
+        public void setUp(){
+            build();
+        }
+    }
+
+    // The router's index is built during setup, the benchmarks measure queries on an unchanged graph
+    @State(Scope.Thread)
+    public static class RoutedGraph extends TopologyState {
+        public GraphRouter<Integer, Integer> router;
+
+        @Setup(Level.Trial)
+        public void setUp(){
+            build();
+            router = new GraphRouter<>(graph, linkType -> 1 + linkType);
+            router.shortestPath(middleNode, farNode);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FreshGraph extends TopologyState {
+        @Setup(Level.Invocation)
+        public void setUp(){
+            build();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FreshGraphAndSingleNodeGraph extends TopologyState {
+        public GraphNode<Integer> lonelyNode;
+        public Graph<Integer, Integer> singleNodeGraph;
+
+        @Setup(Level.Invocation)
+        public void setUp(){
+            build();
+            lonelyNode = node(-1);
+            singleNodeGraph = new Graph<>(lonelyNode);
+        }
+    }
+
+    @Benchmark
+    public Graph<Integer, Integer> setupOnly_freshGraph(FreshGraph state){
+        return state.graph;
+    }
+
+    @Benchmark
+    public Graph<Integer, Integer> setupOnly_freshGraphAndSingleNodeGraph(FreshGraphAndSingleNodeGraph state){
+        return state.singleNodeGraph;
+    }
+
+    @Benchmark
+    public boolean addNode(FreshGraph state){
+        return state.graph.addNode(node(-1), state.middleNode, LINK_TYPE);
+    }
+
+    @Benchmark
+    public boolean addLink(FreshGraph state){
+        return state.graph.addLink(state.middleNode, state.farNode, LINK_TYPE);
+    }
+
+    @Benchmark
+    public Set<GraphNode<Integer>> getConnectedNodes(SharedGraph state){
+        return state.graph.getConnectedNodes(state.middleNode);
+    }
+
+    @Benchmark
+    public Optional<GraphPath<Integer, Integer>> shortestPath(RoutedGraph state){
+        return state.router.shortestPath(state.middleNode, state.farNode);
+    }
+
+    @Benchmark
+    public Map<GraphNode<Integer>, Double> distancesToTwoTargets(RoutedGraph state){
+        return state.router.distances(state.middleNode, List.of(state.farNode, state.middleNeighbor));
+    }
+
+    @Benchmark
+    public Optional<Graph<Integer, Integer>> removeConnectionAndSplit(FreshGraph state){
+        return state.graph.removeConnectionAndSplit(state.middleNode, state.middleNeighbor);
+    }
+
+    @Benchmark
+    public Optional<Set<Graph<Integer, Integer>>> removeNodeAndSplit(FreshGraph state){
+        return state.graph.removeNodeAndSplit(state.middleNode);
+    }
+
+    @Benchmark
+    public Graph<Integer, Integer> mergeSingleNodeIntoLarge(FreshGraphAndSingleNodeGraph state){
+        state.graph.mergeWith(state.middleNode, state.singleNodeGraph, state.lonelyNode, LINK_TYPE);
+        return state.graph;
+    }
+
+    @Benchmark
+    public Graph<Integer, Integer> mergeLargeIntoSingleNode(FreshGraphAndSingleNodeGraph state){
+        state.singleNodeGraph.mergeWith(state.lonelyNode, state.graph, state.middleNode, LINK_TYPE);
+        return state.singleNodeGraph;
+    }
+}
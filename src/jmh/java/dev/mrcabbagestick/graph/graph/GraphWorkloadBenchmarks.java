@@ -0,0 +1,58 @@
+package dev.mrcabbagestick.graph.graph;
+
+import dev.mrcabbagestick.graph.graph.DifferentialRunner.Feature;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Replays a whole GraphWorkload per invocation, without the reference the tests check against, so the time and
+// the GC profiler's gc.alloc.rate.norm are those of the Graph calls plus a little bookkeeping per step. The
+// features are switched on for every graph of the replay, to see what each one costs on a mixed workload.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GraphWorkloadBenchmarks {
+    public enum Features {
+        NONE,
+        CONNECTIVITY_CACHE,
+        SNAPSHOTS,
+        LINK_TYPE_INDEX,
+        ALL
+    }
+
+    @Param({"20000"})
+    public int steps;
+
+    @Param({"2000"})
+    public int maxNodes;
+
+    @Param({"NONE", "CONNECTIVITY_CACHE", "SNAPSHOTS", "LINK_TYPE_INDEX", "ALL"})
+    public Features features;
+
+    private GraphWorkload<Integer> workload;
+    private Set<Feature> enabledFeatures;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        workload = new GraphWorkload<>(1, steps, maxNodes, List.of(0, 1, 2));
+
+        enabledFeatures = switch(features){
+            case NONE -> Set.of();
+            case CONNECTIVITY_CACHE -> Set.of(Feature.CONNECTIVITY_CACHE);
+            case SNAPSHOTS -> Set.of(Feature.SNAPSHOTS);
+            case LINK_TYPE_INDEX -> Set.of(Feature.LINK_TYPE_INDEX);
+            case ALL -> EnumSet.allOf(Feature.class);
+        };
+    }
+
+    @Benchmark
+    public long replay(){
+        return new DifferentialRunner<Integer>(false, enabledFeatures, List.of()).run(workload).operations();
+    }
+}
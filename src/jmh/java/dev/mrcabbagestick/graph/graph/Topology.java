@@ -0,0 +1,75 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.Random;
+
+// Graph shapes the benchmarks run against, nodes are numbered 0..nodeCount(size)-1 and are all connected
+public enum Topology {
+    CHAIN,
+    GRID,
+    STAR,
+    RANDOM_SPARSE,
+    NEAR_COMPLETE;
+
+    public static final int LINK_TYPE = 0;
+
+    // Near complete graphs grow quadratically, so they are capped to keep the larger sizes usable
+    private static final int NEAR_COMPLETE_MAX_NODES = 400;
+
+    public int nodeCount(int size){
+        return this == NEAR_COMPLETE ? Math.min(size, NEAR_COMPLETE_MAX_NODES) : size;
+    }
+
+    public static GraphNode<Integer> node(int id){
+        return new GraphNode<>(id);
+    }
+
+    public Graph<Integer, Integer> build(int size, long seed){
+        int nodeCount = nodeCount(size);
+        Random random = new Random(seed);
+        Graph<Integer, Integer> graph = new Graph<>(node(0));
+
+        switch(this){
+            case CHAIN -> {
+                for(int i = 1; i < nodeCount; i++)
+                    graph.addNode(node(i), node(i - 1), LINK_TYPE);
+            }
+            case GRID -> {
+                int width = (int) Math.ceil(Math.sqrt(nodeCount));
+
+                for(int i = 1; i < nodeCount; i++){
+                    boolean firstInRow = i % width == 0;
+                    graph.addNode(node(i), node(firstInRow ? i - width : i - 1), LINK_TYPE);
+
+                    if(!firstInRow && i >= width)
+                        graph.addLink(node(i), node(i - width), LINK_TYPE);
+                }
+            }
+            case STAR -> {
+                for(int i = 1; i < nodeCount; i++)
+                    graph.addNode(node(i), node(0), LINK_TYPE);
+            }
+            case RANDOM_SPARSE -> {
+                // Random spanning tree plus about one extra link per node, average degree close to 4
+                for(int i = 1; i < nodeCount; i++)
+                    graph.addNode(node(i), node(random.nextInt(i)), LINK_TYPE);
+
+                for(int i = 1; i < nodeCount; i++)
+                    graph.addLink(node(random.nextInt(nodeCount)), node(random.nextInt(nodeCount)), LINK_TYPE);
+            }
+            case NEAR_COMPLETE -> {
+                // Chain to keep it connected, then nine out of ten of the remaining pairs
+                for(int i = 1; i < nodeCount; i++)
+                    graph.addNode(node(i), node(i - 1), LINK_TYPE);
+
+                for(int i = 0; i < nodeCount; i++){
+                    for(int j = i + 2; j < nodeCount; j++){
+                        if(random.nextInt(10) != 0)
+                            graph.addLink(node(i), node(j), LINK_TYPE);
+                    }
+                }
+            }
+        }
+
+        return graph;
+    }
+}
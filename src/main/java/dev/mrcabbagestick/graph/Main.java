@@ -3,7 +3,6 @@ package dev.mrcabbagestick.graph;
 
 import dev.mrcabbagestick.graph.graph.Graph;
 import dev.mrcabbagestick.graph.graph.GraphNode;
-import dev.mrcabbagestick.graph.graph.LinkType;
 
 import java.util.concurrent.Callable;
 
@@ -0,0 +1,28 @@
+package dev.mrcabbagestick.graph.graph;
+
+// Same operations as Graph, but every node is interned to a dense int id and the links of all nodes are stored
+// in compressed sparse rows (CsrLinkRows): one offsets array plus shared neighbor id and link type code arrays,
+// so a link costs 8 bytes per direction and a node 12 bytes, with no array object per node.
+// The operations themselves are RowGraph's, shared with OffHeapGraph.
+public class CompactGraph<NodeType, LinkType> extends RowGraph<NodeType, LinkType, CompactGraph<NodeType, LinkType>> {
+    public CompactGraph(GraphNode<NodeType> firstNode){
+        this(new LinkTypeCodes<>(), 8);
+        intern(firstNode);
+    }
+
+    private CompactGraph(LinkTypeCodes<LinkType> linkTypeCodes, int expectedNodes){
+        super(linkTypeCodes, new CsrLinkRows(), expectedNodes);
+    }
+
+    @Override
+    CompactGraph<NodeType, LinkType> newGraph(int expectedNodes){
+        return new CompactGraph<>(linkTypeCodes, expectedNodes);
+    }
+
+    // Packs the rows back to back without spare slots and shrinks every array to what it holds, for graphs that
+    // are done growing
+    @Override
+    public void trimToSize(){
+        super.trimToSize();
+    }
+}
@@ -0,0 +1,312 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Thread safe version of Graph.
+// addNode/addLink only lock the stripes of the nodes they touch, so writers on unrelated parts of the network
+// don't wait for each other. Splits and merges lock every stripe of the graphs involved, and nothing else,
+// since a graph is a single connected component. Reads take no lock at all and see a weakly consistent
+// view: a link being added or a part being split off may show up half way.
+public class ConcurrentGraph<NodeType, LinkType> {
+    private static final int STRIPE_COUNT = 64;
+
+    // Graphs are always locked in this order so that merges of the same two graphs can't deadlock
+    private static final AtomicLong nextLockOrder = new AtomicLong();
+
+    // Same layout as Graph, link type sets are immutable and replaced on change so readers can iterate them
+    private final ConcurrentHashMap<GraphNode<NodeType>, ConcurrentHashMap<GraphNode<NodeType>, Set<LinkType>>> adjacencyList = new ConcurrentHashMap<>();
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPE_COUNT];
+    private final long lockOrder = nextLockOrder.getAndIncrement();
+
+    public ConcurrentGraph(GraphNode<NodeType> firstNode){
+        this();
+        adjacencyList.put(firstNode, new ConcurrentHashMap<>());
+    }
+
+    private ConcurrentGraph(){
+        for(int i = 0; i < STRIPE_COUNT; i++)
+            stripes[i] = new ReentrantLock();
+    }
+
+    public boolean addNode(GraphNode<NodeType> node, GraphNode<NodeType> connectedTo, LinkType linkType){
+        lockStripes(node, connectedTo);
+
+        try{
+            var connectedToNeighbors = adjacencyList.get(connectedTo);
+
+            if(adjacencyList.containsKey(node) || connectedToNeighbors == null)
+                return false;
+
+            ConcurrentHashMap<GraphNode<NodeType>, Set<LinkType>> neighbors = new ConcurrentHashMap<>();
+            neighbors.put(connectedTo, Collections.singleton(linkType));
+            adjacencyList.put(node, neighbors);
+
+            addLink_unsafe(connectedToNeighbors, node, linkType);
+
+            return true;
+        }
+        finally{
+            unlockStripes(node, connectedTo);
+        }
+    }
+
+    public boolean addLink(GraphNode<NodeType> node1, GraphNode<NodeType> node2, LinkType linkType){
+        lockStripes(node1, node2);
+
+        try{
+            var node1Neighbors = adjacencyList.get(node1);
+            var node2Neighbors = adjacencyList.get(node2);
+
+            if(node1Neighbors == null || node2Neighbors == null)
+                return false;
+
+            addLink_unsafe(node1Neighbors, node2, linkType);
+            addLink_unsafe(node2Neighbors, node1, linkType);
+
+            return true;
+        }
+        finally{
+            unlockStripes(node1, node2);
+        }
+    }
+
+    private void addLink_unsafe(ConcurrentHashMap<GraphNode<NodeType>, Set<LinkType>> neighbors, GraphNode<NodeType> to, LinkType linkType){
+        neighbors.merge(to, Collections.singleton(linkType), (linkTypes, addedLinkTypes) -> {
+            if(linkTypes.containsAll(addedLinkTypes))
+                return linkTypes;
+
+            HashSet<LinkType> mergedLinkTypes = new HashSet<>(linkTypes);
+            mergedLinkTypes.addAll(addedLinkTypes);
+
+            return Collections.unmodifiableSet(mergedLinkTypes);
+        });
+    }
+
+    public Map<GraphNode<NodeType>, Set<GraphLink<NodeType, LinkType>>> getAdjacencies(){
+        Map<GraphNode<NodeType>, Set<GraphLink<NodeType, LinkType>>> adjacencies = new HashMap<>(adjacencyList.size());
+
+        adjacencyList.forEach((node, neighbors) -> {
+            HashSet<GraphLink<NodeType, LinkType>> links = new HashSet<>();
+
+            neighbors.forEach((neighbor, linkTypes) -> linkTypes.forEach(linkType -> links.add(new GraphLink<>(neighbor, linkType))));
+            adjacencies.put(node, links);
+        });
+
+        return Collections.unmodifiableMap(adjacencies);
+    }
+
+    public Optional<ConcurrentGraph<NodeType, LinkType>> removeConnectionAndSplit(GraphNode<NodeType> node1, GraphNode<NodeType> node2){
+        lockAllStripes();
+
+        try{
+            var node1Neighbors = adjacencyList.get(node1);
+            var node2Neighbors = adjacencyList.get(node2);
+
+            // Nodes not in network
+            if(node1Neighbors == null || node2Neighbors == null)
+                return Optional.empty();
+
+            node1Neighbors.remove(node2);
+            node2Neighbors.remove(node1);
+
+            var splitOffNodes = findSmallerSideIfSplit(node1, node2);
+
+            // Nodes still connected after link removal
+            if(splitOffNodes == null)
+                return Optional.empty();
+
+            return Optional.of(moveToNewGraph(splitOffNodes));
+        }
+        finally{
+            unlockAllStripes();
+        }
+    }
+
+    // Same bidirectional search as Graph, with its own buffers since readers may be traversing at the same time
+    private Set<GraphNode<NodeType>> findSmallerSideIfSplit(GraphNode<NodeType> node1, GraphNode<NodeType> node2){
+        if(node1.equals(node2))
+            return null;
+
+        HashSet<GraphNode<NodeType>> seenFromNode1 = new HashSet<>();
+        HashSet<GraphNode<NodeType>> seenFromNode2 = new HashSet<>();
+        ArrayDeque<GraphNode<NodeType>> toVisitFromNode1 = new ArrayDeque<>();
+        ArrayDeque<GraphNode<NodeType>> toVisitFromNode2 = new ArrayDeque<>();
+
+        seenFromNode1.add(node1);
+        toVisitFromNode1.addLast(node1);
+        seenFromNode2.add(node2);
+        toVisitFromNode2.addLast(node2);
+
+        while(true){
+            if(visitNext(toVisitFromNode2, seenFromNode2, seenFromNode1))
+                return null;
+            if(toVisitFromNode2.isEmpty())
+                return seenFromNode2;
+
+            if(visitNext(toVisitFromNode1, seenFromNode1, seenFromNode2))
+                return null;
+            if(toVisitFromNode1.isEmpty())
+                return seenFromNode1;
+        }
+    }
+
+    private boolean visitNext(ArrayDeque<GraphNode<NodeType>> toVisit, Set<GraphNode<NodeType>> seen, Set<GraphNode<NodeType>> seenByOtherSide){
+        var currentNode = toVisit.pollFirst();
+
+        for(var neighbor : adjacencyList.get(currentNode).keySet()){
+            if(seenByOtherSide.contains(neighbor))
+                return true;
+
+            if(seen.add(neighbor))
+                toVisit.addLast(neighbor);
+        }
+
+        return false;
+    }
+
+    public Optional<Set<ConcurrentGraph<NodeType, LinkType>>> removeNodeAndSplit(GraphNode<NodeType> node){
+        lockAllStripes();
+
+        try{
+            var connectedTo = adjacencyList.remove(node);
+
+            if(connectedTo == null)
+                return Optional.empty();
+
+            var danglingNodes = new HashSet<>(connectedTo.keySet());
+            danglingNodes.remove(node);
+            danglingNodes.forEach(neighbor -> adjacencyList.get(neighbor).remove(node));
+
+            HashSet<ConcurrentGraph<NodeType, LinkType>> newGraphs = new HashSet<>();
+
+            if(danglingNodes.isEmpty())
+                return Optional.of(newGraphs);
+
+            var thisGraphSeed = danglingNodes.iterator().next();
+            danglingNodes.removeAll(getConnectedNodes(thisGraphSeed));
+
+            // Combine dangling nodes to graphs
+            while(!danglingNodes.isEmpty()){
+                var newGraphNodes = getConnectedNodes(danglingNodes.iterator().next());
+
+                danglingNodes.removeAll(newGraphNodes);
+                newGraphs.add(moveToNewGraph(newGraphNodes));
+            }
+
+            return Optional.of(newGraphs);
+        }
+        finally{
+            unlockAllStripes();
+        }
+    }
+
+    private ConcurrentGraph<NodeType, LinkType> moveToNewGraph(Set<GraphNode<NodeType>> nodes){
+        ConcurrentGraph<NodeType, LinkType> newGraph = new ConcurrentGraph<>();
+
+        // Nobody else can reach the new graph yet, so it needs no locking
+        nodes.forEach(node -> newGraph.adjacencyList.put(node, adjacencyList.remove(node)));
+
+        return newGraph;
+    }
+
+    public void mergeWith(GraphNode<NodeType> thisGraphNode, ConcurrentGraph<NodeType, LinkType> otherGraph, GraphNode<NodeType> otherGraphNode, LinkType linkType){
+        if(otherGraph == this)
+            return;
+
+        var firstLocked = lockOrder < otherGraph.lockOrder ? this : otherGraph;
+        var secondLocked = firstLocked == this ? otherGraph : this;
+
+        firstLocked.lockAllStripes();
+        secondLocked.lockAllStripes();
+
+        try{
+            var thisGraphNodeNeighbors = adjacencyList.get(thisGraphNode);
+            var otherGraphNodeNeighbors = otherGraph.adjacencyList.get(otherGraphNode);
+
+            if(thisGraphNodeNeighbors == null || otherGraphNodeNeighbors == null)
+                return;
+
+            addLink_unsafe(thisGraphNodeNeighbors, otherGraphNode, linkType);
+            addLink_unsafe(otherGraphNodeNeighbors, thisGraphNode, linkType);
+
+            adjacencyList.putAll(otherGraph.adjacencyList);
+
+            otherGraph.adjacencyList.clear();
+        }
+        finally{
+            secondLocked.unlockAllStripes();
+            firstLocked.unlockAllStripes();
+        }
+    }
+
+    public Set<GraphNode<NodeType>> getConnectedNodes(GraphNode<NodeType> node){
+        if(!adjacencyList.containsKey(node))
+            return Set.of();
+
+        HashSet<GraphNode<NodeType>> visitedNodes = new HashSet<>();
+        ArrayDeque<GraphNode<NodeType>> nodesToVisit = new ArrayDeque<>();
+
+        visitedNodes.add(node);
+        nodesToVisit.push(node);
+
+        while(!nodesToVisit.isEmpty()){
+            var neighbors = adjacencyList.get(nodesToVisit.pop());
+
+            // Moved away by a concurrent split
+            if(neighbors == null)
+                continue;
+
+            for(var neighbor : neighbors.keySet()){
+                if(visitedNodes.add(neighbor))
+                    nodesToVisit.push(neighbor);
+            }
+        }
+
+        return visitedNodes;
+    }
+
+    public boolean canExist(){
+        return !adjacencyList.isEmpty();
+    }
+
+    public int size(){
+        return adjacencyList.size();
+    }
+
+    private int stripeOf(GraphNode<NodeType> node){
+        int hash = node.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (STRIPE_COUNT - 1);
+    }
+
+    private void lockStripes(GraphNode<NodeType> node1, GraphNode<NodeType> node2){
+        int stripe1 = stripeOf(node1);
+        int stripe2 = stripeOf(node2);
+
+        stripes[Math.min(stripe1, stripe2)].lock();
+        if(stripe1 != stripe2)
+            stripes[Math.max(stripe1, stripe2)].lock();
+    }
+
+    private void unlockStripes(GraphNode<NodeType> node1, GraphNode<NodeType> node2){
+        int stripe1 = stripeOf(node1);
+        int stripe2 = stripeOf(node2);
+
+        if(stripe1 != stripe2)
+            stripes[Math.max(stripe1, stripe2)].unlock();
+        stripes[Math.min(stripe1, stripe2)].unlock();
+    }
+
+    private void lockAllStripes(){
+        for(var stripe : stripes)
+            stripe.lock();
+    }
+
+    private void unlockAllStripes(){
+        for(int i = STRIPE_COUNT - 1; i >= 0; i--)
+            stripes[i].unlock();
+    }
+}
@@ -0,0 +1,47 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Lock free union-find over the ids 0..size-1, safe to union from many threads at once.
+// Roots are always linked to the smaller id so concurrent unions can't form a cycle, and paths are halved
+// with CAS as they are walked, a lost race only means a path stays a little longer.
+final class ConcurrentUnionFind {
+    private final AtomicIntegerArray parents;
+
+    ConcurrentUnionFind(int size){
+        parents = new AtomicIntegerArray(size);
+
+        for(int i = 0; i < size; i++)
+            parents.set(i, i);
+    }
+
+    int find(int id){
+        while(true){
+            int parent = parents.get(id);
+
+            if(parent == id)
+                return id;
+
+            int grandparent = parents.get(parent);
+            parents.compareAndSet(id, parent, grandparent);
+            id = grandparent;
+        }
+    }
+
+    void union(int id1, int id2){
+        while(true){
+            int root1 = find(id1);
+            int root2 = find(id2);
+
+            if(root1 == root2)
+                return;
+
+            int larger = Math.max(root1, root2);
+            int smaller = Math.min(root1, root2);
+
+            // Fails if larger stopped being a root in the meantime, then look the roots up again
+            if(parents.compareAndSet(larger, larger, smaller))
+                return;
+        }
+    }
+}
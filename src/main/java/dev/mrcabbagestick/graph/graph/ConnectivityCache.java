@@ -0,0 +1,96 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+// Component membership memoized per node, all nodes of a component share one set. The cache is valid for a single
+// modification epoch of its graph: removals and splits just make it stale, additions can only merge components
+// so they are applied in place instead.
+final class ConnectivityCache<NodeType> {
+    private final HashMap<GraphNode<NodeType>, HashSet<GraphNode<NodeType>>> componentOfNode = new HashMap<>();
+    private long epoch;
+
+    private long hits;
+    private long misses;
+
+    ConnectivityCache(long currentEpoch){
+        epoch = currentEpoch;
+    }
+
+    Set<GraphNode<NodeType>> componentOf(GraphNode<NodeType> node, long currentEpoch, Function<GraphNode<NodeType>, HashSet<GraphNode<NodeType>>> computeComponent){
+        if(epoch != currentEpoch){
+            componentOfNode.clear();
+            epoch = currentEpoch;
+        }
+
+        var component = componentOfNode.get(node);
+
+        if(component != null){
+            hits++;
+            return component;
+        }
+
+        misses++;
+        component = computeComponent.apply(node);
+
+        // Nodes outside the graph have no component to remember
+        for(var member : component)
+            componentOfNode.put(member, component);
+
+        return component;
+    }
+
+    void nodeAdded(GraphNode<NodeType> node, GraphNode<NodeType> connectedTo, long currentEpoch, long nextEpoch){
+        if(epoch != currentEpoch)
+            return;
+
+        var component = componentOfNode.get(connectedTo);
+
+        if(component != null){
+            component.add(node);
+            componentOfNode.put(node, component);
+        }
+
+        epoch = nextEpoch;
+    }
+
+    void linkAdded(GraphNode<NodeType> node1, GraphNode<NodeType> node2, long currentEpoch, long nextEpoch){
+        if(epoch != currentEpoch)
+            return;
+
+        var component1 = componentOfNode.get(node1);
+        var component2 = componentOfNode.get(node2);
+
+        if(component1 != component2){
+            if(component1 == null || component2 == null){
+                // Half of the merged component was never looked up, what is known is no longer complete
+                forget(component1 == null ? component2 : component1);
+            }
+            else{
+                var smaller = component1.size() < component2.size() ? component1 : component2;
+                var larger = smaller == component1 ? component2 : component1;
+
+                larger.addAll(smaller);
+                for(var member : smaller)
+                    componentOfNode.put(member, larger);
+            }
+        }
+
+        epoch = nextEpoch;
+    }
+
+    private void forget(Set<GraphNode<NodeType>> component){
+        for(var member : component)
+            componentOfNode.remove(member);
+    }
+
+    long hits(){
+        return hits;
+    }
+
+    long misses(){
+        return misses;
+    }
+}
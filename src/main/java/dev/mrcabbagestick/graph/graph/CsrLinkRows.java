@@ -0,0 +1,165 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.Arrays;
+
+// LinkRows in compressed sparse row layout: the pairs of every row live in two shared arrays, targets and
+// linkCodes, and id i owns the slots rowStarts[i] .. rowStarts[i] + capacities[i] of them. A row keeps spare
+// slots so links can be added; one that runs out moves to the end of the arrays with twice the room, leaving a
+// hole behind. Holes are squeezed out whenever the arrays have to grow anyway.
+// trimToSize packs the rows back to back in id order without spare slots, which leaves plain CSR: rowStarts is
+// the offsets array and a row ends where the next one starts.
+final class CsrLinkRows implements LinkRows {
+    private static final int[] NONE = new int[0];
+
+    private int[] rowStarts = NONE;
+    private int[] degrees = NONE;
+    private int[] capacities = NONE;
+
+    private int[] targets = NONE;
+    private int[] linkCodes = NONE;
+
+    // Slots below used belong to a row or are holes, the ones above are free
+    private int used;
+
+    @Override
+    public void ensureCapacity(int idCapacity){
+        if(idCapacity <= degrees.length)
+            return;
+
+        rowStarts = Arrays.copyOf(rowStarts, idCapacity);
+        degrees = Arrays.copyOf(degrees, idCapacity);
+        capacities = Arrays.copyOf(capacities, idCapacity);
+    }
+
+    @Override
+    public int degree(int id){
+        return degrees[id];
+    }
+
+    @Override
+    public int neighborAt(int id, int index){
+        return targets[rowStarts[id] + index];
+    }
+
+    @Override
+    public int linkCodeAt(int id, int index){
+        return linkCodes[rowStarts[id] + index];
+    }
+
+    @Override
+    public void append(int id, int neighborId, int linkCode){
+        int degree = degrees[id];
+
+        if(degree == capacities[id])
+            moveRow(id, Math.max(2, 2 * degree));
+
+        targets[rowStarts[id] + degree] = neighborId;
+        linkCodes[rowStarts[id] + degree] = linkCode;
+        degrees[id] = degree + 1;
+    }
+
+    @Override
+    public void removeAt(int id, int index){
+        int last = rowStarts[id] + --degrees[id];
+
+        targets[rowStarts[id] + index] = targets[last];
+        linkCodes[rowStarts[id] + index] = linkCodes[last];
+    }
+
+    @Override
+    public void setRow(int id, int[] neighborIds, int[] linkCodes, int degree){
+        degrees[id] = 0;
+
+        if(capacities[id] < degree)
+            moveRow(id, degree);
+
+        System.arraycopy(neighborIds, 0, targets, rowStarts[id], degree);
+        System.arraycopy(linkCodes, 0, this.linkCodes, rowStarts[id], degree);
+        degrees[id] = degree;
+    }
+
+    @Override
+    public void clearRow(int id){
+        // The last row's slots are free again right away, any other row's become a hole
+        if(capacities[id] > 0 && rowStarts[id] + capacities[id] == used)
+            used = rowStarts[id];
+
+        rowStarts[id] = 0;
+        degrees[id] = 0;
+        capacities[id] = 0;
+    }
+
+    @Override
+    public void clear(){
+        rowStarts = NONE;
+        degrees = NONE;
+        capacities = NONE;
+        targets = NONE;
+        linkCodes = NONE;
+        used = 0;
+        ensureCapacity(1);
+    }
+
+    @Override
+    public void trimToSize(int idLimit){
+        rowStarts = Arrays.copyOf(rowStarts, idLimit);
+        degrees = Arrays.copyOf(degrees, idLimit);
+        capacities = Arrays.copyOf(capacities, idLimit);
+
+        repack(0, true);
+    }
+
+    // Gives id a row of the given capacity at the end of the arrays, keeping its links
+    private void moveRow(int id, int capacity){
+        int start = rowStarts[id];
+
+        // The last row grows in place
+        if(capacities[id] > 0 && start + capacities[id] == used && start + capacity <= targets.length){
+            used = start + capacity;
+            capacities[id] = capacity;
+            return;
+        }
+
+        if(used + capacity > targets.length){
+            // Only the links the row holds go through the repack, it moves to the end right after
+            capacities[id] = degrees[id];
+            repack(capacity, false);
+            start = rowStarts[id];
+        }
+
+        System.arraycopy(targets, start, targets, used, degrees[id]);
+        System.arraycopy(linkCodes, start, linkCodes, used, degrees[id]);
+
+        rowStarts[id] = used;
+        capacities[id] = capacity;
+        used += capacity;
+    }
+
+    // Copies every row to new arrays back to back in id order, dropping the holes, with at least spare free
+    // slots after them. Exact rows lose their spare slots too and the arrays end where the last row does.
+    private void repack(int spare, boolean exact){
+        int live = 0;
+        for(int id = 0; id < degrees.length; id++)
+            live += exact ? degrees[id] : capacities[id];
+
+        int length = exact ? live : live + spare + ((live + spare) >> 1);
+        int[] newTargets = new int[length];
+        int[] newLinkCodes = new int[length];
+
+        int start = 0;
+        for(int id = 0; id < degrees.length; id++){
+            System.arraycopy(targets, rowStarts[id], newTargets, start, degrees[id]);
+            System.arraycopy(linkCodes, rowStarts[id], newLinkCodes, start, degrees[id]);
+
+            if(exact)
+                capacities[id] = degrees[id];
+
+            rowStarts[id] = start;
+            start += capacities[id];
+        }
+
+        targets = newTargets;
+        linkCodes = newLinkCodes;
+        used = start;
+    }
+}
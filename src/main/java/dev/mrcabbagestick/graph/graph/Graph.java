@@ -1,141 +1,429 @@
 package dev.mrcabbagestick.graph.graph;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.util.*;
-import java.util.stream.Collectors;
-
-import static java.util.HashSet.newHashSet;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Graph<NodeType, LinkType> {
-    private final Map<GraphNode<NodeType>, HashSet<GraphLink<NodeType, LinkType>>> adjacencyList = new HashMap<>();
+    // Below this many nodes connectedComponents() is faster on a single thread
+    private static final int PARALLEL_COMPONENTS_THRESHOLD = 1 << 14;
+
+    // Node -> neighbor -> types of the links between them, so a link can be found (and removed) by its other end
+    private Map<GraphNode<NodeType>, HashMap<GraphNode<NodeType>, Set<LinkType>>> adjacencyList = new HashMap<>();
+
+    // Bumped by every change to the structure, anything derived from the graph is stale once it moved
+    private long modificationEpoch;
+
+    // Opt-in, null while disabled
+    private ConnectivityCache<NodeType> connectivityCache;
+
+    // Only kept once snapshot() was called, null before
+    private PersistentAdjacency<NodeType, LinkType> persistentAdjacency;
+
+    // Opt-in, null while disabled
+    private LinkTypeIndex<NodeType, LinkType> linkTypeIndex;
+
+    // Copied on every (un)subscribe so a listener may subscribe or close during delivery. Null without
+    // subscribers, then no event is even created.
+    private List<GraphSubscription<NodeType, LinkType>> subscriptions;
+
+    // Opt-in, null while disabled. activeProbe measures the public operation running right now, if any.
+    private GraphMetrics metrics;
+    private OperationProbe activeProbe;
 
     public Graph(GraphNode<NodeType> firstNode){
-        adjacencyList.put(firstNode, newHashSet(0));
+        adjacencyList.put(firstNode, new HashMap<>());
     }
 
     private Graph(){}
 
+    // Empty graph with room for nodeCount nodes, filled through putNode_unsafe/putLink_unsafe by the loaders
+    static <NodeType, LinkType> Graph<NodeType, LinkType> withCapacity(int nodeCount){
+        Graph<NodeType, LinkType> graph = new Graph<>();
+        graph.adjacencyList = HashMap.newHashMap(nodeCount);
+
+        return graph;
+    }
+
+    // neighborCount is the number of distinct neighbors the node will get, its map is sized for exactly that
+    boolean putNode_unsafe(GraphNode<NodeType> node, int neighborCount){
+        if(adjacencyList.containsKey(node))
+            return false;
+
+        putNode(node, HashMap.newHashMap(neighborCount));
+
+        modificationEpoch++;
+        if(subscriptions != null)
+            publish(new GraphEvent.NodeAdded<>(node));
+
+        return true;
+    }
+
+    // Both nodes must already be in the graph
+    void putLink_unsafe(GraphNode<NodeType> node1, GraphNode<NodeType> node2, LinkType linkType){
+        boolean isNewLink = subscriptions != null && !hasLink(node1, node2, linkType);
+
+        addLink_unsafe(node1, node2, linkType);
+        if(!node1.equals(node2))
+            addLink_unsafe(node2, node1, linkType);
+
+        modificationEpoch++;
+        if(isNewLink)
+            publish(new GraphEvent.LinkAdded<>(node1, node2, linkType));
+    }
+
+    private boolean hasLink(GraphNode<NodeType> node1, GraphNode<NodeType> node2, LinkType linkType){
+        var linkTypes = adjacencyList.get(node1).get(node2);
+        return linkTypes != null && linkTypes.contains(linkType);
+    }
+
 //    private void addNode_unsafe(GraphNode<T> node){
 //        adjacencyList.put(node, newHashSet(0));
 //    }
 
+    private void addLink_unsafe(GraphNode<NodeType> from, GraphNode<NodeType> to, LinkType linkType){
+        var linkTypes = adjacencyList.get(from).merge(to, Collections.singleton(linkType), Graph::withLinkTypes);
+
+        if(persistentAdjacency != null)
+            persistentAdjacency.putLinkTypes(from, to, linkTypes);
+        if(linkTypeIndex != null)
+            linkTypeIndex.add(from, to, linkType);
+    }
+
+    private void putNode(GraphNode<NodeType> node, HashMap<GraphNode<NodeType>, Set<LinkType>> neighbors){
+        adjacencyList.put(node, neighbors);
+
+        if(persistentAdjacency != null)
+            persistentAdjacency.putNode(node);
+    }
+
+    // Most node pairs are joined by a single link, those keep the immutable singleton set
+    private static <LinkType> Set<LinkType> withLinkTypes(Set<LinkType> linkTypes, Set<LinkType> addedLinkTypes){
+        if(linkTypes.containsAll(addedLinkTypes))
+            return linkTypes;
+
+        var mergedLinkTypes = linkTypes instanceof HashSet ? linkTypes : new HashSet<>(linkTypes);
+        mergedLinkTypes.addAll(addedLinkTypes);
+
+        return mergedLinkTypes;
+    }
+
     public boolean addNode(GraphNode<NodeType> node, GraphNode<NodeType> connectedTo, LinkType linkType){
+        if(shouldMeasure())
+            return measured(GraphOperation.ADD_NODE, () -> addNode(node, connectedTo, linkType));
+
         var allNodes = adjacencyList.keySet();
 
         if(allNodes.contains(node) || !allNodes.contains(connectedTo)){
             return false;
         }
 
-        HashSet<GraphLink<NodeType, LinkType>> connectionSet = HashSet.newHashSet(0);
-        connectionSet.add(new GraphLink<>(connectedTo, linkType));
-        adjacencyList.put(node, connectionSet);
+        putNode(node, new HashMap<>());
+
+        addLink_unsafe(node, connectedTo, linkType);
+        addLink_unsafe(connectedTo, node, linkType);
 
-        adjacencyList.get(connectedTo).add(new GraphLink<>(node, linkType));
+        if(connectivityCache != null)
+            connectivityCache.nodeAdded(node, connectedTo, modificationEpoch, modificationEpoch + 1);
+        modificationEpoch++;
+
+        if(subscriptions != null){
+            publish(new GraphEvent.NodeAdded<>(node));
+            publish(new GraphEvent.LinkAdded<>(node, connectedTo, linkType));
+        }
 
         return true;
     }
 
     public boolean addLink(GraphNode<NodeType> node1, GraphNode<NodeType> node2, LinkType linkType){
+        if(shouldMeasure())
+            return measured(GraphOperation.ADD_LINK, () -> addLink(node1, node2, linkType));
+
         var allNodes = adjacencyList.keySet();
 
         if(!allNodes.contains(node1) || !allNodes.contains(node2)){
             return false;
         }
 
-        adjacencyList.get(node1).add(new GraphLink<>(node2, linkType));
-        adjacencyList.get(node2).add(new GraphLink<>(node1, linkType));
+        // Adding a link that is already there changes nothing listeners need to hear about
+        boolean isNewLink = subscriptions != null && !hasLink(node1, node2, linkType);
+
+        addLink_unsafe(node1, node2, linkType);
+        addLink_unsafe(node2, node1, linkType);
+
+        if(connectivityCache != null)
+            connectivityCache.linkAdded(node1, node2, modificationEpoch, modificationEpoch + 1);
+        modificationEpoch++;
+
+        if(isNewLink)
+            publish(new GraphEvent.LinkAdded<>(node1, node2, linkType));
 
         return true;
     }
 
     public Map<GraphNode<NodeType>, Set<GraphLink<NodeType, LinkType>>> getAdjacencies(){
-        return Map.copyOf(adjacencyList);
+        Map<GraphNode<NodeType>, Set<GraphLink<NodeType, LinkType>>> adjacencies = new HashMap<>(adjacencyList.size());
+
+        adjacencyList.forEach((node, neighbors) -> {
+            HashSet<GraphLink<NodeType, LinkType>> links = new HashSet<>();
+
+            neighbors.forEach((neighbor, linkTypes) -> linkTypes.forEach(linkType -> links.add(new GraphLink<>(neighbor, linkType))));
+            adjacencies.put(node, links);
+        });
+
+        return Collections.unmodifiableMap(adjacencies);
     }
 
-    private boolean removeConnection_unsafe(GraphNode<NodeType> node1, GraphNode<NodeType> node2){
+    boolean removeConnection_unsafe(GraphNode<NodeType> node1, GraphNode<NodeType> node2){
         var allNodes = adjacencyList.keySet();
 
         if(!allNodes.contains(node1) || !allNodes.contains(node2))
             return false;
 
-        var node1Connections = adjacencyList.get(node1);
-        var node2Connections = adjacencyList.get(node2);
+        var linkTypes = adjacencyList.get(node1).remove(node2);
+        adjacencyList.get(node2).remove(node1);
+        modificationEpoch++;
 
-        adjacencyList.put(
-                node1,
-                node1Connections.stream().filter(link -> link.node() != node2).collect(Collectors.toCollection(HashSet::new))
-        );
+        if(persistentAdjacency != null){
+            persistentAdjacency.removeLink(node1, node2);
+            persistentAdjacency.removeLink(node2, node1);
+        }
+        if(linkTypeIndex != null && linkTypes != null){
+            for(var linkType : linkTypes){
+                linkTypeIndex.remove(node1, node2, linkType);
+                linkTypeIndex.remove(node2, node1, linkType);
+            }
+        }
+        if(subscriptions != null && linkTypes != null){
+            for(var linkType : linkTypes)
+                publish(new GraphEvent.LinkRemoved<>(node1, node2, linkType));
+        }
 
-        adjacencyList.put(
-                node2,
-                node2Connections.stream().filter(link -> link.node() != node1).collect(Collectors.toCollection(HashSet::new))
-        );
+        return true;
+    }
+
+    // Removes only the links of the given types between the two nodes, links of other types stay
+    boolean removeLinkTypes_unsafe(GraphNode<NodeType> node1, GraphNode<NodeType> node2, Set<LinkType> removedLinkTypes){
+        var node1Neighbors = adjacencyList.get(node1);
+
+        if(node1Neighbors == null || !adjacencyList.containsKey(node2))
+            return false;
+
+        var linkTypes = node1Neighbors.get(node2);
+
+        if(linkTypes == null || removedLinkTypes.containsAll(linkTypes))
+            return removeConnection_unsafe(node1, node2);
+
+        Set<LinkType> remainingLinkTypes = new HashSet<>(linkTypes);
+        remainingLinkTypes.removeAll(removedLinkTypes);
+
+        if(remainingLinkTypes.size() == linkTypes.size())
+            return true;
+
+        if(remainingLinkTypes.size() == 1)
+            remainingLinkTypes = Collections.singleton(remainingLinkTypes.iterator().next());
+
+        // Each end gets its own set, addLink_unsafe grows them in place
+        node1Neighbors.put(node2, remainingLinkTypes);
+        adjacencyList.get(node2).put(node1, remainingLinkTypes.size() == 1 ? remainingLinkTypes : new HashSet<>(remainingLinkTypes));
+        modificationEpoch++;
+
+        if(persistentAdjacency != null){
+            persistentAdjacency.putLinkTypes(node1, node2, remainingLinkTypes);
+            persistentAdjacency.putLinkTypes(node2, node1, remainingLinkTypes);
+        }
+        if(linkTypeIndex != null){
+            for(var linkType : linkTypes){
+                if(!remainingLinkTypes.contains(linkType)){
+                    linkTypeIndex.remove(node1, node2, linkType);
+                    linkTypeIndex.remove(node2, node1, linkType);
+                }
+            }
+        }
+        if(subscriptions != null){
+            for(var linkType : linkTypes){
+                if(!remainingLinkTypes.contains(linkType))
+                    publish(new GraphEvent.LinkRemoved<>(node1, node2, linkType));
+            }
+        }
 
         return true;
     }
 
     public Optional<Graph<NodeType, LinkType>> removeConnectionAndSplit(GraphNode<NodeType> node1, GraphNode<NodeType> node2){
+        if(shouldMeasure())
+            return measured(GraphOperation.REMOVE_CONNECTION_AND_SPLIT, () -> removeConnectionAndSplit(node1, node2));
+
         boolean nodesDisconnected = removeConnection_unsafe(node1, node2);
 
         // Nodes not in network
         if(!nodesDisconnected)
             return Optional.empty();
 
-        var connectedToNode1 = getConnectedNodes(node1);
+        var splitOffNodes = findSmallerSideIfSplit(node1, node2);
 
         // Nodes still connected after link removal
-        if(connectedToNode1.contains(node2))
+        if(splitOffNodes == null)
+            return Optional.empty();
+
+        // Move the smaller side to the new graph, the rest stays in this one
+        return Optional.of(splitOff(splitOffNodes));
+    }
+
+    // Removes only the links of the given types between the nodes, links of other types keep the nodes connected.
+    // The graph is split the same way as above if that cut it in two.
+    public Optional<Graph<NodeType, LinkType>> removeConnectionAndSplit(GraphNode<NodeType> node1, GraphNode<NodeType> node2, Set<LinkType> linkTypes){
+        if(shouldMeasure())
+            return measured(GraphOperation.REMOVE_CONNECTION_AND_SPLIT, () -> removeConnectionAndSplit(node1, node2, linkTypes));
+
+        if(!removeLinkTypes_unsafe(node1, node2, linkTypes))
             return Optional.empty();
 
+        if(adjacencyList.get(node1).containsKey(node2))
+            return Optional.empty();
+
+        var splitOffNodes = findSmallerSideIfSplit(node1, node2);
+
+        if(splitOffNodes == null)
+            return Optional.empty();
+
+        return Optional.of(splitOff(splitOffNodes));
+    }
+
+    // Moves the given nodes, which must be whole components, to a new graph
+    Graph<NodeType, LinkType> splitOff(Set<GraphNode<NodeType>> nodes){
         Graph<NodeType, LinkType> newGraph = new Graph<>();
+        nodes.forEach(key -> newGraph.adjacencyList.put(key, adjacencyList.remove(key)));
+        modificationEpoch++;
+
+        if(activeProbe != null)
+            activeProbe.splitOff(nodes.size());
 
-        HashSet<GraphNode<NodeType>> connectedToNode2 = new HashSet<>(adjacencyList.size() - connectedToNode1.size());
+        if(persistentAdjacency != null)
+            nodes.forEach(persistentAdjacency::removeNode);
+        if(linkTypeIndex != null)
+            linkTypeIndex.removeNodes(nodes);
+        // The node sets are built by the callers for this split alone, so the event can hold on to them
+        if(subscriptions != null)
+            publish(new GraphEvent.Split<>(newGraph, Collections.unmodifiableSet(nodes)));
 
-        // Populate new graph
-        adjacencyList.forEach((key, value) -> {
-            if (!connectedToNode1.contains(key)) {
-                connectedToNode2.add(key);
-                newGraph.adjacencyList.put(key, value);
+        return newGraph;
+    }
+
+    // Runs a BFS from both ends of a removed link, one node per side in turns, and stops as soon as
+    // the searches meet. Only when the link was a bridge is one side walked to the end, and since both
+    // sides advance at the same pace that is the smaller one. Returns null if the nodes are still connected.
+    private Set<GraphNode<NodeType>> findSmallerSideIfSplit(GraphNode<NodeType> node1, GraphNode<NodeType> node2){
+        if(node1.equals(node2))
+            return null;
+
+        HashSet<GraphNode<NodeType>> seenFromNode1 = new HashSet<>();
+        HashSet<GraphNode<NodeType>> seenFromNode2 = new HashSet<>();
+        ArrayDeque<GraphNode<NodeType>> toVisitFromNode1 = new ArrayDeque<>();
+        ArrayDeque<GraphNode<NodeType>> toVisitFromNode2 = new ArrayDeque<>();
+
+        seenFromNode1.add(node1);
+        toVisitFromNode1.addLast(node1);
+        seenFromNode2.add(node2);
+        toVisitFromNode2.addLast(node2);
+
+        Set<GraphNode<NodeType>> smallerSide = null;
+
+        while(true){
+            // node2's side goes first, so on a tie it is the one split off
+            if(visitNext(toVisitFromNode2, seenFromNode2, seenFromNode1))
+                break;
+            if(toVisitFromNode2.isEmpty()){
+                smallerSide = seenFromNode2;
+                break;
             }
-        });
 
-        // Remove unneeded nodes from this graph
-        connectedToNode2.forEach(adjacencyList::remove);
+            if(visitNext(toVisitFromNode1, seenFromNode1, seenFromNode2))
+                break;
+            if(toVisitFromNode1.isEmpty()){
+                smallerSide = seenFromNode1;
+                break;
+            }
+        }
+
+        return smallerSide;
+    }
+
+    private boolean visitNext(ArrayDeque<GraphNode<NodeType>> toVisit, Set<GraphNode<NodeType>> seen, Set<GraphNode<NodeType>> seenByOtherSide){
+        var neighbors = adjacencyList.get(toVisit.pollFirst()).keySet();
+        if(activeProbe != null)
+            activeProbe.visited(neighbors.size());
 
-        return Optional.of(newGraph);
+        for(var neighbor : neighbors){
+            if(seenByOtherSide.contains(neighbor))
+                return true;
+
+            if(seen.add(neighbor))
+                toVisit.addLast(neighbor);
+        }
+
+        return false;
     }
 
-    private boolean removeNode_unsafe(GraphNode<NodeType> node){
+    boolean removeNode_unsafe(GraphNode<NodeType> node){
         if(!adjacencyList.containsKey(node))
             return false;
 
-        var connectedTo = adjacencyList.get(node);
-        adjacencyList.remove(node);
-
-        connectedTo.forEach(link -> {
-//            adjacencyList.get(link.node()).remove(new GraphLink<>(link.node(), link.type()));
-            adjacencyList.put(
-                    link.node(),
-                    adjacencyList.get(link.node()).stream()
-                            .filter(_link -> _link.node() != node)
-                            .collect(Collectors.toCollection(HashSet::new))
-            );
+        var connectedTo = adjacencyList.remove(node);
+
+        connectedTo.keySet().forEach(neighbor -> {
+            // A self link has nothing left to clean up
+            if(!neighbor.equals(node))
+                adjacencyList.get(neighbor).remove(node);
         });
+        modificationEpoch++;
+
+        if(persistentAdjacency != null){
+            persistentAdjacency.removeNode(node);
+
+            for(var neighbor : connectedTo.keySet()){
+                if(!neighbor.equals(node))
+                    persistentAdjacency.removeLink(neighbor, node);
+            }
+        }
+        if(linkTypeIndex != null){
+            connectedTo.forEach((neighbor, linkTypes) -> {
+                for(var linkType : linkTypes){
+                    linkTypeIndex.remove(node, neighbor, linkType);
+                    linkTypeIndex.remove(neighbor, node, linkType);
+                }
+            });
+        }
+        if(subscriptions != null)
+            publish(new GraphEvent.NodeRemoved<>(node));
 
         return true;
     }
 
     public Optional<Set<Graph<NodeType, LinkType>>> removeNodeAndSplit(GraphNode<NodeType> node){
+        if(shouldMeasure())
+            return measured(GraphOperation.REMOVE_NODE_AND_SPLIT, () -> removeNodeAndSplit(node));
+
         if(!adjacencyList.containsKey(node))
             return Optional.empty();
 
-        var danglingNodes = adjacencyList.get(node).stream().map(GraphLink::node).collect(Collectors.toSet());
+        var danglingNodes = new HashSet<>(adjacencyList.get(node).keySet());
+        danglingNodes.remove(node);
         removeNode_unsafe(node);
 
         if(danglingNodes.isEmpty())
             return Optional.of(Set.of());
 
         var thisGraphSeed = danglingNodes.stream().findFirst().get();
-        var currentGraphNodes = getConnectedNodes(thisGraphSeed);
+        var currentGraphNodes = collectConnectedNodes(thisGraphSeed);
 
         danglingNodes.removeAll(currentGraphNodes);
 
@@ -146,81 +434,497 @@ public class Graph<NodeType, LinkType> {
             var newGraphSeed = danglingNodes.stream().findFirst().get();
             danglingNodes.remove(newGraphSeed);
 
-            var newGraphNodes = getConnectedNodes(newGraphSeed);
-
-            Graph<NodeType, LinkType> newGraph = new Graph<>();
-            adjacencyList.forEach((key, value) -> {
-                if(newGraphNodes.contains(key))
-                    newGraph.adjacencyList.put(key, value);
-            });
+            var newGraphNodes = collectConnectedNodes(newGraphSeed);
 
-            newGraphs.add(newGraph);
+            newGraphs.add(splitOff(newGraphNodes));
 
             danglingNodes.removeAll(newGraphNodes);
-
-            newGraphNodes.forEach(adjacencyList::remove);
         }
 
         return Optional.of(newGraphs);
     }
 
-    public void mergeWith(GraphNode<NodeType> thisGraphNode, Graph<NodeType, LinkType> otherGraph, GraphNode<NodeType> otherGraphNode, LinkType linkType){
-        if(!adjacencyList.containsKey(thisGraphNode) || !otherGraph.adjacencyList.containsKey(otherGraphNode))
-            return;
+    // This graph always survives the merge and otherGraph is left empty. Only the smaller of the two adjacency
+    // maps is copied though: when otherGraph is the larger one, this graph's nodes go into its map, which this
+    // graph then takes over. Every node is copied at most log(n) times over any sequence of merges.
+    public Graph<NodeType, LinkType> mergeWith(GraphNode<NodeType> thisGraphNode, Graph<NodeType, LinkType> otherGraph, GraphNode<NodeType> otherGraphNode, LinkType linkType){
+        if(shouldMeasure())
+            return measured(GraphOperation.MERGE_WITH, () -> mergeWith(thisGraphNode, otherGraph, otherGraphNode, linkType));
+
+        if(otherGraph == this || !adjacencyList.containsKey(thisGraphNode) || !otherGraph.adjacencyList.containsKey(otherGraphNode))
+            return this;
 
-        adjacencyList.get(thisGraphNode).add(new GraphLink<>(otherGraphNode, linkType));
-        otherGraph.adjacencyList.get(otherGraphNode).add(new GraphLink<>(thisGraphNode, linkType));
+        addLink_unsafe(thisGraphNode, otherGraphNode, linkType);
+        otherGraph.addLink_unsafe(otherGraphNode, thisGraphNode, linkType);
+
+        // Snapshots and the link type index stay enabled exactly when they were on this graph, whichever map is
+        // kept. The persistent copy and the index describe the contents, so when the larger map is taken over
+        // its own ones come along, and if the other graph had none they are built for the merged contents.
+        boolean keepsSnapshots = persistentAdjacency != null;
+        boolean keepsLinkTypeIndex = linkTypeIndex != null;
+
+        if(adjacencyList.size() < otherGraph.adjacencyList.size()){
+            var smallerAdjacencyList = adjacencyList;
+            adjacencyList = otherGraph.adjacencyList;
+            otherGraph.adjacencyList = smallerAdjacencyList;
+
+            persistentAdjacency = keepsSnapshots ? otherGraph.persistentAdjacency : null;
+            linkTypeIndex = keepsLinkTypeIndex ? otherGraph.linkTypeIndex : null;
+        }
 
         adjacencyList.putAll(otherGraph.adjacencyList);
+        if(activeProbe != null)
+            activeProbe.merged(otherGraph.adjacencyList.size());
+
+        if(persistentAdjacency != null)
+            persistentAdjacency.putAll(otherGraph.adjacencyList);
+        else if(keepsSnapshots)
+            persistentAdjacency = new PersistentAdjacency<>(adjacencyList);
+
+        if(linkTypeIndex != null)
+            linkTypeIndex.putAll(otherGraph.adjacencyList);
+        else if(keepsLinkTypeIndex)
+            linkTypeIndex = new LinkTypeIndex<>(adjacencyList);
 
         otherGraph.adjacencyList.clear();
+        otherGraph.persistentAdjacency = null;
+        otherGraph.linkTypeIndex = null;
+
+        modificationEpoch++;
+        otherGraph.modificationEpoch++;
+
+        // Listeners belong to the graph objects, not to the contents swapped above
+        if(subscriptions != null || otherGraph.subscriptions != null){
+            var merged = new GraphEvent.Merged<>(this, otherGraph, thisGraphNode, otherGraphNode, linkType);
+
+            if(subscriptions != null)
+                publish(merged);
+            if(otherGraph.subscriptions != null)
+                otherGraph.publish(merged);
+        }
+
+        return this;
     }
 
+    // The caller owns the result, with or without the connectivity cache. A cache hit still saves the walk,
+    // only the copy of the cached component is made.
     public Set<GraphNode<NodeType>> getConnectedNodes(GraphNode<NodeType> node){
+        if(shouldMeasure())
+            return measured(GraphOperation.GET_CONNECTED_NODES, () -> getConnectedNodes(node));
+
+        if(connectivityCache == null)
+            return collectConnectedNodes(node);
+
         if(!adjacencyList.containsKey(node))
             return Set.of();
 
-        Map<GraphNode<NodeType>, Set<GraphNode<NodeType>>> adjacentNodes = new HashMap<>(adjacencyList.size());
+        return new HashSet<>(connectivityCache.componentOf(node, modificationEpoch, this::collectConnectedNodes));
+    }
+
+    public boolean isConnected(GraphNode<NodeType> node1, GraphNode<NodeType> node2){
+        if(shouldMeasure())
+            return measured(GraphOperation.IS_CONNECTED, () -> isConnected(node1, node2));
 
-        adjacencyList.forEach((key, value) -> {
-            var nodeSet = value.stream().map(GraphLink::node).collect(Collectors.toSet());
-            adjacentNodes.put(key, nodeSet);
-        });
+        if(connectivityCache == null)
+            return adjacencyList.containsKey(node2) && isReachable(node1, node2::equals);
+
+        // Asks the cache directly, the copy getConnectedNodes makes is not needed for one lookup
+        return adjacencyList.containsKey(node1) && connectivityCache.componentOf(node1, modificationEpoch, this::collectConnectedNodes).contains(node2);
+    }
+
+    // Nodes reachable from node through links of the given types only
+    public Set<GraphNode<NodeType>> getConnectedNodes(GraphNode<NodeType> node, Set<LinkType> linkTypes){
+        if(shouldMeasure())
+            return measured(GraphOperation.GET_CONNECTED_NODES, () -> getConnectedNodes(node, linkTypes));
 
         HashSet<GraphNode<NodeType>> visitedNodes = new HashSet<>();
-        Stack<GraphNode<NodeType>> nodesToVisit = new Stack<>();
+        ArrayDeque<GraphNode<NodeType>> nodesToVisit = new ArrayDeque<>();
+
+        if(!adjacencyList.containsKey(node))
+            return visitedNodes;
 
+        visitedNodes.add(node);
         nodesToVisit.push(node);
 
-        while(!nodesToVisit.empty()){
-            var currentNode = nodesToVisit.pop();
-            visitedNodes.add(currentNode);
+        while(!nodesToVisit.isEmpty()){
+            if(activeProbe != null)
+                activeProbe.nodesVisited++;
+
+            forEachLink(nodesToVisit.pop(), linkTypes, (neighbor, linkType) -> {
+                if(activeProbe != null)
+                    activeProbe.linksVisited++;
 
-            adjacentNodes.get(currentNode).forEach(_node -> {
-                if(!visitedNodes.contains(_node))
-                    nodesToVisit.push(_node);
+                if(visitedNodes.add(neighbor))
+                    nodesToVisit.push(neighbor);
             });
         }
 
         return visitedNodes;
     }
 
+    // Every link of node with one of the given types, found through the link type index when it is enabled.
+    // A neighbor linked with several of the types is passed once per type.
+    void forEachLink(GraphNode<NodeType> node, Set<LinkType> linkTypes, BiConsumer<GraphNode<NodeType>, LinkType> action){
+        if(linkTypeIndex != null){
+            for(var linkType : linkTypes){
+                for(var neighbor : linkTypeIndex.neighbors(node, linkType))
+                    action.accept(neighbor, linkType);
+            }
+            return;
+        }
+
+        adjacencyList.get(node).forEach((neighbor, neighborLinkTypes) -> {
+            for(var linkType : neighborLinkTypes){
+                if(linkTypes.contains(linkType))
+                    action.accept(neighbor, linkType);
+            }
+        });
+    }
+
+    // Uncached, for the split code which is about to change the graph anyway
+    HashSet<GraphNode<NodeType>> collectConnectedNodes(GraphNode<NodeType> node){
+        HashSet<GraphNode<NodeType>> visitedNodes = new HashSet<>();
+        ArrayDeque<GraphNode<NodeType>> nodesToVisit = new ArrayDeque<>();
+
+        if(!adjacencyList.containsKey(node))
+            return visitedNodes;
+
+
+        visitedNodes.add(node);
+        nodesToVisit.push(node);
+
+        // Walks the live neighbor sets, nothing but the result and the work queue is allocated
+        while(!nodesToVisit.isEmpty()){
+            var neighbors = adjacencyList.get(nodesToVisit.pop()).keySet();
+            if(activeProbe != null)
+                activeProbe.visited(neighbors.size());
+
+            for(var neighbor : neighbors){
+                if(visitedNodes.add(neighbor))
+                    nodesToVisit.push(neighbor);
+            }
+        }
+
+        return visitedNodes;
+    }
+
+    // Labels every node with its component in one pass, in parallel on large graphs: nodes get dense ids, then
+    // all links are unioned into a lock free union-find by the common fork-join pool, and nodes are grouped by root.
+    public List<Set<GraphNode<NodeType>>> connectedComponents(){
+        return connectedComponents(null);
+    }
+
+    // Components of the sub-network made of the links of the given types, null for all links. A node without
+    // such links is a component of its own.
+    public List<Set<GraphNode<NodeType>>> connectedComponents(Set<LinkType> linkTypes){
+        if(shouldMeasure())
+            return measured(GraphOperation.CONNECTED_COMPONENTS, () -> connectedComponents(linkTypes));
+
+        int nodeCount = adjacencyList.size();
+
+        @SuppressWarnings("unchecked")
+        GraphNode<NodeType>[] nodes = adjacencyList.keySet().toArray(new GraphNode[0]);
+        NodeIndex<NodeType> nodeIds = new NodeIndex<>(nodeCount);
+
+        for(int id = 0; id < nodeCount; id++)
+            nodeIds.put(nodes[id], id);
+
+        ConcurrentUnionFind components = new ConcurrentUnionFind(nodeCount);
+        int[] roots = new int[nodeCount];
+
+        // Both passes only read the graph, so the unsynchronized maps are safe to share between threads
+        parallelIfLarge(IntStream.range(0, nodeCount)).forEach(id -> {
+            if(linkTypes == null){
+                for(var neighbor : adjacencyList.get(nodes[id]).keySet()){
+                    int neighborId = nodeIds.get(neighbor);
+
+                    if(id < neighborId)
+                        components.union(id, neighborId);
+                }
+            }
+            else{
+                forEachLink(nodes[id], linkTypes, (neighbor, linkType) -> {
+                    int neighborId = nodeIds.get(neighbor);
+
+                    if(id < neighborId)
+                        components.union(id, neighborId);
+                });
+            }
+        });
+        parallelIfLarge(IntStream.range(0, nodeCount)).forEach(id -> roots[id] = components.find(id));
+
+        // Every neighbor map is scanned once, unless the link type index answered instead
+        if(activeProbe != null){
+            activeProbe.nodesVisited += nodeCount;
+            if(linkTypes == null || linkTypeIndex == null)
+                adjacencyList.values().forEach(neighbors -> activeProbe.linksVisited += neighbors.size());
+        }
+
+        // Counting sort by root: componentOfRoot numbers the components, members are laid out component by component
+        int[] componentOfRoot = new int[nodeCount];
+        int componentCount = 0;
+
+        for(int id = 0; id < nodeCount; id++){
+            if(roots[id] == id)
+                componentOfRoot[id] = componentCount++;
+        }
+
+        int[] componentStarts = new int[componentCount + 1];
+        for(int id = 0; id < nodeCount; id++)
+            componentStarts[componentOfRoot[roots[id]] + 1]++;
+        for(int component = 0; component < componentCount; component++)
+            componentStarts[component + 1] += componentStarts[component];
+
+        int[] members = new int[nodeCount];
+        int[] nextMember = Arrays.copyOf(componentStarts, componentCount);
+        for(int id = 0; id < nodeCount; id++)
+            members[nextMember[componentOfRoot[roots[id]]]++] = id;
+
+        return parallelIfLarge(IntStream.range(0, componentCount)).mapToObj(component -> {
+            Set<GraphNode<NodeType>> componentNodes = HashSet.newHashSet(componentStarts[component + 1] - componentStarts[component]);
+
+            for(int i = componentStarts[component]; i < componentStarts[component + 1]; i++)
+                componentNodes.add(nodes[members[i]]);
+
+            return componentNodes;
+        }).toList();
+    }
+
+    private IntStream parallelIfLarge(IntStream stream){
+        return adjacencyList.size() >= PARALLEL_COMPONENTS_THRESHOLD ? stream.parallel() : stream;
+    }
+
+    // Same as removeNodeAndSplit without the removal: the largest component stays in this graph,
+    // every other one is moved to a new graph
+    public Set<Graph<NodeType, LinkType>> splitIntoComponents(){
+        if(shouldMeasure())
+            return measured(GraphOperation.SPLIT_INTO_COMPONENTS, () -> splitIntoComponents());
+
+        var components = connectedComponents();
+        HashSet<Graph<NodeType, LinkType>> newGraphs = new HashSet<>();
+
+        if(components.size() < 2)
+            return newGraphs;
+
+        var largestComponent = Collections.max(components, Comparator.comparingInt(Set::size));
+
+        for(var component : components){
+            if(component != largestComponent)
+                newGraphs.add(splitOff(component));
+        }
+
+        return newGraphs;
+    }
+
+    public GraphBatch<NodeType, LinkType> batch(){
+        return new GraphBatch<>(this);
+    }
+
+    public Stream<TraversalStep<NodeType, LinkType>> traverse(GraphNode<NodeType> start, TraversalOrder order){
+        return traverse(start, order, Integer.MAX_VALUE, null);
+    }
+
+    public Stream<TraversalStep<NodeType, LinkType>> traverse(GraphNode<NodeType> start, TraversalOrder order, int maxDepth){
+        return traverse(start, order, maxDepth, null);
+    }
+
+    // Only follows links of the given types, through the link type index when it is enabled
+    public Stream<TraversalStep<NodeType, LinkType>> traverse(GraphNode<NodeType> start, TraversalOrder order, Set<LinkType> linkTypes){
+        return stream(new GraphTraversal<>(this, start, order, Integer.MAX_VALUE, null, linkTypes));
+    }
+
+    // Lazy: nodes are only explored as the stream pulls them, so short-circuiting operations (anyMatch,
+    // findFirst, limit, takeWhile...) stop the walk. followLink may be null to follow every link.
+    public Stream<TraversalStep<NodeType, LinkType>> traverse(GraphNode<NodeType> start, TraversalOrder order, int maxDepth, Predicate<GraphLink<NodeType, LinkType>> followLink){
+        return stream(new GraphTraversal<>(this, start, order, maxDepth, followLink, null));
+    }
+
+    private Stream<TraversalStep<NodeType, LinkType>> stream(GraphTraversal<NodeType, LinkType> traversal){
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(traversal, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+                false
+        );
+    }
+
+    public boolean isReachable(GraphNode<NodeType> start, Predicate<GraphNode<NodeType>> target){
+        if(shouldMeasure())
+            return measured(GraphOperation.IS_REACHABLE, () -> isReachable(start, target));
+
+        return traverse(start, TraversalOrder.BREADTH_FIRST).anyMatch(step -> {
+            if(activeProbe != null)
+                activeProbe.visited(adjacencyList.get(step.node()).size());
+
+            return target.test(step.node());
+        });
+    }
+
+    // Live neighbor -> link types view for traversals in this package, null if the node is not in the graph
+    Map<GraphNode<NodeType>, Set<LinkType>> getNeighbors(GraphNode<NodeType> node){
+        return adjacencyList.get(node);
+    }
+
+    // Memoizes component membership for getConnectedNodes and isConnected until the graph changes. Worth it
+    // when those are asked far more often than the graph is modified, see connectivityCacheHits/Misses.
+    public void enableConnectivityCache(){
+        if(connectivityCache == null)
+            connectivityCache = new ConnectivityCache<>(modificationEpoch);
+    }
+
+    public void disableConnectivityCache(){
+        connectivityCache = null;
+    }
+
+    public long connectivityCacheHits(){
+        return connectivityCache == null ? 0 : connectivityCache.hits();
+    }
+
+    public long connectivityCacheMisses(){
+        return connectivityCache == null ? 0 : connectivityCache.misses();
+    }
+
+    // Immutable copy of the graph as it is now, safe to read from other threads while this graph changes.
+    // The first call copies the graph once, from then on every change also updates a persistent copy which
+    // shares all untouched parts with the snapshots, so later calls take constant time.
+    public GraphSnapshot<NodeType, LinkType> snapshot(){
+        if(persistentAdjacency == null)
+            persistentAdjacency = new PersistentAdjacency<>(adjacencyList);
+
+        return persistentAdjacency.snapshot();
+    }
+
+    // Stops keeping the persistent copy up to date, snapshots already taken stay valid
+    public void disableSnapshots(){
+        persistentAdjacency = null;
+    }
+
+    // Whether changes are also applied to the persistent copy, i.e. snapshot() was called since the last disable
+    boolean tracksSnapshots(){
+        return persistentAdjacency != null;
+    }
+
+    // Keeps the links grouped by type as well, so walks restricted to some link types never look at the links of
+    // other types. Costs a second copy of every link and some upkeep on each change.
+    public void enableLinkTypeIndex(){
+        if(linkTypeIndex == null)
+            linkTypeIndex = new LinkTypeIndex<>(adjacencyList);
+    }
+
+    public void disableLinkTypeIndex(){
+        linkTypeIndex = null;
+    }
+
+    // Passes every change to listener as soon as it was made
+    public GraphSubscription<NodeType, LinkType> subscribe(Consumer<? super GraphEvent<NodeType, LinkType>> listener){
+        return addSubscription(new GraphSubscription<>(this, listener));
+    }
+
+    // Collects changes and passes them in lists of up to maxBatchSize, sent once that many piled up, on
+    // flushEvents() and at the end of every GraphBatch commit. With coalesce, changes that were undone within
+    // the same list are left out of it.
+    public GraphSubscription<NodeType, LinkType> subscribe(Consumer<? super List<GraphEvent<NodeType, LinkType>>> listener, int maxBatchSize, boolean coalesce){
+        return addSubscription(new GraphSubscription<>(this, listener, maxBatchSize, coalesce));
+    }
+
+    private GraphSubscription<NodeType, LinkType> addSubscription(GraphSubscription<NodeType, LinkType> subscription){
+        List<GraphSubscription<NodeType, LinkType>> newSubscriptions = subscriptions == null ? new ArrayList<>() : new ArrayList<>(subscriptions);
+        newSubscriptions.add(subscription);
+        subscriptions = newSubscriptions;
+
+        return subscription;
+    }
+
+    void unsubscribe(GraphSubscription<NodeType, LinkType> subscription){
+        if(subscriptions == null)
+            return;
+
+        List<GraphSubscription<NodeType, LinkType>> newSubscriptions = new ArrayList<>(subscriptions);
+        newSubscriptions.remove(subscription);
+        subscriptions = newSubscriptions.isEmpty() ? null : newSubscriptions;
+    }
+
+    // Delivers the changes batched subscriptions are still holding on to
+    public void flushEvents(){
+        if(subscriptions == null)
+            return;
+
+        for(var subscription : subscriptions)
+            subscription.flush();
+    }
+
+    private void publish(GraphEvent<NodeType, LinkType> event){
+        for(var subscription : subscriptions)
+            subscription.publish(event);
+    }
+
+    // Times and counts every public operation, see GraphOperation, reporting each to metrics and as a
+    // dev.mrcabbagestick.graph.GraphOperation Flight Recorder event. Use GraphMetrics.NONE for the events alone.
+    // Operations called from within another one, like connectedComponents by splitIntoComponents, count towards
+    // the outer one. While disabled this costs one null check per operation.
+    public void enableInstrumentation(GraphMetrics metrics){
+        this.metrics = Objects.requireNonNull(metrics);
+    }
+
+    public void disableInstrumentation(){
+        metrics = null;
+    }
+
+    // True while instrumentation is on and no operation is being measured yet. The public operations then run
+    // themselves again through measured(), everything they call counts towards that one measurement.
+    boolean shouldMeasure(){
+        return metrics != null && activeProbe == null;
+    }
+
+    <Result> Result measured(GraphOperation operation, Supplier<Result> operationCall){
+        var probe = activeProbe = new OperationProbe(operation, metrics, adjacencyList.size());
+
+        try{
+            return operationCall.get();
+        }
+        finally{
+            activeProbe = null;
+            probe.finish();
+        }
+    }
+
+    public long getModificationEpoch(){
+        return modificationEpoch;
+    }
+
     public boolean canExist(){
         return !adjacencyList.isEmpty();
     }
 
+    public int size(){
+        return adjacencyList.size();
+    }
+
+    public Set<GraphNode<NodeType>> getNodes(){
+        return Collections.unmodifiableSet(adjacencyList.keySet());
+    }
+
+    // Debug output, one "node -> (neighbor, linkType), ..." line per node, printed through a single buffer instead
+    // of one System.out call per link. GraphExporter writes graphs in formats other tools read.
     public void printAdjacencies(){
-        for(var entry : adjacencyList.entrySet()){
-            System.out.print(entry.getKey().data().toString() + " -> ");
+        var out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
 
-            for(var connectedTo : entry.getValue()){
-                System.out.print(
-                        "(" + connectedTo.node().data().toString() + ", "
-                        + connectedTo.type().toString()
-                        + "), ");
+        for(var entry : adjacencyList.entrySet()){
+            out.print(entry.getKey().data().toString());
+            out.print(" -> ");
+
+            for(var connectedTo : entry.getValue().entrySet()){
+                for(var linkType : connectedTo.getValue()){
+                    out.print('(');
+                    out.print(connectedTo.getKey().data().toString());
+                    out.print(", ");
+                    out.print(linkType.toString());
+                    out.print("), ");
+                }
             }
-            System.out.print('\n');
+            out.print('\n');
         }
+
+        // Flushed, not closed, System.out stays open
+        out.flush();
     }
 }
 
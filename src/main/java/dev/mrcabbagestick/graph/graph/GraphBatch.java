@@ -0,0 +1,106 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.*;
+
+// Records changes to a graph and applies them all at commit. However many links and nodes are removed,
+// the graph is split once at the end: every part still connected to a removal site is labeled in one pass,
+// the largest part stays in the graph and the others become new graphs.
+// Operations that don't apply when their turn comes (e.g. linking a node removed earlier in the batch)
+// are skipped, the same way the Graph methods would return false for them.
+// Events of the commit are published as it goes, and batched subscriptions are flushed at the end.
+public class GraphBatch<NodeType, LinkType> {
+    private sealed interface Operation<NodeType, LinkType> {}
+    private record AddNode<NodeType, LinkType>(GraphNode<NodeType> node, GraphNode<NodeType> connectedTo, LinkType linkType) implements Operation<NodeType, LinkType> {}
+    private record AddLink<NodeType, LinkType>(GraphNode<NodeType> node1, GraphNode<NodeType> node2, LinkType linkType) implements Operation<NodeType, LinkType> {}
+    private record RemoveConnection<NodeType, LinkType>(GraphNode<NodeType> node1, GraphNode<NodeType> node2) implements Operation<NodeType, LinkType> {}
+    private record RemoveNode<NodeType, LinkType>(GraphNode<NodeType> node) implements Operation<NodeType, LinkType> {}
+
+    private final Graph<NodeType, LinkType> graph;
+    private final List<Operation<NodeType, LinkType>> operations = new ArrayList<>();
+
+    GraphBatch(Graph<NodeType, LinkType> graph){
+        this.graph = graph;
+    }
+
+    public GraphBatch<NodeType, LinkType> addNode(GraphNode<NodeType> node, GraphNode<NodeType> connectedTo, LinkType linkType){
+        operations.add(new AddNode<>(node, connectedTo, linkType));
+        return this;
+    }
+
+    public GraphBatch<NodeType, LinkType> addLink(GraphNode<NodeType> node1, GraphNode<NodeType> node2, LinkType linkType){
+        operations.add(new AddLink<>(node1, node2, linkType));
+        return this;
+    }
+
+    public GraphBatch<NodeType, LinkType> removeConnection(GraphNode<NodeType> node1, GraphNode<NodeType> node2){
+        operations.add(new RemoveConnection<>(node1, node2));
+        return this;
+    }
+
+    public GraphBatch<NodeType, LinkType> removeNode(GraphNode<NodeType> node){
+        operations.add(new RemoveNode<>(node));
+        return this;
+    }
+
+    // Returns every graph the network ended up in, the original graph included unless it ended up empty
+    public Set<Graph<NodeType, LinkType>> commit(){
+        if(graph.shouldMeasure())
+            return graph.measured(GraphOperation.BATCH_COMMIT, this::commit);
+
+        // Nodes that lost a link, every part the graph may have split into contains at least one of them
+        HashSet<GraphNode<NodeType>> removalSites = new HashSet<>();
+
+        for(var operation : operations){
+            switch(operation){
+                case AddNode<NodeType, LinkType> addNode -> graph.addNode(addNode.node(), addNode.connectedTo(), addNode.linkType());
+                case AddLink<NodeType, LinkType> addLink -> graph.addLink(addLink.node1(), addLink.node2(), addLink.linkType());
+                case RemoveConnection<NodeType, LinkType> removeConnection -> {
+                    if(graph.removeConnection_unsafe(removeConnection.node1(), removeConnection.node2())){
+                        removalSites.add(removeConnection.node1());
+                        removalSites.add(removeConnection.node2());
+                    }
+                }
+                case RemoveNode<NodeType, LinkType> removeNode -> {
+                    var neighbors = graph.getNeighbors(removeNode.node());
+
+                    if(neighbors != null){
+                        removalSites.addAll(neighbors.keySet());
+                        graph.removeNode_unsafe(removeNode.node());
+                    }
+                }
+            }
+        }
+
+        operations.clear();
+
+        HashSet<Graph<NodeType, LinkType>> resultingGraphs = new HashSet<>();
+
+        // Removed nodes may have been removal sites of earlier operations
+        removalSites.removeIf(node -> graph.getNeighbors(node) == null);
+
+        List<Set<GraphNode<NodeType>>> parts = new ArrayList<>();
+        Set<GraphNode<NodeType>> largestPart = Set.of();
+
+        while(!removalSites.isEmpty()){
+            var part = graph.collectConnectedNodes(removalSites.iterator().next());
+            removalSites.removeAll(part);
+
+            parts.add(part);
+            if(part.size() > largestPart.size())
+                largestPart = part;
+        }
+
+        for(var part : parts){
+            if(part != largestPart)
+                resultingGraphs.add(graph.splitOff(part));
+        }
+
+        if(graph.canExist())
+            resultingGraphs.add(graph);
+
+        // Batched subscribers get the whole commit at once
+        graph.flushEvents();
+
+        return resultingGraphs;
+    }
+}
@@ -0,0 +1,230 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+// Builds graphs from an edge list in a single pass over the input. Edges are only interned to dense node ids and
+// kept in int arrays while every node's degree is counted, so a node may first show up in a link and nothing
+// is checked against a graph on the way. At build every map is created at its final size and filled directly.
+// Graph assumes a single connected network, build only returns one if the edges form exactly that, while
+// buildComponents splits the edges into one graph per component.
+public final class GraphBuilder<NodeType, LinkType> {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final NodeIndex<NodeType> nodeIds;
+    private GraphNode<NodeType>[] nodes;
+    private int[] degrees;
+
+    private final Map<LinkType, Integer> linkTypeIds = new HashMap<>();
+    private final List<LinkType> linkTypes = new ArrayList<>();
+
+    // Link i joins node1Ids[i] and node2Ids[i] with linkTypes[typeIds[i]]
+    private int[] node1Ids;
+    private int[] node2Ids;
+    private int[] typeIds;
+    private int linkCount;
+
+    public GraphBuilder(){
+        this(16, 16);
+    }
+
+    public GraphBuilder(int expectedNodeCount, int expectedLinkCount){
+        int nodeCapacity = Math.max(expectedNodeCount, 1);
+        int linkCapacity = Math.max(expectedLinkCount, 1);
+
+        nodeIds = new NodeIndex<>(nodeCapacity);
+        nodes = newNodeArray(nodeCapacity);
+        degrees = new int[nodeCapacity];
+
+        node1Ids = new int[linkCapacity];
+        node2Ids = new int[linkCapacity];
+        typeIds = new int[linkCapacity];
+    }
+
+    // Only needed for nodes without links
+    public GraphBuilder<NodeType, LinkType> addNode(GraphNode<NodeType> node){
+        idOf(node);
+        return this;
+    }
+
+    public GraphBuilder<NodeType, LinkType> addLink(GraphNode<NodeType> node1, GraphNode<NodeType> node2, LinkType linkType){
+        int node1Id = idOf(node1);
+        int node2Id = idOf(node2);
+
+        Integer typeId = linkTypeIds.get(linkType);
+        if(typeId == null){
+            typeId = linkTypes.size();
+            linkTypeIds.put(linkType, typeId);
+            linkTypes.add(linkType);
+        }
+
+        if(linkCount == node1Ids.length){
+            int capacity = linkCount * 2;
+
+            node1Ids = Arrays.copyOf(node1Ids, capacity);
+            node2Ids = Arrays.copyOf(node2Ids, capacity);
+            typeIds = Arrays.copyOf(typeIds, capacity);
+        }
+
+        node1Ids[linkCount] = node1Id;
+        node2Ids[linkCount] = node2Id;
+        typeIds[linkCount] = typeId;
+        linkCount++;
+
+        // An upper bound of the distinct neighbors, repeated links and several types count more than once
+        degrees[node1Id]++;
+        if(node1Id != node2Id)
+            degrees[node2Id]++;
+
+        return this;
+    }
+
+    public GraphBuilder<NodeType, LinkType> addLinks(Iterator<GraphEdge<NodeType, LinkType>> edges){
+        while(edges.hasNext()){
+            var edge = edges.next();
+            addLink(edge.node1(), edge.node2(), edge.type());
+        }
+
+        return this;
+    }
+
+    public GraphBuilder<NodeType, LinkType> readEdgeList(Path path, Function<String, NodeType> nodeParser, Function<String, LinkType> linkTypeParser) throws IOException{
+        try(var reader = Files.newBufferedReader(path)){
+            return readEdgeList(reader, nodeParser, linkTypeParser);
+        }
+    }
+
+    // One link per line as "node1 node2 linkType" separated by whitespace, a line with a single node adds it
+    // without links. Blank lines and lines starting with # are skipped. Leaves reader open.
+    public GraphBuilder<NodeType, LinkType> readEdgeList(BufferedReader reader, Function<String, NodeType> nodeParser, Function<String, LinkType> linkTypeParser) throws IOException{
+        int lineNumber = 0;
+
+        for(String line = reader.readLine(); line != null; line = reader.readLine()){
+            lineNumber++;
+            line = line.strip();
+
+            if(line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            var fields = WHITESPACE.split(line);
+
+            try{
+                switch(fields.length){
+                    case 1 -> addNode(new GraphNode<>(nodeParser.apply(fields[0])));
+                    case 3 -> addLink(new GraphNode<>(nodeParser.apply(fields[0])), new GraphNode<>(nodeParser.apply(fields[1])), linkTypeParser.apply(fields[2]));
+                    default -> throw new IOException("Line " + lineNumber + ": expected a node or node1 node2 linkType, got " + fields.length + " fields");
+                }
+            }
+            // Whatever the parsers throw on a bad value
+            catch(RuntimeException e){
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+
+        return this;
+    }
+
+    public int nodeCount(){
+        return nodeIds.size();
+    }
+
+    public int linkCount(){
+        return linkCount;
+    }
+
+    public int countComponents(){
+        return labelComponents(new int[nodeIds.size()]);
+    }
+
+    // The whole edge list as one graph, empty if there are no nodes or they are not all connected
+    public Optional<Graph<NodeType, LinkType>> build(){
+        int nodeCount = nodeIds.size();
+
+        if(nodeCount == 0 || countComponents() != 1)
+            return Optional.empty();
+
+        Graph<NodeType, LinkType> graph = Graph.withCapacity(nodeCount);
+
+        for(int id = 0; id < nodeCount; id++)
+            graph.putNode_unsafe(nodes[id], degrees[id]);
+
+        for(int i = 0; i < linkCount; i++)
+            graph.putLink_unsafe(nodes[node1Ids[i]], nodes[node2Ids[i]], linkTypes.get(typeIds[i]));
+
+        return Optional.of(graph);
+    }
+
+    // One graph per connected component, largest first
+    public List<Graph<NodeType, LinkType>> buildComponents(){
+        int nodeCount = nodeIds.size();
+        int[] componentOfNode = new int[nodeCount];
+        int componentCount = labelComponents(componentOfNode);
+
+        int[] componentSizes = new int[componentCount];
+        for(int id = 0; id < nodeCount; id++)
+            componentSizes[componentOfNode[id]]++;
+
+        List<Graph<NodeType, LinkType>> components = new ArrayList<>(componentCount);
+        for(int component = 0; component < componentCount; component++)
+            components.add(Graph.withCapacity(componentSizes[component]));
+
+        for(int id = 0; id < nodeCount; id++)
+            components.get(componentOfNode[id]).putNode_unsafe(nodes[id], degrees[id]);
+
+        // Both ends of a link are in the same component
+        for(int i = 0; i < linkCount; i++)
+            components.get(componentOfNode[node1Ids[i]]).putLink_unsafe(nodes[node1Ids[i]], nodes[node2Ids[i]], linkTypes.get(typeIds[i]));
+
+        components.sort(Comparator.comparingInt(Graph<NodeType, LinkType>::size).reversed());
+
+        return components;
+    }
+
+    // Fills componentOfNode with component numbers 0..count-1 and returns the count
+    private int labelComponents(int[] componentOfNode){
+        int nodeCount = componentOfNode.length;
+        ConcurrentUnionFind components = new ConcurrentUnionFind(nodeCount);
+
+        for(int i = 0; i < linkCount; i++)
+            components.union(node1Ids[i], node2Ids[i]);
+
+        // Roots are the smallest id of their component, so every root is numbered before its members look it up
+        int componentCount = 0;
+
+        for(int id = 0; id < nodeCount; id++){
+            int root = components.find(id);
+            componentOfNode[id] = root == id ? componentCount++ : componentOfNode[root];
+        }
+
+        return componentCount;
+    }
+
+    private int idOf(GraphNode<NodeType> node){
+        int id = nodeIds.get(node);
+
+        if(id != NodeIndex.MISSING)
+            return id;
+
+        id = nodeIds.size();
+
+        if(id == nodes.length){
+            nodes = Arrays.copyOf(nodes, id * 2);
+            degrees = Arrays.copyOf(degrees, id * 2);
+        }
+
+        nodeIds.put(node, id);
+        nodes[id] = node;
+
+        return id;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <NodeType> GraphNode<NodeType>[] newNodeArray(int capacity){
+        return (GraphNode<NodeType>[]) new GraphNode[capacity];
+    }
+}
@@ -0,0 +1,80 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Turns node data or link types into bytes for GraphSerializer. decode reads from a big endian buffer, which
+// is what DataOutput writes, and must leave the buffer right after the value it decoded.
+public interface GraphCodec<T> {
+    void encode(T value, DataOutput out) throws IOException;
+
+    T decode(ByteBuffer in);
+
+    static GraphCodec<Integer> integers(){
+        return new GraphCodec<>(){
+            @Override
+            public void encode(Integer value, DataOutput out) throws IOException{
+                out.writeInt(value);
+            }
+
+            @Override
+            public Integer decode(ByteBuffer in){
+                return in.getInt();
+            }
+        };
+    }
+
+    static GraphCodec<Long> longs(){
+        return new GraphCodec<>(){
+            @Override
+            public void encode(Long value, DataOutput out) throws IOException{
+                out.writeLong(value);
+            }
+
+            @Override
+            public Long decode(ByteBuffer in){
+                return in.getLong();
+            }
+        };
+    }
+
+    // Length prefixed UTF-8, unlike DataOutput.writeUTF not limited to 64KB
+    static GraphCodec<String> strings(){
+        return new GraphCodec<>(){
+            @Override
+            public void encode(String value, DataOutput out) throws IOException{
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            @Override
+            public String decode(ByteBuffer in){
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    // By ordinal, so reordering the constants breaks files written before
+    static <E extends Enum<E>> GraphCodec<E> enums(Class<E> enumType){
+        E[] constants = enumType.getEnumConstants();
+
+        return new GraphCodec<>(){
+            @Override
+            public void encode(E value, DataOutput out) throws IOException{
+                out.writeInt(value.ordinal());
+            }
+
+            @Override
+            public E decode(ByteBuffer in){
+                return constants[in.getInt()];
+            }
+        };
+    }
+}
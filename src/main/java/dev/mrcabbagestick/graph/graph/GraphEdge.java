@@ -0,0 +1,3 @@
+package dev.mrcabbagestick.graph.graph;
+
+public record GraphEdge<NodeType, LinkType>(GraphNode<NodeType> node1, GraphNode<NodeType> node2, LinkType type){}
@@ -0,0 +1,22 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.Set;
+
+// Changes published by Graph to its subscribers, see Graph.subscribe
+public sealed interface GraphEvent<NodeType, LinkType> {
+    record NodeAdded<NodeType, LinkType>(GraphNode<NodeType> node) implements GraphEvent<NodeType, LinkType>{}
+
+    // The node went away together with all of its links, no LinkRemoved is published for them
+    record NodeRemoved<NodeType, LinkType>(GraphNode<NodeType> node) implements GraphEvent<NodeType, LinkType>{}
+
+    record LinkAdded<NodeType, LinkType>(GraphNode<NodeType> node1, GraphNode<NodeType> node2, LinkType type) implements GraphEvent<NodeType, LinkType>{}
+
+    record LinkRemoved<NodeType, LinkType>(GraphNode<NodeType> node1, GraphNode<NodeType> node2, LinkType type) implements GraphEvent<NodeType, LinkType>{}
+
+    // The nodes moved from the graph to newGraph, along with their links
+    record Split<NodeType, LinkType>(Graph<NodeType, LinkType> newGraph, Set<GraphNode<NodeType>> nodes) implements GraphEvent<NodeType, LinkType>{}
+
+    // Published to both graphs: every node of absorbed moved to survivor, joined by a new link between
+    // survivorNode and absorbedNode
+    record Merged<NodeType, LinkType>(Graph<NodeType, LinkType> survivor, Graph<NodeType, LinkType> absorbed, GraphNode<NodeType> survivorNode, GraphNode<NodeType> absorbedNode, LinkType linkType) implements GraphEvent<NodeType, LinkType>{}
+}
@@ -0,0 +1,259 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.function.Function;
+
+// Streams a Graph as text through a fixed size buffer, so output of any size takes a bounded amount of memory
+// and reaches the destination in large writes. Every link is written once, from its end that comes first.
+//
+//   DOT        graph { "a"; "b"; "a" -- "b" [label="type"]; }, one statement per line
+//   EDGE_LIST  "node1 node2 linkType" per line and "node" for nodes without links, as GraphBuilder.readEdgeList
+//              reads it back; labels must not contain whitespace then
+//   JSON       {"nodes":["a","b"],"links":[{"source":"a","target":"b","type":"type"}]}
+//
+// Node data and link types are turned into labels by the given functions, String.valueOf by default.
+public final class GraphExporter<NodeType, LinkType> {
+    public enum Format {
+        DOT,
+        EDGE_LIST,
+        JSON
+    }
+
+    private static final int DEFAULT_BUFFER_CHARS = 1 << 16;
+
+    private final Format format;
+    private final Function<? super NodeType, String> nodeLabel;
+    private final Function<? super LinkType, String> linkTypeLabel;
+    private final Set<GraphNode<NodeType>> onlyNodes;
+    private final int bufferChars;
+
+    public GraphExporter(Format format){
+        this(format, String::valueOf, String::valueOf);
+    }
+
+    public GraphExporter(Format format, Function<? super NodeType, String> nodeLabel, Function<? super LinkType, String> linkTypeLabel){
+        this(format, nodeLabel, linkTypeLabel, null, DEFAULT_BUFFER_CHARS);
+    }
+
+    // Small buffers let tests see the flushing without megabytes of output
+    GraphExporter(Format format, Function<? super NodeType, String> nodeLabel, Function<? super LinkType, String> linkTypeLabel, Set<GraphNode<NodeType>> onlyNodes, int bufferChars){
+        this.format = format;
+        this.nodeLabel = nodeLabel;
+        this.linkTypeLabel = linkTypeLabel;
+        this.onlyNodes = onlyNodes;
+        this.bufferChars = bufferChars;
+    }
+
+    // Same exporter, but only for the given nodes and the links between them, e.g. one of connectedComponents.
+    // Nodes that are not in the graph are left out.
+    public GraphExporter<NodeType, LinkType> restrictedTo(Set<GraphNode<NodeType>> nodes){
+        return new GraphExporter<>(format, nodeLabel, linkTypeLabel, nodes, bufferChars);
+    }
+
+    public void write(Graph<NodeType, LinkType> graph, Path path) throws IOException{
+        try(var out = Files.newBufferedWriter(path)){
+            write(graph, out);
+        }
+    }
+
+    // UTF-8, leaves out open
+    public void write(Graph<NodeType, LinkType> graph, OutputStream out) throws IOException{
+        var writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        write(graph, writer);
+        writer.flush();
+    }
+
+    // UTF-8, leaves channel open
+    public void write(Graph<NodeType, LinkType> graph, WritableByteChannel channel) throws IOException{
+        var writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        write(graph, writer);
+        writer.flush();
+    }
+
+    // Leaves out open
+    public void write(Graph<NodeType, LinkType> graph, Writer out) throws IOException{
+        var nodes = onlyNodes == null ? graph.getNodes() : onlyNodes;
+        var text = new TextBuffer(out, bufferChars);
+
+        // Labels are made once per node, ids decide which end of a link writes it
+        NodeIndex<NodeType> nodeIds = new NodeIndex<>(nodes.size());
+        String[] labels = new String[nodes.size()];
+
+        for(var node : nodes){
+            // restrictedTo may name nodes this graph does not have, e.g. ones of another component's graph. They
+            // get no id, and everything below skips nodes and links without one.
+            if(!graph.getNodes().contains(node))
+                continue;
+
+            labels[nodeIds.size()] = checkedLabel(nodeLabel.apply(node.data()));
+            nodeIds.put(node, nodeIds.size());
+        }
+
+        switch(format){
+            case DOT -> text.append("graph {\n");
+            case JSON -> text.append("{\"nodes\":[");
+            case EDGE_LIST -> {}
+        }
+
+        boolean first = true;
+
+        for(var node : nodes){
+            int nodeId = nodeIds.get(node);
+            if(nodeId == NodeIndex.MISSING)
+                continue;
+
+            switch(format){
+                case DOT -> text.append("  ").appendQuoted(labels[nodeId], false).append(";\n");
+                case JSON -> {
+                    if(!first)
+                        text.append(',');
+                    text.appendQuoted(labels[nodeId], true);
+                }
+                case EDGE_LIST -> {
+                    if(!hasExportedLinks(graph, node, nodeIds))
+                        text.append(labels[nodeId]).append('\n');
+                }
+            }
+
+            first = false;
+        }
+
+        if(format == Format.JSON)
+            text.append("],\"links\":[");
+
+        first = true;
+
+        for(var node : nodes){
+            int nodeId = nodeIds.get(node);
+            if(nodeId == NodeIndex.MISSING)
+                continue;
+
+            for(var entry : graph.getNeighbors(node).entrySet()){
+                int neighborId = nodeIds.get(entry.getKey());
+
+                if(neighborId < nodeId)
+                    continue;
+
+                for(var linkType : entry.getValue()){
+                    String typeLabel = checkedLabel(linkTypeLabel.apply(linkType));
+
+                    switch(format){
+                        case DOT -> text.append("  ").appendQuoted(labels[nodeId], false).append(" -- ").appendQuoted(labels[neighborId], false)
+                                .append(" [label=").appendQuoted(typeLabel, false).append("];\n");
+                        case JSON -> {
+                            if(!first)
+                                text.append(',');
+                            text.append("{\"source\":").appendQuoted(labels[nodeId], true)
+                                    .append(",\"target\":").appendQuoted(labels[neighborId], true)
+                                    .append(",\"type\":").appendQuoted(typeLabel, true).append('}');
+                        }
+                        case EDGE_LIST -> text.append(labels[nodeId]).append(' ').append(labels[neighborId]).append(' ').append(typeLabel).append('\n');
+                    }
+
+                    first = false;
+                }
+            }
+        }
+
+        switch(format){
+            case DOT -> text.append("}\n");
+            case JSON -> text.append("]}\n");
+            case EDGE_LIST -> {}
+        }
+
+        text.flush();
+    }
+
+    private boolean hasExportedLinks(Graph<NodeType, LinkType> graph, GraphNode<NodeType> node, NodeIndex<NodeType> nodeIds){
+        for(var neighbor : graph.getNeighbors(node).keySet()){
+            if(nodeIds.get(neighbor) != NodeIndex.MISSING)
+                return true;
+        }
+
+        return false;
+    }
+
+    // An edge list is split on whitespace when read back, so a label containing any would not survive
+    private String checkedLabel(String label) throws IOException{
+        if(format != Format.EDGE_LIST)
+            return label;
+
+        if(label.isEmpty() || label.startsWith("#") || label.chars().anyMatch(Character::isWhitespace))
+            throw new IOException("Edge list labels must be non-empty, without whitespace and not start with #, got \"" + label + "\"");
+
+        return label;
+    }
+
+    // Collects output in a char array and hands it to the writer whenever the array is full
+    private static final class TextBuffer {
+        private final Writer out;
+        private final char[] buffer;
+        private int length;
+
+        private TextBuffer(Writer out, int capacity){
+            this.out = out;
+            this.buffer = new char[capacity];
+        }
+
+        private TextBuffer append(char c) throws IOException{
+            if(length == buffer.length)
+                flush();
+
+            buffer[length++] = c;
+            return this;
+        }
+
+        private TextBuffer append(String text) throws IOException{
+            int offset = 0;
+
+            while(offset < text.length()){
+                if(length == buffer.length)
+                    flush();
+
+                int count = Math.min(text.length() - offset, buffer.length - length);
+                text.getChars(offset, offset + count, buffer, length);
+
+                length += count;
+                offset += count;
+            }
+
+            return this;
+        }
+
+        // Quoted string, escaped for JSON or for DOT
+        private TextBuffer appendQuoted(String text, boolean json) throws IOException{
+            append('"');
+
+            for(int i = 0; i < text.length(); i++){
+                char c = text.charAt(i);
+
+                switch(c){
+                    case '"' -> append('\\').append('"');
+                    case '\\' -> append('\\').append('\\');
+                    case '\n' -> append('\\').append('n');
+                    case '\r' -> append('\\').append('r');
+                    case '\t' -> append(json ? "\\t" : "\t");
+                    default -> {
+                        if(json && c < 0x20)
+                            append(String.format("\\u%04x", (int) c));
+                        else
+                            append(c);
+                    }
+                }
+            }
+
+            return append('"');
+        }
+
+        private void flush() throws IOException{
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.*;
+
+// Owns a set of disjoint Graphs and keeps an index from every node to the Graph it is in, so finding a node's
+// component or checking whether two nodes are connected is a single lookup. Splits and merges go through the
+// forest, which keeps the index up to date by relabeling only the nodes that changed component: the split off
+// side (the smaller one for link removals) or the smaller of two merged graphs.
+// Graphs handed out by the forest must not be modified directly, that would leave the index stale.
+public class GraphForest<NodeType, LinkType> {
+    private final Set<Graph<NodeType, LinkType>> components = new HashSet<>();
+    private final Map<GraphNode<NodeType>, Graph<NodeType, LinkType>> componentOfNode = new HashMap<>();
+
+    public Optional<Graph<NodeType, LinkType>> addComponent(GraphNode<NodeType> firstNode){
+        if(componentOfNode.containsKey(firstNode))
+            return Optional.empty();
+
+        Graph<NodeType, LinkType> component = new Graph<>(firstNode);
+
+        components.add(component);
+        componentOfNode.put(firstNode, component);
+
+        return Optional.of(component);
+    }
+
+    // Takes ownership of an existing graph, fails if it shares a node with the forest
+    public boolean addComponent(Graph<NodeType, LinkType> component){
+        if(!component.canExist() || components.contains(component))
+            return false;
+
+        for(var node : component.getNodes()){
+            if(componentOfNode.containsKey(node))
+                return false;
+        }
+
+        components.add(component);
+        relabel(component.getNodes(), component);
+
+        return true;
+    }
+
+    public boolean addNode(GraphNode<NodeType> node, GraphNode<NodeType> connectedTo, LinkType linkType){
+        var component = componentOfNode.get(connectedTo);
+
+        if(component == null || componentOfNode.containsKey(node) || !component.addNode(node, connectedTo, linkType))
+            return false;
+
+        componentOfNode.put(node, component);
+
+        return true;
+    }
+
+    // Links two nodes, merging their components if they were in different ones
+    public boolean addLink(GraphNode<NodeType> node1, GraphNode<NodeType> node2, LinkType linkType){
+        var component1 = componentOfNode.get(node1);
+        var component2 = componentOfNode.get(node2);
+
+        if(component1 == null || component2 == null)
+            return false;
+
+        if(component1 == component2)
+            return component1.addLink(node1, node2, linkType);
+
+        // Merging into the larger graph keeps it as the survivor, so only the smaller one's nodes change component
+        if(component1.size() >= component2.size())
+            merge(component1, node1, component2, node2, linkType);
+        else
+            merge(component2, node2, component1, node1, linkType);
+
+        return true;
+    }
+
+    private void merge(Graph<NodeType, LinkType> larger, GraphNode<NodeType> largerNode, Graph<NodeType, LinkType> smaller, GraphNode<NodeType> smallerNode, LinkType linkType){
+        var movedNodes = new ArrayList<>(smaller.getNodes());
+
+        var survivor = larger.mergeWith(largerNode, smaller, smallerNode, linkType);
+
+        components.remove(smaller);
+        relabel(movedNodes, survivor);
+    }
+
+    public boolean removeConnection(GraphNode<NodeType> node1, GraphNode<NodeType> node2){
+        var component = componentOfNode.get(node1);
+
+        if(component == null || component != componentOfNode.get(node2))
+            return false;
+
+        component.removeConnectionAndSplit(node1, node2).ifPresent(this::registerSplitOff);
+
+        return true;
+    }
+
+    public boolean removeNode(GraphNode<NodeType> node){
+        var component = componentOfNode.remove(node);
+
+        if(component == null)
+            return false;
+
+        component.removeNodeAndSplit(node).ifPresent(newComponents -> newComponents.forEach(this::registerSplitOff));
+
+        if(!component.canExist())
+            components.remove(component);
+
+        return true;
+    }
+
+    private void registerSplitOff(Graph<NodeType, LinkType> newComponent){
+        components.add(newComponent);
+        relabel(newComponent.getNodes(), newComponent);
+    }
+
+    private void relabel(Collection<GraphNode<NodeType>> nodes, Graph<NodeType, LinkType> component){
+        for(var node : nodes)
+            componentOfNode.put(node, component);
+    }
+
+    public Optional<Graph<NodeType, LinkType>> getComponent(GraphNode<NodeType> node){
+        return Optional.ofNullable(componentOfNode.get(node));
+    }
+
+    public boolean areConnected(GraphNode<NodeType> node1, GraphNode<NodeType> node2){
+        var component = componentOfNode.get(node1);
+        return component != null && component == componentOfNode.get(node2);
+    }
+
+    public boolean contains(GraphNode<NodeType> node){
+        return componentOfNode.containsKey(node);
+    }
+
+    public Set<Graph<NodeType, LinkType>> getComponents(){
+        return Collections.unmodifiableSet(components);
+    }
+
+    public int nodeCount(){
+        return componentOfNode.size();
+    }
+}
@@ -0,0 +1,10 @@
+package dev.mrcabbagestick.graph.graph;
+
+// Receives the stats of every operation of an instrumented graph, on the thread that ran it
+@FunctionalInterface
+public interface GraphMetrics {
+    void operationCompleted(GraphOperationStats stats);
+
+    // For graphs that should only produce Flight Recorder events
+    GraphMetrics NONE = stats -> {};
+}
@@ -1,3 +1,39 @@
 package dev.mrcabbagestick.graph.graph;
 
-public record GraphNode<T>(T data){}
+import java.util.Objects;
+
+// Equal when the data is equal, like the record it used to be, but the hash of the data is computed once when
+// the node is created: every map and set in the graphs hashes nodes on each lookup. Two nodes only compare their
+// data when the hashes match, and not even then if they are the same instance, which is always the case for
+// nodes taken from a NodeInterner. The data must not change in a way that changes its hash.
+public final class GraphNode<T> {
+    private final T data;
+    private final int hash;
+
+    public GraphNode(T data){
+        this.data = data;
+        this.hash = Objects.hashCode(data);
+    }
+
+    public T data(){
+        return data;
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if(this == other)
+            return true;
+
+        return other instanceof GraphNode<?> otherNode && hash == otherNode.hash && Objects.equals(data, otherNode.data);
+    }
+
+    @Override
+    public int hashCode(){
+        return hash;
+    }
+
+    @Override
+    public String toString(){
+        return "GraphNode[data=" + data + "]";
+    }
+}
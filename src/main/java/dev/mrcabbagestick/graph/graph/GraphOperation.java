@@ -0,0 +1,16 @@
+package dev.mrcabbagestick.graph.graph;
+
+// The Graph operations timed and counted once instrumentation is enabled, see Graph.enableInstrumentation
+public enum GraphOperation {
+    ADD_NODE,
+    ADD_LINK,
+    REMOVE_CONNECTION_AND_SPLIT,
+    REMOVE_NODE_AND_SPLIT,
+    MERGE_WITH,
+    SPLIT_INTO_COMPONENTS,
+    CONNECTED_COMPONENTS,
+    GET_CONNECTED_NODES,
+    IS_CONNECTED,
+    IS_REACHABLE,
+    BATCH_COMMIT
+}
@@ -0,0 +1,32 @@
+package dev.mrcabbagestick.graph.graph;
+
+import jdk.jfr.*;
+
+// Flight Recorder view of GraphOperationStats, recorded for instrumented graphs while a recording has
+// dev.mrcabbagestick.graph.GraphOperation enabled
+@Name("dev.mrcabbagestick.graph.GraphOperation")
+@Label("Graph Operation")
+@Category("Graph")
+@Description("A timed operation on an instrumented Graph")
+final class GraphOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Graph Size")
+    int graphSize;
+
+    @Label("Nodes Visited")
+    long nodesVisited;
+
+    @Label("Links Visited")
+    long linksVisited;
+
+    @Label("New Graphs")
+    int newGraphs;
+
+    @Label("Largest New Graph")
+    int largestNewGraph;
+
+    @Label("Nodes Moved")
+    int nodesMoved;
+}
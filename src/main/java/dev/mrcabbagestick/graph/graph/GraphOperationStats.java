@@ -0,0 +1,15 @@
+package dev.mrcabbagestick.graph.graph;
+
+// What a single instrumented operation did. graphSize is the node count before it ran, nodesVisited and
+// linksVisited count the work of its walks (a link is counted from each end it was looked at). newGraphs is the
+// number of graphs split off, nodesMoved the nodes copied into them or, for a merge, out of the smaller graph.
+public record GraphOperationStats(
+        GraphOperation operation,
+        long durationNanos,
+        int graphSize,
+        long nodesVisited,
+        long linksVisited,
+        int newGraphs,
+        int largestNewGraph,
+        int nodesMoved
+){}
@@ -0,0 +1,20 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Path from start along links, each GraphLink holds the node it leads to and the type of the link taken
+public record GraphPath<NodeType, LinkType>(GraphNode<NodeType> start, List<GraphLink<NodeType, LinkType>> links, double cost){
+    public GraphNode<NodeType> end(){
+        return links.isEmpty() ? start : links.get(links.size() - 1).node();
+    }
+
+    public List<GraphNode<NodeType>> nodes(){
+        List<GraphNode<NodeType>> nodes = new ArrayList<>(links.size() + 1);
+
+        nodes.add(start);
+        links.forEach(link -> nodes.add(link.node()));
+
+        return nodes;
+    }
+}
@@ -0,0 +1,330 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+// Cheapest paths through a Graph, the cost of a link comes from its type. Between two nodes linked with several
+// types the cheapest one is used, links of infinite cost are left out.
+// On the first query the links are copied into a compressed index: dense int ids, one array of neighbor ids and
+// one of costs. It is built again when the graph changed since, see Graph.getModificationEpoch, so queries on an
+// unchanged graph only walk primitive arrays. Search state is kept between queries and is reset by bumping an
+// epoch instead of clearing it. Not thread safe, use one router per thread.
+public final class GraphRouter<NodeType, LinkType> {
+    private final Graph<NodeType, LinkType> graph;
+    private final ToDoubleFunction<LinkType> linkCost;
+
+    private long indexedEpoch = -1;
+    private NodeIndex<NodeType> nodeIds;
+    private GraphNode<NodeType>[] nodes;
+
+    // The links of node id are linkStarts[id] until linkStarts[id + 1]
+    private int[] linkStarts;
+    private int[] linkTargets;
+    private double[] linkCosts;
+    private Object[] linkTypes;
+
+    private Search forward;
+    private Search backward;
+    private int searchEpoch;
+    private int[] targetMarks;
+
+    public GraphRouter(Graph<NodeType, LinkType> graph, ToDoubleFunction<LinkType> linkCost){
+        this.graph = graph;
+        this.linkCost = linkCost;
+    }
+
+    // Bidirectional Dijkstra: searches from both ends at once, always growing the side with the shorter queue,
+    // and stops as soon as no path through the unsettled nodes can beat the best meeting found
+    public Optional<GraphPath<NodeType, LinkType>> shortestPath(GraphNode<NodeType> from, GraphNode<NodeType> to){
+        ensureIndex();
+
+        int fromId = nodeIds.get(from);
+        int toId = nodeIds.get(to);
+
+        if(fromId == NodeIndex.MISSING || toId == NodeIndex.MISSING)
+            return Optional.empty();
+        if(fromId == toId)
+            return Optional.of(new GraphPath<>(from, List.of(), 0));
+
+        int epoch = nextSearchEpoch();
+        forward.start(fromId, 0, epoch);
+        backward.start(toId, 0, epoch);
+
+        double bestCost = Double.POSITIVE_INFINITY;
+        int meetingForward = -1;
+        int meetingBackward = -1;
+        int meetingLink = -1;
+
+        while(!forward.queue.isEmpty() && !backward.queue.isEmpty()){
+            if(forward.queue.minPriority() + backward.queue.minPriority() >= bestCost)
+                break;
+
+            boolean forwardStep = forward.queue.size() <= backward.queue.size();
+            var search = forwardStep ? forward : backward;
+            var otherSearch = forwardStep ? backward : forward;
+
+            int nodeId = search.queue.pollMin();
+            double nodeDistance = search.distances[nodeId];
+
+            for(int link = linkStarts[nodeId]; link < linkStarts[nodeId + 1]; link++){
+                int neighborId = linkTargets[link];
+                double distance = nodeDistance + linkCosts[link];
+
+                search.relax(neighborId, distance, distance, nodeId, link, epoch);
+
+                if(otherSearch.isReached(neighborId, epoch) && distance + otherSearch.distances[neighborId] < bestCost){
+                    bestCost = distance + otherSearch.distances[neighborId];
+                    meetingForward = forwardStep ? nodeId : neighborId;
+                    meetingBackward = forwardStep ? neighborId : nodeId;
+                    meetingLink = link;
+                }
+            }
+        }
+
+        forward.queue.clear();
+        backward.queue.clear();
+
+        if(meetingLink < 0)
+            return Optional.empty();
+
+        List<GraphLink<NodeType, LinkType>> links = forward.linksTo(meetingForward);
+        links.add(new GraphLink<>(nodes[meetingBackward], linkTypeOf(meetingLink)));
+
+        // Backward parents point towards the target, the links between them are the same in both directions
+        for(int nodeId = meetingBackward; nodeId != toId; nodeId = backward.parents[nodeId])
+            links.add(new GraphLink<>(nodes[backward.parents[nodeId]], linkTypeOf(backward.parentLinks[nodeId])));
+
+        return Optional.of(new GraphPath<>(from, links, bestCost));
+    }
+
+    // A*: remainingCostEstimate gives a lower bound of the cost from a node to the target. It is not required
+    // to be consistent, nodes reached again at a lower cost are searched again.
+    public Optional<GraphPath<NodeType, LinkType>> shortestPath(GraphNode<NodeType> from, GraphNode<NodeType> to, ToDoubleFunction<GraphNode<NodeType>> remainingCostEstimate){
+        ensureIndex();
+
+        int fromId = nodeIds.get(from);
+        int toId = nodeIds.get(to);
+
+        if(fromId == NodeIndex.MISSING || toId == NodeIndex.MISSING)
+            return Optional.empty();
+
+        int epoch = nextSearchEpoch();
+        forward.start(fromId, remainingCostEstimate.applyAsDouble(from), epoch);
+
+        try{
+            while(!forward.queue.isEmpty()){
+                int nodeId = forward.queue.pollMin();
+
+                if(nodeId == toId)
+                    return Optional.of(new GraphPath<>(from, forward.linksTo(toId), forward.distances[toId]));
+
+                double nodeDistance = forward.distances[nodeId];
+
+                for(int link = linkStarts[nodeId]; link < linkStarts[nodeId + 1]; link++){
+                    int neighborId = linkTargets[link];
+                    double distance = nodeDistance + linkCosts[link];
+
+                    if(distance < forward.distanceTo(neighborId, epoch))
+                        forward.relax(neighborId, distance, distance + remainingCostEstimate.applyAsDouble(nodes[neighborId]), nodeId, link, epoch);
+                }
+            }
+
+            return Optional.empty();
+        }
+        finally{
+            forward.queue.clear();
+        }
+    }
+
+    // Costs of the cheapest paths from one node to many in a single Dijkstra run, which stops once every target
+    // is settled. Unreachable targets are left out.
+    public Map<GraphNode<NodeType>, Double> distances(GraphNode<NodeType> from, Collection<GraphNode<NodeType>> targets){
+        ensureIndex();
+
+        Map<GraphNode<NodeType>, Double> distances = HashMap.newHashMap(targets.size());
+        int fromId = nodeIds.get(from);
+
+        if(fromId == NodeIndex.MISSING)
+            return distances;
+
+        int epoch = nextSearchEpoch();
+        int targetsLeft = 0;
+
+        for(var target : targets){
+            int targetId = nodeIds.get(target);
+
+            if(targetId != NodeIndex.MISSING && targetMarks[targetId] != epoch){
+                targetMarks[targetId] = epoch;
+                targetsLeft++;
+            }
+        }
+
+        forward.start(fromId, 0, epoch);
+
+        while(targetsLeft > 0 && !forward.queue.isEmpty()){
+            int nodeId = forward.queue.pollMin();
+            double nodeDistance = forward.distances[nodeId];
+
+            if(targetMarks[nodeId] == epoch){
+                distances.put(nodes[nodeId], nodeDistance);
+                targetsLeft--;
+            }
+
+            for(int link = linkStarts[nodeId]; link < linkStarts[nodeId + 1]; link++)
+                forward.relax(linkTargets[link], nodeDistance + linkCosts[link], nodeDistance + linkCosts[link], nodeId, link, epoch);
+        }
+
+        forward.queue.clear();
+
+        return distances;
+    }
+
+    @SuppressWarnings("unchecked")
+    private LinkType linkTypeOf(int link){
+        return (LinkType) linkTypes[link];
+    }
+
+    private void ensureIndex(){
+        if(indexedEpoch == graph.getModificationEpoch())
+            return;
+
+        var graphNodes = graph.getNodes();
+        int nodeCount = graphNodes.size();
+
+        nodeIds = new NodeIndex<>(nodeCount);
+        nodes = graphNodes.toArray(newNodeArray(nodeCount));
+
+        int linkCapacity = 0;
+        for(int id = 0; id < nodeCount; id++){
+            nodeIds.put(nodes[id], id);
+            linkCapacity += graph.getNeighbors(nodes[id]).size();
+        }
+
+        linkStarts = new int[nodeCount + 1];
+        linkTargets = new int[linkCapacity];
+        linkCosts = new double[linkCapacity];
+        linkTypes = new Object[linkCapacity];
+
+        int linkCount = 0;
+
+        for(int id = 0; id < nodeCount; id++){
+            linkStarts[id] = linkCount;
+
+            for(var entry : graph.getNeighbors(nodes[id]).entrySet()){
+                int neighborId = nodeIds.get(entry.getKey());
+
+                // A self link never makes a path cheaper
+                if(neighborId == id)
+                    continue;
+
+                LinkType cheapestType = null;
+                double cheapestCost = Double.POSITIVE_INFINITY;
+
+                for(var linkType : entry.getValue()){
+                    double cost = linkCost.applyAsDouble(linkType);
+
+                    if(!(cost >= 0))
+                        throw new IllegalArgumentException("Link costs must be non-negative, got " + cost + " for " + linkType);
+
+                    if(cost < cheapestCost){
+                        cheapestCost = cost;
+                        cheapestType = linkType;
+                    }
+                }
+
+                if(cheapestCost == Double.POSITIVE_INFINITY)
+                    continue;
+
+                linkTargets[linkCount] = neighborId;
+                linkCosts[linkCount] = cheapestCost;
+                linkTypes[linkCount] = cheapestType;
+                linkCount++;
+            }
+        }
+        linkStarts[nodeCount] = linkCount;
+
+        if(forward == null || forward.distances.length < nodeCount){
+            forward = new Search(nodeCount);
+            backward = new Search(nodeCount);
+            targetMarks = new int[nodeCount];
+            searchEpoch = 0;
+        }
+
+        indexedEpoch = graph.getModificationEpoch();
+    }
+
+    private int nextSearchEpoch(){
+        if(searchEpoch == Integer.MAX_VALUE){
+            forward.forget();
+            backward.forget();
+            Arrays.fill(targetMarks, 0);
+            searchEpoch = 0;
+        }
+
+        return ++searchEpoch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <NodeType> GraphNode<NodeType>[] newNodeArray(int length){
+        return (GraphNode<NodeType>[]) new GraphNode[length];
+    }
+
+    // One direction of a search, a distance is only valid when its reachedMarks entry is the current epoch
+    private final class Search {
+        private final double[] distances;
+        private final int[] reachedMarks;
+        private final int[] parents;
+        private final int[] parentLinks;
+        private final IndexedMinHeap queue;
+
+        private Search(int capacity){
+            distances = new double[capacity];
+            reachedMarks = new int[capacity];
+            parents = new int[capacity];
+            parentLinks = new int[capacity];
+            queue = new IndexedMinHeap(capacity);
+        }
+
+        private void start(int nodeId, double priority, int epoch){
+            distances[nodeId] = 0;
+            reachedMarks[nodeId] = epoch;
+            parents[nodeId] = -1;
+            queue.insertOrDecrease(nodeId, priority);
+        }
+
+        private boolean isReached(int nodeId, int epoch){
+            return reachedMarks[nodeId] == epoch;
+        }
+
+        private double distanceTo(int nodeId, int epoch){
+            return reachedMarks[nodeId] == epoch ? distances[nodeId] : Double.POSITIVE_INFINITY;
+        }
+
+        private void relax(int nodeId, double distance, double priority, int parent, int parentLink, int epoch){
+            if(reachedMarks[nodeId] == epoch && distances[nodeId] <= distance)
+                return;
+
+            distances[nodeId] = distance;
+            reachedMarks[nodeId] = epoch;
+            parents[nodeId] = parent;
+            parentLinks[nodeId] = parentLink;
+            queue.insertOrDecrease(nodeId, priority);
+        }
+
+        // Links from the start of this search to nodeId, in path order
+        private List<GraphLink<NodeType, LinkType>> linksTo(int nodeId){
+            List<GraphLink<NodeType, LinkType>> links = new ArrayList<>();
+
+            for(; parents[nodeId] != -1; nodeId = parents[nodeId])
+                links.add(new GraphLink<>(nodes[nodeId], linkTypeOf(parentLinks[nodeId])));
+
+            Collections.reverse(links);
+
+            return links;
+        }
+
+        private void forget(){
+            Arrays.fill(reachedMarks, 0);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Versioned binary format for Graph, node data and link types are written by the given codecs.
+//
+//   header      int magic, int version, int nodeCount
+//   nodes       blocks of (int neighborCount, node data), numbered in file order
+//   link types  one block of link type values, numbered in file order
+//   links       long linkCount, then blocks of int[] node1, int[] node2, int[] linkType
+//
+// A value block is int byteLength, int count and the values, a link block is int count and the three arrays.
+// Every link is written once. Files are read through memory mapped windows: a block is decoded straight from
+// the mapping, link arrays are copied out in bulk and each node's neighbor map is sized from its neighborCount,
+// so loading never resizes anything.
+public final class GraphSerializer<NodeType, LinkType> {
+    private static final int MAGIC = 0x47524150;
+    private static final int VERSION = 1;
+
+    private static final int NODE_BLOCK_BYTES = 1 << 16;
+    private static final int LINKS_PER_BLOCK = 1 << 14;
+    private static final int DEFAULT_WINDOW_BYTES = 1 << 30;
+
+    private final GraphCodec<NodeType> nodeCodec;
+    private final GraphCodec<LinkType> linkTypeCodec;
+    private final int windowBytes;
+
+    public GraphSerializer(GraphCodec<NodeType> nodeCodec, GraphCodec<LinkType> linkTypeCodec){
+        this(nodeCodec, linkTypeCodec, DEFAULT_WINDOW_BYTES);
+    }
+
+    // Small windows let tests cross window boundaries without gigabytes of data
+    GraphSerializer(GraphCodec<NodeType> nodeCodec, GraphCodec<LinkType> linkTypeCodec, int windowBytes){
+        this.nodeCodec = nodeCodec;
+        this.linkTypeCodec = linkTypeCodec;
+        this.windowBytes = windowBytes;
+    }
+
+    public void write(Graph<NodeType, LinkType> graph, Path path) throws IOException{
+        try(var out = Files.newOutputStream(path)){
+            write(graph, out);
+        }
+    }
+
+    // Leaves out open
+    public void write(Graph<NodeType, LinkType> graph, OutputStream out) throws IOException{
+        var data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        var nodes = graph.getNodes();
+
+        NodeIndex<NodeType> nodeIds = new NodeIndex<>(nodes.size());
+        for(var node : nodes)
+            nodeIds.put(node, nodeIds.size());
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(nodes.size());
+
+        // Link types are numbered while the nodes are written, links are counted from their lower id end
+        Map<LinkType, Integer> linkTypeIds = new HashMap<>();
+        List<LinkType> linkTypes = new ArrayList<>();
+        long linkCount = 0;
+
+        var nodeBlock = new ValueBlockWriter(data);
+
+        for(var node : nodes){
+            var neighbors = graph.getNeighbors(node);
+            int nodeId = nodeIds.get(node);
+
+            nodeBlock.out.writeInt(neighbors.size());
+            nodeCodec.encode(node.data(), nodeBlock.out);
+            nodeBlock.valueWritten();
+
+            for(var entry : neighbors.entrySet()){
+                if(nodeIds.get(entry.getKey()) < nodeId)
+                    continue;
+
+                for(var linkType : entry.getValue()){
+                    if(linkTypeIds.putIfAbsent(linkType, linkTypes.size()) == null)
+                        linkTypes.add(linkType);
+                }
+                linkCount += entry.getValue().size();
+            }
+        }
+        nodeBlock.flush();
+
+        var linkTypeBlock = new ValueBlockWriter(data);
+        for(var linkType : linkTypes){
+            linkTypeCodec.encode(linkType, linkTypeBlock.out);
+            linkTypeBlock.count++;
+        }
+        linkTypeBlock.flush(true);
+
+        data.writeLong(linkCount);
+
+        var linkBlock = new LinkBlockWriter(data);
+
+        for(var node : nodes){
+            int nodeId = nodeIds.get(node);
+
+            for(var entry : graph.getNeighbors(node).entrySet()){
+                int neighborId = nodeIds.get(entry.getKey());
+
+                if(neighborId < nodeId)
+                    continue;
+
+                for(var linkType : entry.getValue())
+                    linkBlock.add(nodeId, neighborId, linkTypeIds.get(linkType));
+            }
+        }
+        linkBlock.flush();
+
+        data.flush();
+    }
+
+    public Graph<NodeType, LinkType> read(Path path) throws IOException{
+        try(var channel = FileChannel.open(path, StandardOpenOption.READ)){
+            var in = new MappedInput(channel, windowBytes);
+
+            var header = in.require(12);
+            if(header.getInt() != MAGIC)
+                throw new IOException("Not a graph file: " + path);
+
+            int version = header.getInt();
+            if(version != VERSION)
+                throw new IOException("Unsupported graph file version " + version + ": " + path);
+
+            return read(in, header.getInt());
+        }
+        // Whatever a codec or an out of range id throws on bad data
+        catch(RuntimeException e){
+            throw new IOException("Corrupt graph file: " + path, e);
+        }
+    }
+
+    private Graph<NodeType, LinkType> read(MappedInput in, int nodeCount) throws IOException{
+        @SuppressWarnings("unchecked")
+        GraphNode<NodeType>[] nodes = new GraphNode[nodeCount];
+        Graph<NodeType, LinkType> graph = Graph.withCapacity(nodeCount);
+
+        for(int nodesRead = 0; nodesRead < nodeCount;){
+            var block = in.valueBlock();
+
+            for(int count = block.getInt(); count > 0; count--){
+                int neighborCount = block.getInt();
+                var node = new GraphNode<>(nodeCodec.decode(block));
+
+                if(!graph.putNode_unsafe(node, neighborCount))
+                    throw new IOException("Duplicate node " + node);
+
+                nodes[nodesRead++] = node;
+            }
+            in.endBlock(block);
+        }
+
+        var linkTypeBlock = in.valueBlock();
+        List<LinkType> linkTypes = new ArrayList<>();
+
+        for(int count = linkTypeBlock.getInt(); count > 0; count--)
+            linkTypes.add(linkTypeCodec.decode(linkTypeBlock));
+        in.endBlock(linkTypeBlock);
+
+        long linkCount = in.require(8).getLong();
+
+        int[] node1Ids = new int[LINKS_PER_BLOCK];
+        int[] node2Ids = new int[LINKS_PER_BLOCK];
+        int[] linkTypeIds = new int[LINKS_PER_BLOCK];
+
+        for(long linksRead = 0; linksRead < linkCount;){
+            int count = in.require(4).getInt();
+            if(count <= 0 || count > LINKS_PER_BLOCK)
+                throw new IOException("Bad link block size " + count);
+
+            IntBuffer ids = in.slice(count * 3 * Integer.BYTES).asIntBuffer();
+            ids.get(node1Ids, 0, count);
+            ids.get(node2Ids, 0, count);
+            ids.get(linkTypeIds, 0, count);
+
+            for(int i = 0; i < count; i++)
+                graph.putLink_unsafe(nodes[node1Ids[i]], nodes[node2Ids[i]], linkTypes.get(linkTypeIds[i]));
+
+            linksRead += count;
+        }
+
+        return graph;
+    }
+
+    // Collects values until about NODE_BLOCK_BYTES, then writes them out as one block
+    private static final class ValueBlockWriter {
+        private final DataOutputStream target;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(NODE_BLOCK_BYTES + 1024);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count;
+
+        private ValueBlockWriter(DataOutputStream target){
+            this.target = target;
+        }
+
+        private void valueWritten() throws IOException{
+            count++;
+            if(bytes.size() >= NODE_BLOCK_BYTES)
+                flush();
+        }
+
+        private void flush() throws IOException{
+            flush(false);
+        }
+
+        private void flush(boolean evenIfEmpty) throws IOException{
+            if(count == 0 && !evenIfEmpty)
+                return;
+
+            target.writeInt(Integer.BYTES + bytes.size());
+            target.writeInt(count);
+            bytes.writeTo(target);
+
+            bytes.reset();
+            count = 0;
+        }
+    }
+
+    private static final class LinkBlockWriter {
+        private final DataOutputStream target;
+        private final int[] node1Ids = new int[LINKS_PER_BLOCK];
+        private final int[] node2Ids = new int[LINKS_PER_BLOCK];
+        private final int[] linkTypeIds = new int[LINKS_PER_BLOCK];
+        private final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + LINKS_PER_BLOCK * 3 * Integer.BYTES);
+        private int count;
+
+        private LinkBlockWriter(DataOutputStream target){
+            this.target = target;
+        }
+
+        private void add(int node1Id, int node2Id, int linkTypeId) throws IOException{
+            node1Ids[count] = node1Id;
+            node2Ids[count] = node2Id;
+            linkTypeIds[count] = linkTypeId;
+
+            if(++count == LINKS_PER_BLOCK)
+                flush();
+        }
+
+        private void flush() throws IOException{
+            if(count == 0)
+                return;
+
+            buffer.clear();
+            buffer.putInt(count);
+
+            var ids = buffer.slice(Integer.BYTES, count * 3 * Integer.BYTES).asIntBuffer();
+            ids.put(node1Ids, 0, count);
+            ids.put(node2Ids, 0, count);
+            ids.put(linkTypeIds, 0, count);
+
+            target.write(buffer.array(), 0, Integer.BYTES + count * 3 * Integer.BYTES);
+            count = 0;
+        }
+    }
+
+    // A read only mapping of part of the file, moved forward whenever the next read doesn't fit in it.
+    // A single mapping is limited to 2GB, larger files are read through several.
+    private static final class MappedInput {
+        private final FileChannel channel;
+        private final long fileSize;
+        private final int windowBytes;
+
+        private long windowStart;
+        private ByteBuffer window = ByteBuffer.allocate(0);
+
+        private MappedInput(FileChannel channel, int windowBytes) throws IOException{
+            this.channel = channel;
+            this.fileSize = channel.size();
+            this.windowBytes = windowBytes;
+        }
+
+        // The window, with at least the given number of bytes left after its position
+        private ByteBuffer require(int byteCount) throws IOException{
+            if(window.remaining() >= byteCount)
+                return window;
+
+            long position = windowStart + window.position();
+            long mappedBytes = Math.min(fileSize - position, Math.max(windowBytes, byteCount));
+
+            if(mappedBytes < byteCount)
+                throw new EOFException("Graph file ends early");
+
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, mappedBytes);
+            windowStart = position;
+
+            return window;
+        }
+
+        // The next byteCount bytes as a buffer of their own, the window moves past them
+        private ByteBuffer slice(int byteCount) throws IOException{
+            var buffer = require(byteCount);
+            var slice = buffer.slice(buffer.position(), byteCount);
+
+            buffer.position(buffer.position() + byteCount);
+
+            return slice;
+        }
+
+        private ByteBuffer valueBlock() throws IOException{
+            int byteCount = require(4).getInt();
+            if(byteCount < Integer.BYTES)
+                throw new IOException("Bad block size " + byteCount);
+
+            return slice(byteCount);
+        }
+
+        private void endBlock(ByteBuffer block) throws IOException{
+            if(block.hasRemaining())
+                throw new IOException(block.remaining() + " bytes left over at the end of a block");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.*;
+
+// Immutable state of a Graph at the time Graph.snapshot() was called. It shares its structure with the graph
+// and with other snapshots instead of copying it, and nothing done to the graph afterwards shows up in it, so
+// it can be read from any thread without locking while the graph keeps changing.
+public final class GraphSnapshot<NodeType, LinkType> {
+    private final PersistentMap<GraphNode<NodeType>, PersistentMap<GraphNode<NodeType>, Set<LinkType>>> adjacency;
+
+    GraphSnapshot(PersistentMap<GraphNode<NodeType>, PersistentMap<GraphNode<NodeType>, Set<LinkType>>> adjacency){
+        this.adjacency = adjacency;
+    }
+
+    public int size(){
+        return adjacency.size();
+    }
+
+    public boolean contains(GraphNode<NodeType> node){
+        return adjacency.containsKey(node);
+    }
+
+    public Set<GraphNode<NodeType>> getNodes(){
+        return Collections.unmodifiableSet(adjacency.asMap().keySet());
+    }
+
+    // Neighbor -> link types, empty if the node is not in the snapshot
+    public Map<GraphNode<NodeType>, Set<LinkType>> getNeighbors(GraphNode<NodeType> node){
+        var neighbors = adjacency.get(node);
+
+        return neighbors == null ? Map.of() : neighbors.asMap();
+    }
+
+    // Same as Graph.getAdjacencies
+    public Map<GraphNode<NodeType>, Set<GraphLink<NodeType, LinkType>>> getAdjacencies(){
+        Map<GraphNode<NodeType>, Set<GraphLink<NodeType, LinkType>>> adjacencies = HashMap.newHashMap(adjacency.size());
+
+        adjacency.forEach((node, neighbors) -> {
+            HashSet<GraphLink<NodeType, LinkType>> links = new HashSet<>();
+
+            neighbors.forEach((neighbor, linkTypes) -> linkTypes.forEach(linkType -> links.add(new GraphLink<>(neighbor, linkType))));
+            adjacencies.put(node, links);
+        });
+
+        return Collections.unmodifiableMap(adjacencies);
+    }
+
+    public Set<GraphNode<NodeType>> getConnectedNodes(GraphNode<NodeType> node){
+        HashSet<GraphNode<NodeType>> visitedNodes = new HashSet<>();
+
+        if(!adjacency.containsKey(node))
+            return visitedNodes;
+
+        ArrayDeque<GraphNode<NodeType>> nodesToVisit = new ArrayDeque<>();
+
+        visitedNodes.add(node);
+        nodesToVisit.push(node);
+
+        while(!nodesToVisit.isEmpty()){
+            adjacency.get(nodesToVisit.pop()).forEach((neighbor, linkTypes) -> {
+                if(visitedNodes.add(neighbor))
+                    nodesToVisit.push(neighbor);
+            });
+        }
+
+        return visitedNodes;
+    }
+}
@@ -0,0 +1,148 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+// A listener registered with Graph.subscribe. Events reach it on the thread that changed the graph, right after
+// the change was made; an exception thrown by the listener propagates to the caller of the changing method.
+public final class GraphSubscription<NodeType, LinkType> implements AutoCloseable {
+    private final Graph<NodeType, LinkType> graph;
+
+    // Exactly one of the two is set, eventListener for immediate delivery
+    private final Consumer<? super GraphEvent<NodeType, LinkType>> eventListener;
+    private final Consumer<? super List<GraphEvent<NodeType, LinkType>>> batchListener;
+
+    private final int maxBatchSize;
+    private final boolean coalesce;
+    private List<GraphEvent<NodeType, LinkType>> pendingEvents = new ArrayList<>();
+
+    GraphSubscription(Graph<NodeType, LinkType> graph, Consumer<? super GraphEvent<NodeType, LinkType>> eventListener){
+        this.graph = graph;
+        this.eventListener = eventListener;
+        this.batchListener = null;
+        this.maxBatchSize = 1;
+        this.coalesce = false;
+    }
+
+    GraphSubscription(Graph<NodeType, LinkType> graph, Consumer<? super List<GraphEvent<NodeType, LinkType>>> batchListener, int maxBatchSize, boolean coalesce){
+        if(maxBatchSize < 1)
+            throw new IllegalArgumentException("maxBatchSize must be at least 1, got " + maxBatchSize);
+
+        this.graph = graph;
+        this.eventListener = null;
+        this.batchListener = batchListener;
+        this.maxBatchSize = maxBatchSize;
+        this.coalesce = coalesce;
+    }
+
+    void publish(GraphEvent<NodeType, LinkType> event){
+        if(eventListener != null){
+            eventListener.accept(event);
+            return;
+        }
+
+        pendingEvents.add(event);
+
+        if(pendingEvents.size() >= maxBatchSize)
+            flush();
+    }
+
+    // Delivers the events collected so far, if any are left after coalescing
+    public void flush(){
+        if(pendingEvents.isEmpty())
+            return;
+
+        // Swapped out first, the listener may change the graph again
+        var events = pendingEvents;
+        pendingEvents = new ArrayList<>();
+
+        if(coalesce)
+            events = coalesce(events);
+
+        if(!events.isEmpty())
+            batchListener.accept(Collections.unmodifiableList(events));
+    }
+
+    // Delivers what is pending and stops listening
+    @Override
+    public void close(){
+        flush();
+        graph.unsubscribe(this);
+    }
+
+    private record LinkKey(Set<Object> ends, Object linkType){
+        private static LinkKey of(GraphNode<?> node1, GraphNode<?> node2, Object linkType){
+            return new LinkKey(node1.equals(node2) ? Set.of(node1) : Set.of(node1, node2), linkType);
+        }
+    }
+
+    // Drops the changes that undo each other: a link added and removed again (or the other way around), and a
+    // node added and removed again together with everything that happened to its links in between. Splits and
+    // merges move whole sets of nodes, nothing cancels across them.
+    private static <NodeType, LinkType> List<GraphEvent<NodeType, LinkType>> coalesce(List<GraphEvent<NodeType, LinkType>> events){
+        List<GraphEvent<NodeType, LinkType>> kept = new ArrayList<>(events);
+
+        // Index of the last uncancelled event of every link
+        Map<LinkKey, Integer> lastLinkEvents = new HashMap<>();
+        // Nodes added since the last barrier -> indices of their NodeAdded and of every link event touching them
+        Map<GraphNode<NodeType>, List<Integer>> addedNodes = new HashMap<>();
+
+        for(int i = 0; i < kept.size(); i++){
+            switch(kept.get(i)){
+                case GraphEvent.NodeAdded<NodeType, LinkType> nodeAdded -> {
+                    List<Integer> indices = new ArrayList<>();
+                    indices.add(i);
+                    addedNodes.put(nodeAdded.node(), indices);
+                }
+                case GraphEvent.NodeRemoved<NodeType, LinkType> nodeRemoved -> {
+                    var indices = addedNodes.remove(nodeRemoved.node());
+
+                    if(indices != null){
+                        indices.forEach(index -> kept.set(index, null));
+                        kept.set(i, null);
+                    }
+
+                    // The node may come back with other links, earlier link events must not cancel against those
+                    lastLinkEvents.keySet().removeIf(key -> key.ends().contains(nodeRemoved.node()));
+                }
+                case GraphEvent.LinkAdded<NodeType, LinkType> linkAdded ->
+                        linkChanged(kept, i, LinkKey.of(linkAdded.node1(), linkAdded.node2(), linkAdded.type()), linkAdded.node1(), linkAdded.node2(), lastLinkEvents, addedNodes);
+                case GraphEvent.LinkRemoved<NodeType, LinkType> linkRemoved ->
+                        linkChanged(kept, i, LinkKey.of(linkRemoved.node1(), linkRemoved.node2(), linkRemoved.type()), linkRemoved.node1(), linkRemoved.node2(), lastLinkEvents, addedNodes);
+                case GraphEvent.Split<NodeType, LinkType> split -> {
+                    lastLinkEvents.clear();
+                    addedNodes.clear();
+                }
+                case GraphEvent.Merged<NodeType, LinkType> merged -> {
+                    lastLinkEvents.clear();
+                    addedNodes.clear();
+                }
+            }
+        }
+
+        kept.removeIf(Objects::isNull);
+
+        return kept;
+    }
+
+    private static <NodeType, LinkType> void linkChanged(List<GraphEvent<NodeType, LinkType>> kept, int index, LinkKey key, GraphNode<NodeType> node1, GraphNode<NodeType> node2, Map<LinkKey, Integer> lastLinkEvents, Map<GraphNode<NodeType>, List<Integer>> addedNodes){
+        Integer lastIndex = lastLinkEvents.remove(key);
+
+        // Only adds and removes alternate for the same link, so the last uncancelled event is the opposite one
+        if(lastIndex != null && kept.get(lastIndex) != null){
+            kept.set(lastIndex, null);
+            kept.set(index, null);
+            return;
+        }
+
+        lastLinkEvents.put(key, index);
+
+        var node1Events = addedNodes.get(node1);
+        if(node1Events != null)
+            node1Events.add(index);
+
+        var node2Events = addedNodes.get(node2);
+        if(node2Events != null && !node1.equals(node2))
+            node2Events.add(index);
+    }
+}
@@ -0,0 +1,150 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+// Lazy BFS/DFS over a Graph. A node's neighbors are only looked at when the step after it is pulled,
+// so nothing past the last pulled node is ever explored. The graph must not change while iterating.
+class GraphTraversal<NodeType, LinkType> implements Iterator<TraversalStep<NodeType, LinkType>> {
+    private final Graph<NodeType, LinkType> graph;
+    private final TraversalOrder order;
+    private final int maxDepth;
+    private final Predicate<GraphLink<NodeType, LinkType>> followLink;
+    private final Set<LinkType> linkTypes;
+
+    private final HashSet<GraphNode<NodeType>> visitedNodes = new HashSet<>();
+    private final ArrayDeque<TraversalStep<NodeType, LinkType>> pendingSteps = new ArrayDeque<>();
+
+    // Depth first pushes a node once per link leading to it, the step to return next is found ahead of time
+    private TraversalStep<NodeType, LinkType> nextStep;
+    // The step handed out last, its neighbors are added once another step is asked for
+    private TraversalStep<NodeType, LinkType> stepToExpand;
+
+    // Depth first with a depth limit only: the smallest depth each handed out node was expanded at. A node first
+    // reached down a long path is expanded again when a shorter path reaches it, else nodes within maxDepth
+    // behind it would be missed. Breadth first always reaches a node by a shortest path first.
+    private final HashMap<GraphNode<NodeType>, Integer> expandedDepths;
+
+    // followLink and linkTypes may be null, linkTypes is looked up in the graph's link type index if it has one
+    GraphTraversal(Graph<NodeType, LinkType> graph, GraphNode<NodeType> start, TraversalOrder order, int maxDepth, Predicate<GraphLink<NodeType, LinkType>> followLink, Set<LinkType> linkTypes){
+        this.graph = graph;
+        this.order = order;
+        this.maxDepth = maxDepth;
+        this.followLink = followLink;
+        this.linkTypes = linkTypes;
+        this.expandedDepths = order == TraversalOrder.DEPTH_FIRST && maxDepth != Integer.MAX_VALUE ? new HashMap<>() : null;
+
+        if(graph.getNeighbors(start) != null){
+            var startStep = new TraversalStep<NodeType, LinkType>(start, 0, null, null);
+
+            if(order == TraversalOrder.BREADTH_FIRST)
+                visitedNodes.add(start);
+
+            pendingSteps.push(startStep);
+        }
+    }
+
+    @Override
+    public boolean hasNext(){
+        if(nextStep == null){
+            if(stepToExpand != null){
+                expand(stepToExpand);
+                stepToExpand = null;
+            }
+
+            nextStep = order == TraversalOrder.BREADTH_FIRST ? pendingSteps.pollFirst() : nextUnvisitedStep();
+        }
+
+        return nextStep != null;
+    }
+
+    @Override
+    public TraversalStep<NodeType, LinkType> next(){
+        if(!hasNext())
+            throw new NoSuchElementException();
+
+        var step = nextStep;
+        nextStep = null;
+        stepToExpand = step;
+
+        return step;
+    }
+
+    private TraversalStep<NodeType, LinkType> nextUnvisitedStep(){
+        while(!pendingSteps.isEmpty()){
+            var step = pendingSteps.pop();
+
+            if(visitedNodes.add(step.node())){
+                if(expandedDepths != null)
+                    expandedDepths.put(step.node(), step.depth());
+
+                return step;
+            }
+
+            // Handed out already, but this path is shorter and may lead further within maxDepth
+            if(expandedDepths != null && step.depth() < expandedDepths.get(step.node())){
+                expandedDepths.put(step.node(), step.depth());
+                expand(step);
+            }
+        }
+
+        return null;
+    }
+
+    private void expand(TraversalStep<NodeType, LinkType> step){
+        var neighbors = graph.getNeighbors(step.node());
+
+        if(neighbors == null || step.depth() >= maxDepth)
+            return;
+
+        if(linkTypes != null){
+            graph.forEachLink(step.node(), linkTypes, (neighbor, linkType) -> {
+                if(isWorthVisiting(neighbor, step.depth() + 1))
+                    addStep(step, new GraphLink<>(neighbor, linkType));
+            });
+            return;
+        }
+
+        for(var entry : neighbors.entrySet()){
+            var neighbor = entry.getKey();
+
+            if(!isWorthVisiting(neighbor, step.depth() + 1))
+                continue;
+
+            var link = followedLink(neighbor, entry.getValue());
+            if(link != null)
+                addStep(step, link);
+        }
+    }
+
+    private boolean isWorthVisiting(GraphNode<NodeType> neighbor, int depth){
+        if(!visitedNodes.contains(neighbor))
+            return true;
+
+        return expandedDepths != null && depth < expandedDepths.get(neighbor);
+    }
+
+    private void addStep(TraversalStep<NodeType, LinkType> step, GraphLink<NodeType, LinkType> link){
+        var neighborStep = new TraversalStep<>(link.node(), step.depth() + 1, step.node(), link);
+
+        if(order == TraversalOrder.BREADTH_FIRST){
+            visitedNodes.add(link.node());
+            pendingSteps.addLast(neighborStep);
+        }
+        else{
+            pendingSteps.push(neighborStep);
+        }
+    }
+
+    // First link to neighbor the traversal may follow, null if there is none
+    private GraphLink<NodeType, LinkType> followedLink(GraphNode<NodeType> neighbor, Set<LinkType> linkTypes){
+        for(var linkType : linkTypes){
+            var link = new GraphLink<>(neighbor, linkType);
+
+            if(followLink == null || followLink.test(link))
+                return link;
+        }
+
+        return null;
+    }
+}
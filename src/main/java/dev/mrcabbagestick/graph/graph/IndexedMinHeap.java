@@ -0,0 +1,121 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.Arrays;
+
+// Binary min heap of the ids 0..capacity-1 keyed by double priorities, in plain arrays so nothing is boxed.
+// Every id knows its position in the heap, which makes lowering the priority of a queued id O(log n).
+final class IndexedMinHeap {
+    private static final int NOT_QUEUED = -1;
+
+    private final int[] heap;
+    private final double[] priorities;
+    private final int[] positions;
+    private int size;
+
+    IndexedMinHeap(int capacity){
+        heap = new int[capacity];
+        priorities = new double[capacity];
+        positions = new int[capacity];
+
+        Arrays.fill(positions, NOT_QUEUED);
+    }
+
+    int size(){
+        return size;
+    }
+
+    boolean isEmpty(){
+        return size == 0;
+    }
+
+    double minPriority(){
+        return size == 0 ? Double.POSITIVE_INFINITY : priorities[heap[0]];
+    }
+
+    // Queues the id, or lowers its priority if it is queued with a higher one
+    void insertOrDecrease(int id, double priority){
+        int position = positions[id];
+
+        if(position == NOT_QUEUED){
+            position = size++;
+            heap[position] = id;
+            positions[id] = position;
+        }
+        else if(priority >= priorities[id]){
+            return;
+        }
+
+        priorities[id] = priority;
+        siftUp(position);
+    }
+
+    int pollMin(){
+        int min = heap[0];
+        positions[min] = NOT_QUEUED;
+
+        int last = heap[--size];
+
+        if(size > 0){
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+
+        return min;
+    }
+
+    // Only touches what is still queued, so a search that stopped early doesn't pay for the whole capacity
+    void clear(){
+        for(int i = 0; i < size; i++)
+            positions[heap[i]] = NOT_QUEUED;
+
+        size = 0;
+    }
+
+    private void siftUp(int position){
+        int id = heap[position];
+        double priority = priorities[id];
+
+        while(position > 0){
+            int parentPosition = (position - 1) >>> 1;
+            int parent = heap[parentPosition];
+
+            if(priorities[parent] <= priority)
+                break;
+
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+    private void siftDown(int position){
+        int id = heap[position];
+        double priority = priorities[id];
+
+        while(true){
+            int childPosition = 2 * position + 1;
+
+            if(childPosition >= size)
+                break;
+
+            if(childPosition + 1 < size && priorities[heap[childPosition + 1]] < priorities[heap[childPosition]])
+                childPosition++;
+
+            int child = heap[childPosition];
+
+            if(priority <= priorities[child])
+                break;
+
+            heap[position] = child;
+            positions[child] = position;
+            position = childPosition;
+        }
+
+        heap[position] = id;
+        positions[id] = position;
+    }
+}
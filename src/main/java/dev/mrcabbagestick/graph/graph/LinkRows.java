@@ -0,0 +1,32 @@
+package dev.mrcabbagestick.graph.graph;
+
+// Where a RowGraph keeps its links: for every node id a row of (neighbor id, link type code) pairs in no
+// particular order. The graph hands out the ids and decides what goes in a row, the rows only store it.
+interface LinkRows {
+    // Room for the ids below idCapacity, rows already there are kept
+    void ensureCapacity(int idCapacity);
+
+    int degree(int id);
+
+    int neighborAt(int id, int index);
+
+    int linkCodeAt(int id, int index);
+
+    // Adds a pair at the end of the row, growing it if it is full
+    void append(int id, int neighborId, int linkCode);
+
+    // Moves the row's last pair to index, dropping the pair that was there
+    void removeAt(int id, int index);
+
+    // Replaces the row with the first degree pairs of the arrays, room is made for exactly that many
+    void setRow(int id, int[] neighborIds, int[] linkCodes, int degree);
+
+    // Empties the row and gives its storage back
+    void clearRow(int id);
+
+    // Gives everything back, leaving room for a single id
+    void clear();
+
+    // Shrinks the storage to what the rows below idLimit hold, for graphs that are done growing
+    void trimToSize(int idLimit);
+}
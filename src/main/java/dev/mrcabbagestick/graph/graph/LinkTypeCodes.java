@@ -0,0 +1,33 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+// Interns link types to small int codes, there are usually only a handful of them
+final class LinkTypeCodes<LinkType> {
+    private final ArrayList<LinkType> linkTypes = new ArrayList<>();
+    private final HashMap<LinkType, Integer> codes = new HashMap<>();
+
+    int codeOf(LinkType linkType){
+        return codes.computeIfAbsent(linkType, _linkType -> {
+            linkTypes.add(_linkType);
+            return linkTypes.size() - 1;
+        });
+    }
+
+    LinkType typeOf(int code){
+        return linkTypes.get(code);
+    }
+
+    // Maps the other table's codes to this one's, null if they are the same table
+    int[] translationFrom(LinkTypeCodes<LinkType> other){
+        if(other == this)
+            return null;
+
+        int[] translation = new int[other.linkTypes.size()];
+        for(int code = 0; code < translation.length; code++)
+            translation[code] = codeOf(other.typeOf(code));
+
+        return translation;
+    }
+}
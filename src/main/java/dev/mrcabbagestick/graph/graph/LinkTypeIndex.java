@@ -0,0 +1,65 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.*;
+
+// The adjacency list split up by link type: type -> node -> neighbors linked to it with that type. A walk that
+// only follows some types reads their neighbor sets directly and never looks at links of the other types.
+final class LinkTypeIndex<NodeType, LinkType> {
+    private final HashMap<LinkType, HashMap<GraphNode<NodeType>, Set<GraphNode<NodeType>>>> neighborsByType = new HashMap<>();
+
+    LinkTypeIndex(Map<GraphNode<NodeType>, ? extends Map<GraphNode<NodeType>, Set<LinkType>>> adjacencyList){
+        putAll(adjacencyList);
+    }
+
+    void putAll(Map<GraphNode<NodeType>, ? extends Map<GraphNode<NodeType>, Set<LinkType>>> adjacencyList){
+        adjacencyList.forEach((node, neighbors) -> neighbors.forEach((neighbor, linkTypes) -> {
+            for(var linkType : linkTypes)
+                add(node, neighbor, linkType);
+        }));
+    }
+
+    void add(GraphNode<NodeType> from, GraphNode<NodeType> to, LinkType linkType){
+        neighborsByType.computeIfAbsent(linkType, type -> new HashMap<>())
+                .computeIfAbsent(from, node -> new HashSet<>())
+                .add(to);
+    }
+
+    void remove(GraphNode<NodeType> from, GraphNode<NodeType> to, LinkType linkType){
+        var neighborsOfType = neighborsByType.get(linkType);
+        if(neighborsOfType == null)
+            return;
+
+        var neighbors = neighborsOfType.get(from);
+        if(neighbors == null)
+            return;
+
+        neighbors.remove(to);
+
+        if(neighbors.isEmpty())
+            neighborsOfType.remove(from);
+        if(neighborsOfType.isEmpty())
+            neighborsByType.remove(linkType);
+    }
+
+    // Forgets every link of the given nodes, which must have been moved out together with all their neighbors
+    void removeNodes(Collection<GraphNode<NodeType>> nodes){
+        var types = neighborsByType.values().iterator();
+
+        while(types.hasNext()){
+            var neighborsOfType = types.next();
+            nodes.forEach(neighborsOfType::remove);
+
+            if(neighborsOfType.isEmpty())
+                types.remove();
+        }
+    }
+
+    // Neighbors of node through links of linkType, empty if there are none
+    Set<GraphNode<NodeType>> neighbors(GraphNode<NodeType> node, LinkType linkType){
+        var neighborsOfType = neighborsByType.get(linkType);
+        if(neighborsOfType == null)
+            return Set.of();
+
+        return neighborsOfType.getOrDefault(node, Set.of());
+    }
+}
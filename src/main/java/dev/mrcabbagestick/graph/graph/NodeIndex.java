@@ -0,0 +1,128 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.Arrays;
+
+// Open addressing GraphNode -> int table, interns nodes to dense ids without boxing either side
+final class NodeIndex<NodeType> {
+    static final int MISSING = -1;
+
+    private GraphNode<NodeType>[] keys;
+    private int[] values;
+    private int size;
+
+    NodeIndex(int expectedSize){
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    int size(){
+        return size;
+    }
+
+    int get(GraphNode<NodeType> key){
+        int mask = keys.length - 1;
+
+        for(int slot = slotOf(key, mask); keys[slot] != null; slot = (slot + 1) & mask){
+            if(keys[slot].equals(key))
+                return values[slot];
+        }
+
+        return MISSING;
+    }
+
+    void put(GraphNode<NodeType> key, int value){
+        // Kept at most half full so probe sequences stay short
+        if((size + 1) * 2 > keys.length)
+            resize(keys.length * 2);
+
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+
+        for(; keys[slot] != null; slot = (slot + 1) & mask){
+            if(keys[slot].equals(key)){
+                values[slot] = value;
+                return;
+            }
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    int remove(GraphNode<NodeType> key){
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+
+        for(; keys[slot] != null; slot = (slot + 1) & mask){
+            if(keys[slot].equals(key))
+                break;
+        }
+
+        if(keys[slot] == null)
+            return MISSING;
+
+        int removedValue = values[slot];
+        keys[slot] = null;
+        size--;
+
+        // Shift back the entries after the hole that would otherwise become unreachable
+        int hole = slot;
+        for(int next = (hole + 1) & mask; keys[next] != null; next = (next + 1) & mask){
+            int home = slotOf(keys[next], mask);
+            boolean homeAfterHole = hole <= next ? (hole < home && home <= next) : (hole < home || home <= next);
+
+            if(!homeAfterHole){
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                keys[next] = null;
+                hole = next;
+            }
+        }
+
+        return removedValue;
+    }
+
+    void clear(){
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    private void resize(int capacity){
+        var oldKeys = keys;
+        var oldValues = values;
+
+        allocate(capacity);
+        int mask = capacity - 1;
+
+        for(int i = 0; i < oldKeys.length; i++){
+            if(oldKeys[i] == null)
+                continue;
+
+            int slot = slotOf(oldKeys[i], mask);
+            while(keys[slot] != null)
+                slot = (slot + 1) & mask;
+
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity){
+        keys = (GraphNode<NodeType>[]) new GraphNode[capacity];
+        values = new int[capacity];
+    }
+
+    private static int slotOf(GraphNode<?> key, int mask){
+        int hash = key.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static int tableSizeFor(int expectedSize){
+        int capacity = 4;
+        while(capacity < expectedSize * 2)
+            capacity <<= 1;
+
+        return capacity;
+    }
+}
@@ -0,0 +1,33 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hands out one GraphNode per distinct data value. Graphs built from interned nodes find their nodes by
+// reference: lookups hash nothing (the hash is cached in the node) and equal nodes are the same instance, so
+// equals never reaches the data. Nodes created directly still work with them, they just compare their data.
+// Safe to share between threads.
+public final class NodeInterner<T> {
+    private final ConcurrentHashMap<T, GraphNode<T>> nodes = new ConcurrentHashMap<>();
+
+    public GraphNode<T> nodeOf(T data){
+        var node = nodes.get(data);
+
+        return node != null ? node : nodes.computeIfAbsent(data, GraphNode::new);
+    }
+
+    // Adopts an existing node as the one for its data, or returns the node already interned for it
+    public GraphNode<T> intern(GraphNode<T> node){
+        var existing = nodes.putIfAbsent(node.data(), node);
+
+        return existing != null ? existing : node;
+    }
+
+    // Forgets the data, e.g. once its node left every graph. Nodes handed out before stay valid.
+    public boolean forget(T data){
+        return nodes.remove(data) != null;
+    }
+
+    public int size(){
+        return nodes.size();
+    }
+}
@@ -0,0 +1,43 @@
+package dev.mrcabbagestick.graph.graph;
+
+// CompactGraph with its links moved out of the Java heap: each node's row of (neighbor id, link type code)
+// pairs lives in OffHeapRows, and the per-node row address, degree and size class live in a direct node table.
+// The heap keeps the GraphNode payloads, the GraphNode -> id index and a few int buffers per node for the
+// walks, so its size and the work of the garbage collector no longer grow with the number of links.
+// Memory of rows freed by removals is reused by the same graph; the pages of a graph that was merged away or
+// dropped are returned once the garbage collector reclaims their buffers.
+public class OffHeapGraph<NodeType, LinkType> extends RowGraph<NodeType, LinkType, OffHeapGraph<NodeType, LinkType>> {
+    private final OffHeapLinkRows offHeapRows;
+
+    public OffHeapGraph(GraphNode<NodeType> firstNode){
+        this(new LinkTypeCodes<>(), 8);
+        intern(firstNode);
+    }
+
+    private OffHeapGraph(LinkTypeCodes<LinkType> linkTypeCodes, int expectedNodes){
+        this(linkTypeCodes, new OffHeapLinkRows(), expectedNodes);
+    }
+
+    private OffHeapGraph(LinkTypeCodes<LinkType> linkTypeCodes, OffHeapLinkRows rows, int expectedNodes){
+        super(linkTypeCodes, rows, expectedNodes);
+        this.offHeapRows = rows;
+    }
+
+    // Copies a Graph, every row is allocated once at its final size
+    public static <NodeType, LinkType> OffHeapGraph<NodeType, LinkType> copyOf(Graph<NodeType, LinkType> graph){
+        OffHeapGraph<NodeType, LinkType> copy = new OffHeapGraph<>(new LinkTypeCodes<>(), graph.size());
+        copy.copyFrom(graph);
+
+        return copy;
+    }
+
+    @Override
+    OffHeapGraph<NodeType, LinkType> newGraph(int expectedNodes){
+        return new OffHeapGraph<>(linkTypeCodes, expectedNodes);
+    }
+
+    // Direct memory held by this graph: the node table plus every row page, free rows included
+    public long offHeapBytes(){
+        return offHeapRows.reservedBytes();
+    }
+}
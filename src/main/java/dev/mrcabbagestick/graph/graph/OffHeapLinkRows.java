@@ -0,0 +1,168 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// LinkRows outside the Java heap: the rows themselves live in OffHeapRows as interleaved (neighbor id, link type
+// code) pairs, the row address, degree and size class of every id in a direct node table
+final class OffHeapLinkRows implements LinkRows {
+    // Node table entry: row address, degree, size class of the row (-1 before the first link)
+    private static final int ENTRY_BYTES = 16;
+    private static final int DEGREE = 8;
+    private static final int SIZE_CLASS = 12;
+
+    // Rows start out with room for two links
+    private static final int MIN_SIZE_CLASS = 2;
+
+    private OffHeapRows rows = new OffHeapRows();
+    private ByteBuffer nodeTable = allocateTable(0);
+
+    // Direct memory held: the node table plus every row page, free rows included
+    long reservedBytes(){
+        return nodeTable.capacity() + rows.reservedBytes();
+    }
+
+    @Override
+    public void ensureCapacity(int idCapacity){
+        int oldCapacity = nodeTable.capacity() / ENTRY_BYTES;
+
+        if(idCapacity <= oldCapacity)
+            return;
+
+        if((long) idCapacity * ENTRY_BYTES > Integer.MAX_VALUE)
+            throw new IllegalStateException("An OffHeapGraph holds at most " + Integer.MAX_VALUE / ENTRY_BYTES + " nodes");
+
+        nodeTable = allocateTable(idCapacity).put(nodeTable.clear()).clear();
+
+        for(int id = oldCapacity; id < idCapacity; id++)
+            resetEntry(id);
+    }
+
+    @Override
+    public int degree(int id){
+        return nodeTable.getInt(id * ENTRY_BYTES + DEGREE);
+    }
+
+    @Override
+    public int neighborAt(int id, int index){
+        long row = rowOf(id);
+        return rows.page(row).get(OffHeapRows.offset(row) + 2 * index);
+    }
+
+    @Override
+    public int linkCodeAt(int id, int index){
+        long row = rowOf(id);
+        return rows.page(row).get(OffHeapRows.offset(row) + 2 * index + 1);
+    }
+
+    @Override
+    public void append(int id, int neighborId, int linkCode){
+        int degree = degree(id);
+        int sizeClass = sizeClassOf(id);
+        long row = rowOf(id);
+
+        if(sizeClass < 0 || 2 * degree == OffHeapRows.capacityOf(sizeClass)){
+            int newSizeClass = sizeClass < 0 ? MIN_SIZE_CLASS : sizeClass + 1;
+            long newRow = rows.allocate(newSizeClass);
+
+            if(degree > 0){
+                rows.page(newRow).put(OffHeapRows.offset(newRow), rows.page(row), OffHeapRows.offset(row), 2 * degree);
+                rows.free(row, sizeClass);
+            }
+
+            row = newRow;
+            nodeTable.putLong(id * ENTRY_BYTES, row);
+            nodeTable.putInt(id * ENTRY_BYTES + SIZE_CLASS, newSizeClass);
+        }
+
+        var page = rows.page(row);
+        int offset = OffHeapRows.offset(row);
+
+        page.put(offset + 2 * degree, neighborId);
+        page.put(offset + 2 * degree + 1, linkCode);
+        setDegree(id, degree + 1);
+    }
+
+    @Override
+    public void removeAt(int id, int index){
+        int last = degree(id) - 1;
+        long row = rowOf(id);
+        var page = rows.page(row);
+        int offset = OffHeapRows.offset(row);
+
+        page.put(offset + 2 * index, page.get(offset + 2 * last));
+        page.put(offset + 2 * index + 1, page.get(offset + 2 * last + 1));
+        setDegree(id, last);
+    }
+
+    @Override
+    public void setRow(int id, int[] neighborIds, int[] linkCodes, int degree){
+        freeRow(id);
+
+        if(degree == 0)
+            return;
+
+        int sizeClass = Math.max(MIN_SIZE_CLASS, OffHeapRows.sizeClassFor(2 * degree));
+        long row = rows.allocate(sizeClass);
+        var page = rows.page(row);
+        int offset = OffHeapRows.offset(row);
+
+        for(int i = 0; i < degree; i++){
+            page.put(offset + 2 * i, neighborIds[i]);
+            page.put(offset + 2 * i + 1, linkCodes[i]);
+        }
+
+        nodeTable.putLong(id * ENTRY_BYTES, row);
+        nodeTable.putInt(id * ENTRY_BYTES + SIZE_CLASS, sizeClass);
+        setDegree(id, degree);
+    }
+
+    @Override
+    public void clearRow(int id){
+        freeRow(id);
+    }
+
+    @Override
+    public void clear(){
+        rows = new OffHeapRows();
+        nodeTable = allocateTable(0);
+        ensureCapacity(1);
+    }
+
+    // Rows are already sized by class, only the node table shrinks
+    @Override
+    public void trimToSize(int idLimit){
+        if(idLimit < nodeTable.capacity() / ENTRY_BYTES)
+            nodeTable = allocateTable(idLimit).put(nodeTable.clear().limit(idLimit * ENTRY_BYTES)).clear();
+    }
+
+    private long rowOf(int id){
+        return nodeTable.getLong(id * ENTRY_BYTES);
+    }
+
+    private int sizeClassOf(int id){
+        return nodeTable.getInt(id * ENTRY_BYTES + SIZE_CLASS);
+    }
+
+    private void setDegree(int id, int degree){
+        nodeTable.putInt(id * ENTRY_BYTES + DEGREE, degree);
+    }
+
+    private void freeRow(int id){
+        int sizeClass = sizeClassOf(id);
+        if(sizeClass >= 0)
+            rows.free(rowOf(id), sizeClass);
+
+        resetEntry(id);
+    }
+
+    private void resetEntry(int id){
+        nodeTable.putLong(id * ENTRY_BYTES, OffHeapRows.NO_ROW);
+        nodeTable.putInt(id * ENTRY_BYTES + DEGREE, 0);
+        nodeTable.putInt(id * ENTRY_BYTES + SIZE_CLASS, -1);
+    }
+
+    private static ByteBuffer allocateTable(int idCapacity){
+        return ByteBuffer.allocateDirect(idCapacity * ENTRY_BYTES).order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,105 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Int rows of varying length in direct buffers, outside the Java heap. Rows come in power of two size classes
+// carved out of pages, a freed row goes on the free list of its class and is handed out again before any page
+// grows. Each class starts with a page of MIN_PAGE_INTS and doubles the size of every further one up to
+// MAX_PAGE_INTS, so a graph split off with a handful of nodes reserves a few hundred bytes rather than a full
+// page per class it touches, while a large graph still ends up with few, large pages. A row is addressed by a
+// long: page number in the upper half, offset in the lower one. The heap only holds one buffer object per page,
+// however many rows there are.
+final class OffHeapRows {
+    static final long NO_ROW = -1;
+
+    private static final int MIN_PAGE_INTS = 64;
+    private static final int MAX_PAGE_INTS = 1 << 16;
+    // A direct buffer holds at most 2^31 - 1 bytes, so 2^29 ints is the largest row
+    private static final int CLASS_COUNT = 30;
+
+    private final ArrayList<IntBuffer> pages = new ArrayList<>();
+
+    // Page and offset the next row of each class is carved from, -1 before its first page
+    private final int[] openPages = new int[CLASS_COUNT];
+    private final int[] openOffsets = new int[CLASS_COUNT];
+    private final int[] nextPageInts = new int[CLASS_COUNT];
+
+    private final long[][] freeRows = new long[CLASS_COUNT][];
+    private final int[] freeRowCounts = new int[CLASS_COUNT];
+
+    private long reservedBytes;
+
+    OffHeapRows(){
+        Arrays.fill(openPages, -1);
+        Arrays.fill(nextPageInts, MIN_PAGE_INTS);
+    }
+
+    // Smallest class whose rows hold the given number of ints
+    static int sizeClassFor(int ints){
+        int sizeClass = ints <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(ints - 1);
+
+        if(sizeClass >= CLASS_COUNT)
+            throw new IllegalArgumentException("Rows hold at most " + (1 << (CLASS_COUNT - 1)) + " ints, got " + ints);
+
+        return sizeClass;
+    }
+
+    static int capacityOf(int sizeClass){
+        return 1 << sizeClass;
+    }
+
+    long allocate(int sizeClass){
+        if(freeRowCounts[sizeClass] > 0)
+            return freeRows[sizeClass][--freeRowCounts[sizeClass]];
+
+        int rowInts = capacityOf(sizeClass);
+        int page = openPages[sizeClass];
+
+        if(page < 0 || openOffsets[sizeClass] + rowInts > pages.get(page).capacity()){
+            page = newPage(Math.max(nextPageInts[sizeClass], rowInts));
+            nextPageInts[sizeClass] = Math.min(MAX_PAGE_INTS, nextPageInts[sizeClass] * 2);
+            openPages[sizeClass] = page;
+            openOffsets[sizeClass] = 0;
+        }
+
+        int offset = openOffsets[sizeClass];
+        openOffsets[sizeClass] += rowInts;
+
+        return (long) page << 32 | offset;
+    }
+
+    void free(long row, int sizeClass){
+        var rows = freeRows[sizeClass];
+
+        if(rows == null)
+            rows = freeRows[sizeClass] = new long[8];
+        else if(freeRowCounts[sizeClass] == rows.length)
+            rows = freeRows[sizeClass] = Arrays.copyOf(rows, rows.length * 2);
+
+        rows[freeRowCounts[sizeClass]++] = row;
+    }
+
+    // Loops fetch the page and offset of a row once and index the buffer directly
+    IntBuffer page(long row){
+        return pages.get((int) (row >>> 32));
+    }
+
+    static int offset(long row){
+        return (int) row;
+    }
+
+    long reservedBytes(){
+        return reservedBytes;
+    }
+
+    private int newPage(int ints){
+        pages.add(ByteBuffer.allocateDirect(ints * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer());
+        reservedBytes += (long) ints * Integer.BYTES;
+
+        return pages.size() - 1;
+    }
+}
@@ -0,0 +1,59 @@
+package dev.mrcabbagestick.graph.graph;
+
+// Counts the work of one instrumented operation while it runs. Only the outermost public operation gets a
+// probe, the operations it calls internally add to its counts.
+final class OperationProbe {
+    private final GraphOperation operation;
+    private final GraphMetrics metrics;
+    private final GraphOperationEvent event = new GraphOperationEvent();
+    private final long startNanos;
+    private final int graphSize;
+
+    long nodesVisited;
+    long linksVisited;
+    private int newGraphs;
+    private int largestNewGraph;
+    private int nodesMoved;
+
+    OperationProbe(GraphOperation operation, GraphMetrics metrics, int graphSize){
+        this.operation = operation;
+        this.metrics = metrics;
+        this.graphSize = graphSize;
+
+        event.begin();
+        startNanos = System.nanoTime();
+    }
+
+    void visited(int linkCount){
+        nodesVisited++;
+        linksVisited += linkCount;
+    }
+
+    void splitOff(int nodeCount){
+        newGraphs++;
+        largestNewGraph = Math.max(largestNewGraph, nodeCount);
+        nodesMoved += nodeCount;
+    }
+
+    void merged(int movedNodeCount){
+        nodesMoved += movedNodeCount;
+    }
+
+    void finish(){
+        long durationNanos = System.nanoTime() - startNanos;
+        event.end();
+
+        if(event.shouldCommit()){
+            event.operation = operation.name();
+            event.graphSize = graphSize;
+            event.nodesVisited = nodesVisited;
+            event.linksVisited = linksVisited;
+            event.newGraphs = newGraphs;
+            event.largestNewGraph = largestNewGraph;
+            event.nodesMoved = nodesMoved;
+            event.commit();
+        }
+
+        metrics.operationCompleted(new GraphOperationStats(operation, durationNanos, graphSize, nodesVisited, linksVisited, newGraphs, largestNewGraph, nodesMoved));
+    }
+}
@@ -0,0 +1,56 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Persistent copy of a Graph's adjacency list, kept in step with every change once the graph hands out snapshots.
+// Changes between two snapshots share one edit, so only the first change to a part of the trie after a
+// snapshot copies it.
+final class PersistentAdjacency<NodeType, LinkType> {
+    private PersistentMap<GraphNode<NodeType>, PersistentMap<GraphNode<NodeType>, Set<LinkType>>> adjacency = PersistentMap.empty();
+    private PersistentMap.Edit edit = new PersistentMap.Edit();
+
+    PersistentAdjacency(Map<GraphNode<NodeType>, ? extends Map<GraphNode<NodeType>, Set<LinkType>>> adjacencyList){
+        putAll(adjacencyList);
+    }
+
+    void putAll(Map<GraphNode<NodeType>, ? extends Map<GraphNode<NodeType>, Set<LinkType>>> adjacencyList){
+        adjacencyList.forEach((node, neighbors) -> {
+            PersistentMap<GraphNode<NodeType>, Set<LinkType>> persistentNeighbors = PersistentMap.empty();
+
+            for(var entry : neighbors.entrySet())
+                persistentNeighbors = persistentNeighbors.with(entry.getKey(), frozen(entry.getValue()), edit);
+
+            adjacency = adjacency.with(node, persistentNeighbors, edit);
+        });
+    }
+
+    void putNode(GraphNode<NodeType> node){
+        adjacency = adjacency.with(node, PersistentMap.empty(), edit);
+    }
+
+    void putLinkTypes(GraphNode<NodeType> from, GraphNode<NodeType> to, Set<LinkType> linkTypes){
+        adjacency = adjacency.with(from, adjacency.get(from).with(to, frozen(linkTypes), edit), edit);
+    }
+
+    void removeLink(GraphNode<NodeType> from, GraphNode<NodeType> to){
+        adjacency = adjacency.with(from, adjacency.get(from).without(to, edit), edit);
+    }
+
+    void removeNode(GraphNode<NodeType> node){
+        adjacency = adjacency.without(node, edit);
+    }
+
+    GraphSnapshot<NodeType, LinkType> snapshot(){
+        // Everything built so far now belongs to the snapshot and is copied before the next change
+        edit = new PersistentMap.Edit();
+
+        return new GraphSnapshot<>(adjacency);
+    }
+
+    // Graph keeps single link types in immutable singletons and grows a HashSet in place for more
+    private static <LinkType> Set<LinkType> frozen(Set<LinkType> linkTypes){
+        return linkTypes instanceof HashSet ? Set.copyOf(linkTypes) : linkTypes;
+    }
+}
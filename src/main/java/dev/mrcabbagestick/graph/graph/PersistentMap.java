@@ -0,0 +1,449 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+// Immutable hash array mapped trie: 32 way branching on 5 bits of the hash per level, so any change copies at most
+// 7 small nodes and every other node is shared with the map it was made from.
+// Changes are made under an Edit. Nodes created under an edit belong to it and later changes under the same edit
+// modify them in place instead of copying them again, so a run of changes between two snapshots only copies each
+// shared node once. A map that is handed out must have its edit retired first, see Edit.
+// Keys and values can't be null.
+final class PersistentMap<K, V> {
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    // Null when empty
+    private final Node root;
+    private final int size;
+
+    // Owner of nodes that may still be changed in place. Replacing the current edit with a new one freezes every
+    // node made so far. sizeChange passes the size difference of the last change up without allocating.
+    static final class Edit {
+        private int sizeChange;
+    }
+
+    private PersistentMap(Node root, int size){
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty(){
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    int size(){
+        return size;
+    }
+
+    boolean isEmpty(){
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Object key){
+        return root == null ? null : (V) root.find(0, hash(key), key);
+    }
+
+    boolean containsKey(Object key){
+        return get(key) != null;
+    }
+
+    PersistentMap<K, V> with(K key, V value, Edit edit){
+        edit.sizeChange = 0;
+
+        Node newRoot = (root == null ? BitmapNode.EMPTY : root).with(edit, 0, hash(key), key, value);
+
+        if(newRoot == root && edit.sizeChange == 0)
+            return this;
+
+        return new PersistentMap<>(newRoot, size + edit.sizeChange);
+    }
+
+    PersistentMap<K, V> without(K key, Edit edit){
+        if(root == null)
+            return this;
+
+        edit.sizeChange = 0;
+
+        Node newRoot = root.without(edit, 0, hash(key), key);
+
+        if(newRoot == root && edit.sizeChange == 0)
+            return this;
+        if(newRoot == null)
+            return empty();
+
+        return new PersistentMap<>(newRoot, size + edit.sizeChange);
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(BiConsumer<? super K, ? super V> action){
+        if(root != null)
+            root.forEach((BiConsumer<Object, Object>) action);
+    }
+
+    Iterator<Map.Entry<K, V>> iterator(){
+        return new EntryIterator<>(root);
+    }
+
+    // Read only java.util.Map view, lookups go through the trie
+    Map<K, V> asMap(){
+        return new AbstractMap<>(){
+            @Override
+            public V get(Object key){
+                return PersistentMap.this.get(key);
+            }
+
+            @Override
+            public boolean containsKey(Object key){
+                return PersistentMap.this.containsKey(key);
+            }
+
+            @Override
+            public int size(){
+                return size;
+            }
+
+            @Override
+            public void forEach(BiConsumer<? super K, ? super V> action){
+                PersistentMap.this.forEach(action);
+            }
+
+            @Override
+            public Set<Entry<K, V>> entrySet(){
+                return new AbstractSet<>(){
+                    @Override
+                    public Iterator<Entry<K, V>> iterator(){
+                        return PersistentMap.this.iterator();
+                    }
+
+                    @Override
+                    public int size(){
+                        return size;
+                    }
+                };
+            }
+        };
+    }
+
+    private static int hash(Object key){
+        int hash = key.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int bitFor(int hash, int shift){
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private abstract static sealed class Node permits BitmapNode, CollisionNode {
+        // Pairs of key and value. In a BitmapNode a null key means the value is a child node.
+        Object[] array;
+        Edit edit;
+
+        abstract Object find(int shift, int hash, Object key);
+
+        abstract Node with(Edit edit, int shift, int hash, Object key, Object value);
+
+        // Null once the node is empty
+        abstract Node without(Edit edit, int shift, int hash, Object key);
+
+        void forEach(BiConsumer<Object, Object> action){
+            for(int i = 0; i < array.length; i += 2){
+                if(array[i] != null)
+                    action.accept(array[i], array[i + 1]);
+                else if(array[i + 1] != null)
+                    ((Node) array[i + 1]).forEach(action);
+            }
+        }
+
+        // This node if the edit owns it, otherwise a copy that it owns
+        abstract Node editable(Edit edit);
+
+        Node withSlot(Edit edit, int index, Object value){
+            var node = editable(edit);
+            node.array[index] = value;
+
+            return node;
+        }
+    }
+
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+        int bitmap;
+
+        BitmapNode(Edit edit, int bitmap, Object[] array){
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int indexOf(int bit){
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key){
+            int bit = bitFor(hash, shift);
+
+            if((bitmap & bit) == 0)
+                return null;
+
+            int index = indexOf(bit);
+            var keyOrNull = array[index];
+            var valueOrNode = array[index + 1];
+
+            if(keyOrNull == null)
+                return ((Node) valueOrNode).find(shift + BITS, hash, key);
+
+            return key.equals(keyOrNull) ? valueOrNode : null;
+        }
+
+        @Override
+        Node with(Edit edit, int shift, int hash, Object key, Object value){
+            int bit = bitFor(hash, shift);
+            int index = indexOf(bit);
+
+            if((bitmap & bit) == 0){
+                edit.sizeChange = 1;
+
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, index);
+                newArray[index] = key;
+                newArray[index + 1] = value;
+                System.arraycopy(array, index, newArray, index + 2, array.length - index);
+
+                if(this.edit == edit && this != EMPTY){
+                    array = newArray;
+                    bitmap |= bit;
+                    return this;
+                }
+
+                return new BitmapNode(edit, bitmap | bit, newArray);
+            }
+
+            var keyOrNull = array[index];
+            var valueOrNode = array[index + 1];
+
+            if(keyOrNull == null){
+                var child = ((Node) valueOrNode).with(edit, shift + BITS, hash, key, value);
+                return child == valueOrNode ? this : withSlot(edit, index + 1, child);
+            }
+
+            if(key.equals(keyOrNull))
+                return value == valueOrNode ? this : withSlot(edit, index + 1, value);
+
+            // Two keys on the same slot, push both down a level
+            var child = twoEntryNode(edit, shift + BITS, keyOrNull, valueOrNode, hash, key, value);
+            edit.sizeChange = 1;
+
+            var node = editable(edit);
+            node.array[index] = null;
+            node.array[index + 1] = child;
+
+            return node;
+        }
+
+        @Override
+        Node without(Edit edit, int shift, int hash, Object key){
+            int bit = bitFor(hash, shift);
+
+            if((bitmap & bit) == 0)
+                return this;
+
+            int index = indexOf(bit);
+            var keyOrNull = array[index];
+            var valueOrNode = array[index + 1];
+
+            if(keyOrNull == null){
+                var child = ((Node) valueOrNode).without(edit, shift + BITS, hash, key);
+
+                if(child == valueOrNode)
+                    return this;
+                if(child != null)
+                    return withSlot(edit, index + 1, child);
+            }
+            else if(!key.equals(keyOrNull)){
+                return this;
+            }
+            else{
+                edit.sizeChange = -1;
+            }
+
+            // The entry or its now empty child goes
+            if(bitmap == bit)
+                return null;
+
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+
+            if(this.edit == edit){
+                array = newArray;
+                bitmap ^= bit;
+                return this;
+            }
+
+            return new BitmapNode(edit, bitmap ^ bit, newArray);
+        }
+
+        @Override
+        Node editable(Edit edit){
+            return this.edit == edit ? this : new BitmapNode(edit, bitmap, array.clone());
+        }
+
+        private static Node twoEntryNode(Edit edit, int shift, Object key1, Object value1, int hash2, Object key2, Object value2){
+            int hash1 = hash(key1);
+
+            if(hash1 == hash2)
+                return new CollisionNode(edit, hash1, new Object[]{key1, value1, key2, value2});
+
+            return BitmapNode.EMPTY
+                    .with(edit, shift, hash1, key1, value1)
+                    .with(edit, shift, hash2, key2, value2);
+        }
+    }
+
+    // Keys whose whole 32 bit hash is the same
+    private static final class CollisionNode extends Node {
+        final int hash;
+
+        CollisionNode(Edit edit, int hash, Object[] array){
+            this.edit = edit;
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key){
+            for(int i = 0; i < array.length; i += 2){
+                if(key.equals(array[i]))
+                    return i;
+            }
+
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key){
+            int index = indexOf(key);
+            return index < 0 ? null : array[index + 1];
+        }
+
+        @Override
+        Node with(Edit edit, int shift, int hash, Object key, Object value){
+            if(hash != this.hash){
+                // A different hash sharing the bits so far, split under a bitmap node
+                return new BitmapNode(edit, bitFor(this.hash, shift), new Object[]{null, this})
+                        .with(edit, shift, hash, key, value);
+            }
+
+            int index = indexOf(key);
+
+            if(index >= 0)
+                return array[index + 1] == value ? this : withSlot(edit, index + 1, value);
+
+            edit.sizeChange = 1;
+
+            Object[] newArray = Arrays.copyOf(array, array.length + 2);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+
+            if(this.edit == edit){
+                array = newArray;
+                return this;
+            }
+
+            return new CollisionNode(edit, hash, newArray);
+        }
+
+        @Override
+        Node without(Edit edit, int shift, int hash, Object key){
+            int index = indexOf(key);
+
+            if(index < 0)
+                return this;
+
+            edit.sizeChange = -1;
+
+            if(array.length == 2)
+                return null;
+
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+
+            if(this.edit == edit){
+                array = newArray;
+                return this;
+            }
+
+            return new CollisionNode(edit, hash, newArray);
+        }
+
+        @Override
+        Node editable(Edit edit){
+            return this.edit == edit ? this : new CollisionNode(edit, hash, array.clone());
+        }
+    }
+
+    // Depth first over the node arrays with an explicit stack, deep enough for 7 bitmap levels and a collision node
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Object[][] arrays = new Object[8][];
+        private final int[] positions = new int[8];
+        private int depth = -1;
+
+        private Object nextKey;
+        private Object nextValue;
+
+        EntryIterator(Node root){
+            if(root != null){
+                arrays[++depth] = root.array;
+                advance();
+            }
+        }
+
+        private void advance(){
+            nextKey = null;
+
+            while(depth >= 0){
+                var array = arrays[depth];
+                int position = positions[depth];
+
+                if(position == array.length){
+                    positions[depth--] = 0;
+                    continue;
+                }
+
+                positions[depth] = position + 2;
+
+                if(array[position] != null){
+                    nextKey = array[position];
+                    nextValue = array[position + 1];
+                    return;
+                }
+
+                arrays[++depth] = ((Node) array[position + 1]).array;
+            }
+        }
+
+        @Override
+        public boolean hasNext(){
+            return nextKey != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next(){
+            if(nextKey == null)
+                throw new NoSuchElementException();
+
+            var entry = Map.entry((K) nextKey, (V) nextValue);
+            advance();
+
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.*;
+
+// The operations of CompactGraph and OffHeapGraph, over nodes interned to dense int ids. The two only differ in
+// where a node's links are kept, which is up to the LinkRows they pass in: interning, the bidirectional split
+// search, component walks and merges live here once. GraphNode and LinkType objects only show up at the edges
+// of the API.
+abstract class RowGraph<NodeType, LinkType, GraphType extends RowGraph<NodeType, LinkType, GraphType>> {
+    private static final int[] NO_IDS = new int[0];
+
+    private final NodeIndex<NodeType> nodeIds;
+    final LinkTypeCodes<LinkType> linkTypeCodes;
+    final LinkRows rows;
+
+    // Indexed by node id, ids of removed nodes are handed out again
+    private GraphNode<NodeType>[] nodes;
+
+    private int nodeCount;
+    private int idLimit;
+    private int[] freeIds = NO_IDS;
+    private int freeIdCount;
+
+    // Traversal buffers, visit marks are compared against an epoch bumped per traversal so they never need clearing
+    private int[] visitMarks = NO_IDS;
+    private int visitEpoch;
+    private int[] nodesToVisit = NO_IDS;
+    private int[] otherNodesToVisit = NO_IDS;
+
+    // Graphs split off from each other share the link type codes, so their rows can be copied as they are
+    RowGraph(LinkTypeCodes<LinkType> linkTypeCodes, LinkRows rows, int expectedNodes){
+        this.linkTypeCodes = linkTypeCodes;
+        this.rows = rows;
+        this.nodeIds = new NodeIndex<>(expectedNodes);
+        allocateNodes(Math.max(expectedNodes, 1));
+    }
+
+    // Empty graph of the same kind, sharing this graph's link type codes, for the components split off
+    abstract GraphType newGraph(int expectedNodes);
+
+    public boolean addNode(GraphNode<NodeType> node, GraphNode<NodeType> connectedTo, LinkType linkType){
+        int connectedToId = nodeIds.get(connectedTo);
+
+        if(nodeIds.get(node) != NodeIndex.MISSING || connectedToId == NodeIndex.MISSING)
+            return false;
+
+        int nodeId = intern(node);
+        int linkCode = linkTypeCodes.codeOf(linkType);
+
+        addLink_unsafe(nodeId, connectedToId, linkCode);
+        addLink_unsafe(connectedToId, nodeId, linkCode);
+
+        return true;
+    }
+
+    public boolean addLink(GraphNode<NodeType> node1, GraphNode<NodeType> node2, LinkType linkType){
+        int node1Id = nodeIds.get(node1);
+        int node2Id = nodeIds.get(node2);
+
+        if(node1Id == NodeIndex.MISSING || node2Id == NodeIndex.MISSING)
+            return false;
+
+        int linkCode = linkTypeCodes.codeOf(linkType);
+
+        addLink_unsafe(node1Id, node2Id, linkCode);
+        addLink_unsafe(node2Id, node1Id, linkCode);
+
+        return true;
+    }
+
+    public Map<GraphNode<NodeType>, Set<GraphLink<NodeType, LinkType>>> getAdjacencies(){
+        Map<GraphNode<NodeType>, Set<GraphLink<NodeType, LinkType>>> adjacencies = new HashMap<>(nodeCount);
+
+        for(int id = 0; id < idLimit; id++){
+            if(nodes[id] == null)
+                continue;
+
+            int degree = rows.degree(id);
+            HashSet<GraphLink<NodeType, LinkType>> links = HashSet.newHashSet(degree);
+
+            for(int i = 0; i < degree; i++)
+                links.add(new GraphLink<>(nodes[rows.neighborAt(id, i)], linkTypeCodes.typeOf(rows.linkCodeAt(id, i))));
+
+            adjacencies.put(nodes[id], links);
+        }
+
+        return Collections.unmodifiableMap(adjacencies);
+    }
+
+    public Optional<GraphType> removeConnectionAndSplit(GraphNode<NodeType> node1, GraphNode<NodeType> node2){
+        int node1Id = nodeIds.get(node1);
+        int node2Id = nodeIds.get(node2);
+
+        // Nodes not in network
+        if(node1Id == NodeIndex.MISSING || node2Id == NodeIndex.MISSING)
+            return Optional.empty();
+
+        removeLinks_unsafe(node1Id, node2Id);
+        removeLinks_unsafe(node2Id, node1Id);
+
+        if(node1Id == node2Id)
+            return Optional.empty();
+
+        // Same bidirectional search as Graph, node2's side goes first so on a tie it is the one split off
+        ensureTraversalBuffers();
+        int node1Mark = nextVisitEpoch();
+        int node2Mark = nextVisitEpoch();
+
+        visitMarks[node1Id] = node1Mark;
+        nodesToVisit[0] = node1Id;
+        int node1Head = 0, node1Tail = 1;
+
+        visitMarks[node2Id] = node2Mark;
+        otherNodesToVisit[0] = node2Id;
+        int node2Head = 0, node2Tail = 1;
+
+        while(true){
+            node2Tail = visitNext(otherNodesToVisit, node2Head++, node2Tail, node2Mark, node1Mark);
+
+            // Nodes still connected after link removal
+            if(node2Tail < 0)
+                return Optional.empty();
+            if(node2Head == node2Tail)
+                return Optional.of(moveToNewGraph(otherNodesToVisit, node2Tail, nodesToVisit));
+
+            node1Tail = visitNext(nodesToVisit, node1Head++, node1Tail, node1Mark, node2Mark);
+
+            if(node1Tail < 0)
+                return Optional.empty();
+            if(node1Head == node1Tail)
+                return Optional.of(moveToNewGraph(nodesToVisit, node1Tail, otherNodesToVisit));
+        }
+    }
+
+    public Optional<Set<GraphType>> removeNodeAndSplit(GraphNode<NodeType> node){
+        int nodeId = nodeIds.get(node);
+
+        if(nodeId == NodeIndex.MISSING)
+            return Optional.empty();
+
+        int[] danglingIds = new int[rows.degree(nodeId)];
+        for(int i = 0; i < danglingIds.length; i++)
+            danglingIds[i] = rows.neighborAt(nodeId, i);
+
+        for(int danglingId : danglingIds){
+            if(danglingId != nodeId)
+                removeLinks_unsafe(danglingId, nodeId);
+        }
+        release(nodeId);
+
+        HashSet<GraphType> newGraphs = new HashSet<>();
+
+        if(danglingIds.length == 0)
+            return Optional.of(newGraphs);
+
+        ensureTraversalBuffers();
+        int thisGraphMark = -1;
+
+        // The first dangling node's part stays in this graph, every other part not reached yet becomes a new graph
+        for(int danglingId : danglingIds){
+            if(danglingId == nodeId || nodes[danglingId] == null || visitMarks[danglingId] == thisGraphMark)
+                continue;
+
+            int mark = nextVisitEpoch();
+            int componentSize = markComponent(danglingId, mark);
+
+            if(thisGraphMark == -1)
+                thisGraphMark = mark;
+            else
+                newGraphs.add(moveToNewGraph(nodesToVisit, componentSize, otherNodesToVisit));
+        }
+
+        return Optional.of(newGraphs);
+    }
+
+    public void mergeWith(GraphNode<NodeType> thisGraphNode, GraphType other, GraphNode<NodeType> otherGraphNode, LinkType linkType){
+        // Private members are not reachable through the type variable
+        RowGraph<NodeType, LinkType, GraphType> otherGraph = other;
+        int thisGraphNodeId = nodeIds.get(thisGraphNode);
+        int otherGraphNodeId = otherGraph.nodeIds.get(otherGraphNode);
+
+        if(otherGraph == this || thisGraphNodeId == NodeIndex.MISSING || otherGraphNodeId == NodeIndex.MISSING)
+            return;
+
+        int[] newIds = new int[otherGraph.idLimit];
+        boolean[] alreadyPresent = new boolean[otherGraph.idLimit];
+        int[] newLinkCodes = linkTypeCodes.translationFrom(otherGraph.linkTypeCodes);
+
+        for(int otherId = 0; otherId < otherGraph.idLimit; otherId++){
+            if(otherGraph.nodes[otherId] == null)
+                continue;
+
+            int existingId = nodeIds.get(otherGraph.nodes[otherId]);
+            alreadyPresent[otherId] = existingId != NodeIndex.MISSING;
+            newIds[otherId] = alreadyPresent[otherId] ? existingId : intern(otherGraph.nodes[otherId]);
+        }
+
+        var otherRows = otherGraph.rows;
+        int[] neighbors = NO_IDS;
+        int[] codes = NO_IDS;
+
+        for(int otherId = 0; otherId < otherGraph.idLimit; otherId++){
+            int degree = otherGraph.nodes[otherId] == null ? 0 : otherRows.degree(otherId);
+
+            if(degree == 0)
+                continue;
+
+            if(neighbors.length < degree){
+                neighbors = new int[degree];
+                codes = new int[degree];
+            }
+
+            for(int i = 0; i < degree; i++){
+                int code = otherRows.linkCodeAt(otherId, i);
+
+                neighbors[i] = newIds[otherRows.neighborAt(otherId, i)];
+                codes[i] = newLinkCodes == null ? code : newLinkCodes[code];
+            }
+
+            // Rows of new nodes are taken over whole, only nodes both graphs have need their links merged
+            if(!alreadyPresent[otherId]){
+                rows.setRow(newIds[otherId], neighbors, codes, degree);
+            }
+            else{
+                for(int i = 0; i < degree; i++)
+                    addLink_unsafe(newIds[otherId], neighbors[i], codes[i]);
+            }
+        }
+
+        int linkCode = linkTypeCodes.codeOf(linkType);
+        addLink_unsafe(thisGraphNodeId, newIds[otherGraphNodeId], linkCode);
+        addLink_unsafe(newIds[otherGraphNodeId], thisGraphNodeId, linkCode);
+
+        otherGraph.clear();
+    }
+
+    public Set<GraphNode<NodeType>> getConnectedNodes(GraphNode<NodeType> node){
+        int nodeId = nodeIds.get(node);
+
+        if(nodeId == NodeIndex.MISSING)
+            return Set.of();
+
+        ensureTraversalBuffers();
+        int componentSize = markComponent(nodeId, nextVisitEpoch());
+
+        HashSet<GraphNode<NodeType>> connectedNodes = HashSet.newHashSet(componentSize);
+        for(int i = 0; i < componentSize; i++)
+            connectedNodes.add(nodes[nodesToVisit[i]]);
+
+        return connectedNodes;
+    }
+
+    public boolean canExist(){
+        return nodeCount > 0;
+    }
+
+    public int size(){
+        return nodeCount;
+    }
+
+    // Interns every node of graph and copies its links, each row is set once at its final size
+    void copyFrom(Graph<NodeType, LinkType> graph){
+        for(var node : graph.getNodes())
+            intern(node);
+
+        int[] neighbors = NO_IDS;
+        int[] codes = NO_IDS;
+
+        for(int id = 0; id < idLimit; id++){
+            var neighborLinkTypes = graph.getNeighbors(nodes[id]);
+
+            int degree = 0;
+            for(var linkTypes : neighborLinkTypes.values())
+                degree += linkTypes.size();
+
+            if(degree == 0)
+                continue;
+
+            if(neighbors.length < degree){
+                neighbors = new int[degree];
+                codes = new int[degree];
+            }
+
+            int i = 0;
+            for(var entry : neighborLinkTypes.entrySet()){
+                int neighborId = nodeIds.get(entry.getKey());
+
+                for(var linkType : entry.getValue()){
+                    neighbors[i] = neighborId;
+                    codes[i++] = linkTypeCodes.codeOf(linkType);
+                }
+            }
+
+            rows.setRow(id, neighbors, codes, degree);
+        }
+    }
+
+    // Shrinks every array to what it holds, for graphs that are done growing
+    void trimToSize(){
+        int capacity = Math.max(idLimit, 1);
+
+        rows.trimToSize(capacity);
+        nodes = Arrays.copyOf(nodes, capacity);
+        freeIds = Arrays.copyOf(freeIds, freeIdCount);
+
+        visitMarks = NO_IDS;
+        nodesToVisit = NO_IDS;
+        otherNodesToVisit = NO_IDS;
+    }
+
+    int intern(GraphNode<NodeType> node){
+        int id = freeIdCount > 0 ? freeIds[--freeIdCount] : idLimit++;
+
+        if(id >= nodes.length)
+            growNodes(id + 1);
+
+        nodes[id] = node;
+        nodeIds.put(node, id);
+        nodeCount++;
+
+        return id;
+    }
+
+    private void release(int id){
+        rows.clearRow(id);
+
+        nodeIds.remove(nodes[id]);
+        nodes[id] = null;
+
+        if(freeIdCount == freeIds.length)
+            freeIds = Arrays.copyOf(freeIds, Math.max(4, freeIdCount * 2));
+        freeIds[freeIdCount++] = id;
+
+        nodeCount--;
+    }
+
+    private void clear(){
+        nodeIds.clear();
+        rows.clear();
+        allocateNodes(1);
+        nodeCount = 0;
+        idLimit = 0;
+        freeIds = NO_IDS;
+        freeIdCount = 0;
+        visitMarks = NO_IDS;
+        nodesToVisit = NO_IDS;
+        otherNodesToVisit = NO_IDS;
+    }
+
+    private void addLink_unsafe(int fromId, int toId, int linkCode){
+        int degree = rows.degree(fromId);
+
+        for(int i = 0; i < degree; i++){
+            if(rows.neighborAt(fromId, i) == toId && rows.linkCodeAt(fromId, i) == linkCode)
+                return;
+        }
+
+        rows.append(fromId, toId, linkCode);
+    }
+
+    // Drops every link from fromId to toId, whatever its type
+    private void removeLinks_unsafe(int fromId, int toId){
+        for(int i = rows.degree(fromId) - 1; i >= 0; i--){
+            if(rows.neighborAt(fromId, i) == toId)
+                rows.removeAt(fromId, i);
+        }
+    }
+
+    // Visits queue[head], returns the new tail or -1 as soon as a node marked by the other side is found
+    private int visitNext(int[] queue, int head, int tail, int mark, int otherSideMark){
+        int currentId = queue[head];
+        int degree = rows.degree(currentId);
+
+        for(int i = 0; i < degree; i++){
+            int neighborId = rows.neighborAt(currentId, i);
+
+            if(visitMarks[neighborId] == otherSideMark)
+                return -1;
+
+            if(visitMarks[neighborId] != mark){
+                visitMarks[neighborId] = mark;
+                queue[tail++] = neighborId;
+            }
+        }
+
+        return tail;
+    }
+
+    // BFS from startId, leaves the ids of the whole component in nodesToVisit and returns how many there are
+    private int markComponent(int startId, int mark){
+        visitMarks[startId] = mark;
+        nodesToVisit[0] = startId;
+
+        int head = 0, tail = 1;
+        while(head < tail){
+            int currentId = nodesToVisit[head++];
+            int degree = rows.degree(currentId);
+
+            for(int i = 0; i < degree; i++){
+                int neighborId = rows.neighborAt(currentId, i);
+
+                if(visitMarks[neighborId] != mark){
+                    visitMarks[neighborId] = mark;
+                    nodesToVisit[tail++] = neighborId;
+                }
+            }
+        }
+
+        return tail;
+    }
+
+    // Moves a whole component to a new graph, its nodes get the ids 0..count-1 there.
+    // newIds is a scratch buffer at least as long as this graph's id range.
+    private GraphType moveToNewGraph(int[] componentIds, int count, int[] newIds){
+        GraphType newGraph = newGraph(count);
+
+        for(int i = 0; i < count; i++)
+            newIds[componentIds[i]] = newGraph.intern(nodes[componentIds[i]]);
+
+        int[] neighbors = NO_IDS;
+        int[] codes = NO_IDS;
+
+        for(int i = 0; i < count; i++){
+            int oldId = componentIds[i];
+            int degree = rows.degree(oldId);
+
+            if(degree == 0)
+                continue;
+
+            if(neighbors.length < degree){
+                neighbors = new int[degree];
+                codes = new int[degree];
+            }
+
+            for(int j = 0; j < degree; j++){
+                neighbors[j] = newIds[rows.neighborAt(oldId, j)];
+                codes[j] = rows.linkCodeAt(oldId, j);
+            }
+
+            newGraph.rows.setRow(newIds[oldId], neighbors, codes, degree);
+        }
+
+        for(int i = 0; i < count; i++)
+            release(componentIds[i]);
+
+        return newGraph;
+    }
+
+    private void ensureTraversalBuffers(){
+        if(visitMarks.length < idLimit){
+            visitMarks = new int[nodes.length];
+            visitEpoch = 0;
+        }
+
+        if(nodesToVisit.length < idLimit){
+            nodesToVisit = new int[nodes.length];
+            otherNodesToVisit = new int[nodes.length];
+        }
+    }
+
+    private int nextVisitEpoch(){
+        if(visitEpoch == Integer.MAX_VALUE){
+            Arrays.fill(visitMarks, 0);
+            visitEpoch = 0;
+        }
+
+        return ++visitEpoch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocateNodes(int capacity){
+        nodes = (GraphNode<NodeType>[]) new GraphNode[capacity];
+        rows.ensureCapacity(capacity);
+    }
+
+    private void growNodes(int minCapacity){
+        int capacity = Math.max(minCapacity, nodes.length + (nodes.length >> 1));
+
+        nodes = Arrays.copyOf(nodes, capacity);
+        rows.ensureCapacity(capacity);
+    }
+}
@@ -0,0 +1,6 @@
+package dev.mrcabbagestick.graph.graph;
+
+public enum TraversalOrder {
+    BREADTH_FIRST,
+    DEPTH_FIRST
+}
@@ -0,0 +1,4 @@
+package dev.mrcabbagestick.graph.graph;
+
+// reachedFrom and reachedBy are null for the node a traversal starts at, reachedBy.node() is always node
+public record TraversalStep<NodeType, LinkType>(GraphNode<NodeType> node, int depth, GraphNode<NodeType> reachedFrom, GraphLink<NodeType, LinkType> reachedBy){}
@@ -0,0 +1,287 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactGraphTests {
+
+    @Test
+    void compactGraphLinkAddition_Triangle(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        CompactGraph<String, LinkType> graph = new CompactGraph<>(nodeA);
+
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeC, nodeB, LinkType.TYPE_2));
+        assertTrue(graph.addLink(nodeC, nodeA, LinkType.TYPE_3));
+        assertFalse(graph.addNode(nodeC, nodeA, LinkType.TYPE_1));
+        assertFalse(graph.addLink(nodeC, new GraphNode<>("X"), LinkType.TYPE_1));
+
+        Map<GraphNode<String>, Set<GraphLink<String, LinkType>>> correctStructure = Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_1), new GraphLink<>(nodeC, LinkType.TYPE_3)),
+                nodeB, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_1), new GraphLink<>(nodeC, LinkType.TYPE_2)),
+                nodeC, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_3), new GraphLink<>(nodeB, LinkType.TYPE_2))
+        );
+
+        assertEquals(correctStructure, graph.getAdjacencies());
+        assertEquals(Set.of(nodeA, nodeB, nodeC), graph.getConnectedNodes(nodeB));
+    }
+
+    @Test
+    void compactGraphConnectionRemoval_NoSplit_Triangle(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        CompactGraph<String, LinkType> graph = new CompactGraph<>(nodeA);
+
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeC, nodeB, LinkType.TYPE_2));
+        assertTrue(graph.addLink(nodeC, nodeA, LinkType.TYPE_3));
+
+        assertEquals(Optional.empty(), graph.removeConnectionAndSplit(nodeA, nodeB));
+
+        Map<GraphNode<String>, Set<GraphLink<String, LinkType>>> correctStructure = Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeC, LinkType.TYPE_3)),
+                nodeB, Set.of(new GraphLink<>(nodeC, LinkType.TYPE_2)),
+                nodeC, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_3), new GraphLink<>(nodeB, LinkType.TYPE_2))
+        );
+
+        assertEquals(correctStructure, graph.getAdjacencies());
+    }
+
+    @Test
+    void compactGraphConnectionRemoval_Split_FourNodes(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        CompactGraph<String, LinkType> graph = new CompactGraph<>(nodeA);
+
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+        GraphNode<String> nodeD = new GraphNode<>("D");
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeC, nodeB, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeD, nodeC, LinkType.TYPE_2));
+
+        var newGraph = graph.removeConnectionAndSplit(nodeB, nodeC);
+        assertFalse(newGraph.isEmpty());
+
+        assertEquals(Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_1)),
+                nodeB, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_1))
+        ), graph.getAdjacencies());
+
+        assertEquals(Map.of(
+                nodeC, Set.of(new GraphLink<>(nodeD, LinkType.TYPE_2)),
+                nodeD, Set.of(new GraphLink<>(nodeC, LinkType.TYPE_2))
+        ), newGraph.get().getAdjacencies());
+
+        // Both halves keep working after the split, and freed ids are reused
+        GraphNode<String> nodeE = new GraphNode<>("E");
+        assertTrue(graph.addNode(nodeE, nodeB, LinkType.TYPE_3));
+        assertTrue(newGraph.get().addLink(nodeD, nodeC, LinkType.TYPE_3));
+
+        assertEquals(Set.of(nodeA, nodeB, nodeE), graph.getConnectedNodes(nodeA));
+        assertEquals(Set.of(nodeC, nodeD), newGraph.get().getConnectedNodes(nodeD));
+        assertEquals(3, graph.size());
+    }
+
+    @Test
+    void compactGraphNodeRemoval_Split_FiveNodes(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        CompactGraph<String, LinkType> graph = new CompactGraph<>(nodeA);
+
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+        GraphNode<String> nodeD = new GraphNode<>("D");
+        GraphNode<String> nodeE = new GraphNode<>("E");
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeC, nodeB, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeD, nodeB, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeE, nodeD, LinkType.TYPE_1));
+
+        var _newGraphs = graph.removeNodeAndSplit(nodeB);
+        assertFalse(_newGraphs.isEmpty());
+
+        var newGraphs = _newGraphs.get().stream().toList();
+        assertEquals(2, newGraphs.size());
+
+        var structures = Set.of(
+                newGraphs.get(0).getAdjacencies(),
+                newGraphs.get(1).getAdjacencies(),
+                graph.getAdjacencies()
+        );
+
+        var correctStructures = Set.of(
+                Map.of(nodeA, Set.of()),
+                Map.of(nodeC, Set.of()),
+                Map.of(
+                        nodeD, Set.of(new GraphLink<>(nodeE, LinkType.TYPE_1)),
+                        nodeE, Set.of(new GraphLink<>(nodeD, LinkType.TYPE_1))
+                )
+        );
+
+        assertEquals(correctStructures, structures);
+    }
+
+    @Test
+    void compactGraphNodeRemoval_NoSplit_SingleNode(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        CompactGraph<String, LinkType> graph = new CompactGraph<>(nodeA);
+
+        assertEquals(Optional.of(Set.of()), graph.removeNodeAndSplit(nodeA));
+        assertEquals(Map.of(), graph.getAdjacencies());
+        assertFalse(graph.canExist());
+    }
+
+    @Test
+    void compactGraphMerge_1And3(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        CompactGraph<String, LinkType> graph1 = new CompactGraph<>(nodeA);
+
+        GraphNode<String> nodeX = new GraphNode<>("X");
+        GraphNode<String> nodeY = new GraphNode<>("Y");
+        GraphNode<String> nodeZ = new GraphNode<>("Z");
+        CompactGraph<String, LinkType> graph2 = new CompactGraph<>(nodeX);
+
+        graph2.addNode(nodeY, nodeX, LinkType.TYPE_2);
+        graph2.addNode(nodeZ, nodeX, LinkType.TYPE_3);
+
+        graph1.mergeWith(nodeA, graph2, nodeX, LinkType.TYPE_1);
+
+        assertEquals(Map.of(), graph2.getAdjacencies());
+        assertFalse(graph2.canExist());
+
+        var correctGraph1Structure = Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeX, LinkType.TYPE_1)),
+                nodeX, Set.of(
+                        new GraphLink<>(nodeA, LinkType.TYPE_1),
+                        new GraphLink<>(nodeY, LinkType.TYPE_2),
+                        new GraphLink<>(nodeZ, LinkType.TYPE_3)
+                ),
+                nodeY, Set.of(new GraphLink<>(nodeX, LinkType.TYPE_2)),
+                nodeZ, Set.of(new GraphLink<>(nodeX, LinkType.TYPE_3))
+        );
+
+        assertEquals(correctGraph1Structure, graph1.getAdjacencies());
+    }
+
+    @Test
+    void compactGraph_ManyNodes(){
+        GraphNode<Integer> root = new GraphNode<>(0);
+        CompactGraph<Integer, LinkType> graph = new CompactGraph<>(root);
+
+        // Chain 0-1-...-999 with every tenth node also linked back to the root
+        for(int i = 1; i < 1000; i++){
+            assertTrue(graph.addNode(new GraphNode<>(i), new GraphNode<>(i - 1), LinkType.TYPE_1));
+            if(i % 10 == 0)
+                assertTrue(graph.addLink(new GraphNode<>(i), root, LinkType.TYPE_2));
+        }
+        graph.trimToSize();
+
+        assertEquals(1000, graph.getConnectedNodes(new GraphNode<>(500)).size());
+        assertEquals(Optional.empty(), graph.removeConnectionAndSplit(new GraphNode<>(500), new GraphNode<>(501)));
+
+        var newGraph = graph.removeConnectionAndSplit(new GraphNode<>(998), new GraphNode<>(999));
+        assertFalse(newGraph.isEmpty());
+        assertEquals(Set.of(new GraphNode<>(999)), newGraph.get().getConnectedNodes(new GraphNode<>(999)));
+        assertEquals(999, graph.size());
+    }
+
+    @Test
+    void compactGraph_MatchesGraphThroughTrims(){
+        Random random = new Random(5);
+        List<Graph<Integer, LinkType>> expectedGraphs = new ArrayList<>(List.of(new Graph<>(new GraphNode<>(0))));
+        List<CompactGraph<Integer, LinkType>> graphs = new ArrayList<>(List.of(new CompactGraph<>(new GraphNode<>(0))));
+
+        // Rows grow, move and free slots in the shared arrays, trimToSize packs them in between
+        for(int step = 1; step < 5000; step++){
+            var node1 = new GraphNode<>(random.nextInt(200));
+            var node2 = new GraphNode<>(random.nextInt(200));
+            var linkType = LinkType.values()[random.nextInt(3)];
+
+            int expectedIndex = indexOf(expectedGraphs, expectedGraph -> expectedGraph.getNodes().contains(node1));
+            int index = indexOf(graphs, compactGraph -> !compactGraph.getConnectedNodes(node1).isEmpty());
+
+            if(expectedIndex < 0){
+                expectedGraphs.add(new Graph<>(node1));
+                graphs.add(new CompactGraph<>(node1));
+                continue;
+            }
+
+            var expected = expectedGraphs.get(expectedIndex);
+            var graph = graphs.get(index);
+
+            switch(random.nextInt(6)){
+                case 0 -> {
+                    if(indexOf(expectedGraphs, expectedGraph -> expectedGraph.getNodes().contains(node2)) < 0)
+                        assertEquals(expected.addNode(node2, node1, linkType), graph.addNode(node2, node1, linkType));
+                }
+                case 1, 2 -> assertEquals(expected.addLink(node1, node2, linkType), graph.addLink(node1, node2, linkType));
+                case 3 -> {
+                    expected.removeConnectionAndSplit(node1, node2).ifPresent(expectedGraphs::add);
+                    graph.removeConnectionAndSplit(node1, node2).ifPresent(graphs::add);
+                }
+                case 4 -> {
+                    expectedGraphs.addAll(expected.removeNodeAndSplit(node1).get());
+                    graphs.addAll(graph.removeNodeAndSplit(node1).get());
+                }
+                default -> {
+                    int otherExpectedIndex = indexOf(expectedGraphs, expectedGraph -> expectedGraph.getNodes().contains(node2));
+
+                    if(otherExpectedIndex >= 0 && otherExpectedIndex != expectedIndex){
+                        int otherIndex = indexOf(graphs, compactGraph -> !compactGraph.getConnectedNodes(node2).isEmpty());
+
+                        expected.mergeWith(node1, expectedGraphs.get(otherExpectedIndex), node2, linkType);
+                        graph.mergeWith(node1, graphs.get(otherIndex), node2, linkType);
+                    }
+                }
+            }
+
+            expectedGraphs.removeIf(expectedGraph -> !expectedGraph.canExist());
+            graphs.removeIf(compactGraph -> !compactGraph.canExist());
+
+            if(step % 250 == 0)
+                graphs.forEach(CompactGraph::trimToSize);
+
+            // Which part stays in a graph may differ, so only the union and the partition are compared
+            if(step % 50 == 0){
+                assertEquals(union(expectedGraphs.stream().map(Graph::getAdjacencies).toList()), union(graphs.stream().map(CompactGraph::getAdjacencies).toList()), "step " + step);
+                assertEquals(
+                        expectedGraphs.stream().map(expectedGraph -> Set.copyOf(expectedGraph.getNodes())).collect(Collectors.toSet()),
+                        graphs.stream().map(compactGraph -> Set.copyOf(compactGraph.getAdjacencies().keySet())).collect(Collectors.toSet())
+                );
+            }
+        }
+    }
+
+    private static <AnyGraph> int indexOf(List<AnyGraph> graphs, Predicate<AnyGraph> containsNode){
+        for(int i = 0; i < graphs.size(); i++){
+            if(containsNode.test(graphs.get(i)))
+                return i;
+        }
+
+        return -1;
+    }
+
+    private static Map<GraphNode<Integer>, Set<GraphLink<Integer, LinkType>>> union(List<Map<GraphNode<Integer>, Set<GraphLink<Integer, LinkType>>>> adjacencies){
+        Map<GraphNode<Integer>, Set<GraphLink<Integer, LinkType>>> union = new HashMap<>();
+        adjacencies.forEach(union::putAll);
+
+        return union;
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
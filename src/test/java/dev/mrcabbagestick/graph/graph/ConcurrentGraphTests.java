@@ -0,0 +1,159 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentGraphTests {
+
+    @Test
+    void concurrentGraphLinkAddition_Triangle(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        ConcurrentGraph<String, LinkType> graph = new ConcurrentGraph<>(nodeA);
+
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeC, nodeB, LinkType.TYPE_2));
+        assertTrue(graph.addLink(nodeC, nodeA, LinkType.TYPE_3));
+        assertFalse(graph.addNode(nodeB, nodeC, LinkType.TYPE_1));
+
+        Map<GraphNode<String>, Set<GraphLink<String, LinkType>>> correctStructure = Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_1), new GraphLink<>(nodeC, LinkType.TYPE_3)),
+                nodeB, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_1), new GraphLink<>(nodeC, LinkType.TYPE_2)),
+                nodeC, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_3), new GraphLink<>(nodeB, LinkType.TYPE_2))
+        );
+
+        assertEquals(correctStructure, graph.getAdjacencies());
+        assertEquals(Optional.empty(), graph.removeConnectionAndSplit(nodeA, nodeB));
+        assertEquals(Set.of(nodeA, nodeB, nodeC), graph.getConnectedNodes(nodeA));
+    }
+
+    @Test
+    void concurrentGraphSplitAndMerge(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        ConcurrentGraph<String, LinkType> graph = new ConcurrentGraph<>(nodeA);
+
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeC, nodeB, LinkType.TYPE_2));
+
+        var newGraphs = graph.removeNodeAndSplit(nodeB);
+        assertEquals(1, newGraphs.get().size());
+
+        var otherGraph = newGraphs.get().iterator().next();
+        var remainingNode = graph.getConnectedNodes(nodeA).isEmpty() ? nodeC : nodeA;
+        var otherNode = remainingNode == nodeA ? nodeC : nodeA;
+
+        graph.mergeWith(remainingNode, otherGraph, otherNode, LinkType.TYPE_3);
+
+        assertFalse(otherGraph.canExist());
+        assertEquals(Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeC, LinkType.TYPE_3)),
+                nodeC, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_3))
+        ), graph.getAdjacencies());
+    }
+
+    @Test
+    void concurrentGraph_StressKeepsAdjacencySymmetric() throws Exception{
+        final int baseNodes = 200;
+        final int writers = 6;
+        final int nodesPerWriter = 3000;
+
+        ConcurrentGraph<Integer, LinkType> graph = new ConcurrentGraph<>(new GraphNode<>(0));
+        for(int i = 1; i < baseNodes; i++)
+            assertTrue(graph.addNode(new GraphNode<>(i), new GraphNode<>(i - 1), LinkType.TYPE_1));
+
+        Queue<ConcurrentGraph<Integer, LinkType>> splitOffGraphs = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+
+        for(int writer = 0; writer < writers; writer++){
+            final int firstId = (writer + 1) * 1_000_000;
+
+            tasks.add(executor.submit(() -> {
+                Random random = new Random(firstId);
+                start.await();
+
+                for(int i = 0; i < nodesPerWriter; i++){
+                    var node = new GraphNode<>(firstId + i);
+                    var connectedTo = new GraphNode<>(i > 0 && random.nextBoolean() ? firstId + random.nextInt(i) : random.nextInt(baseNodes));
+
+                    // Fails when connectedTo was split off or removed in the meantime, that's fine
+                    if(graph.addNode(node, connectedTo, LinkType.TYPE_1) && random.nextInt(3) == 0)
+                        graph.addLink(node, new GraphNode<>(random.nextInt(baseNodes)), LinkType.values()[random.nextInt(3)]);
+                }
+                return null;
+            }));
+        }
+
+        // Structural changes running next to the writers
+        tasks.add(executor.submit(() -> {
+            Random random = new Random(1);
+            start.await();
+
+            for(int i = 0; i < 150; i++){
+                int node = 1 + random.nextInt(baseNodes - 2);
+                graph.removeConnectionAndSplit(new GraphNode<>(node), new GraphNode<>(node + 1)).ifPresent(splitOffGraphs::add);
+            }
+            for(int i = 0; i < 20; i++)
+                graph.removeNodeAndSplit(new GraphNode<>(1_000_000 + random.nextInt(nodesPerWriter))).ifPresent(splitOffGraphs::addAll);
+            return null;
+        }));
+
+        // Lock free readers must never fail, whatever state they catch
+        tasks.add(executor.submit(() -> {
+            Random random = new Random(2);
+            start.await();
+
+            for(int i = 0; i < 200; i++){
+                var node = new GraphNode<>(random.nextInt(baseNodes));
+                var connectedNodes = graph.getConnectedNodes(node);
+
+                assertTrue(connectedNodes.isEmpty() || connectedNodes.contains(node));
+                graph.getAdjacencies();
+            }
+            return null;
+        }));
+
+        start.countDown();
+        for(var task : tasks)
+            task.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        List<ConcurrentGraph<Integer, LinkType>> allGraphs = new ArrayList<>(splitOffGraphs);
+        allGraphs.add(graph);
+
+        HashSet<GraphNode<Integer>> seenNodes = new HashSet<>();
+
+        for(var someGraph : allGraphs){
+            var adjacencies = someGraph.getAdjacencies();
+
+            // Every link is stored from both ends, with the same type
+            adjacencies.forEach((node, links) -> links.forEach(link -> {
+                assertTrue(adjacencies.containsKey(link.node()));
+                assertTrue(adjacencies.get(link.node()).contains(new GraphLink<>(node, link.type())));
+            }));
+
+            // Each graph is one connected component and no node is in two graphs
+            if(!adjacencies.isEmpty())
+                assertEquals(adjacencies.keySet(), someGraph.getConnectedNodes(adjacencies.keySet().iterator().next()));
+
+            for(var node : adjacencies.keySet())
+                assertTrue(seenNodes.add(node));
+        }
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
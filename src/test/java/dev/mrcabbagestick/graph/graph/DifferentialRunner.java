@@ -0,0 +1,357 @@
+package dev.mrcabbagestick.graph.graph;
+
+import dev.mrcabbagestick.graph.graph.GraphWorkload.Kind;
+import dev.mrcabbagestick.graph.graph.GraphWorkload.Step;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Replays a GraphWorkload against Graph objects, one per component like GraphForest keeps them, and with
+// verification on also against ReferenceGraph, a plain map of maps that finds components by walking them.
+// Every result must match the reference, and after each step the graphs are checked as a whole: links are
+// symmetric, their union is exactly the reference and every graph holds one whole component.
+//
+// The given features are switched on for every graph the runner starts or adopts from a split, and checked too:
+// cached components must match the reference, a snapshot taken before a step must not see it while a new one
+// must, and walks restricted to one link type must match the reference's.
+//
+// Steps that make no sense at that point are skipped, e.g. adding a node some graph already has. Without
+// verification only the Graph calls are left, which is what GraphWorkloadBenchmarks times.
+final class DifferentialRunner<LinkType> {
+    enum Feature {
+        CONNECTIVITY_CACHE,
+        SNAPSHOTS,
+        LINK_TYPE_INDEX
+    }
+
+    private final boolean verify;
+    private final Set<Feature> features;
+    private final List<LinkType> linkTypes;
+
+    private GraphNode<Integer>[] nodes;
+    private final Map<GraphNode<Integer>, Graph<Integer, LinkType>> owners = new HashMap<>();
+    private final Set<Graph<Integer, LinkType>> graphs = Collections.newSetFromMap(new IdentityHashMap<>());
+    private ReferenceGraph<LinkType> reference;
+    private Report report;
+
+    DifferentialRunner(boolean verify){
+        this(verify, Set.of(), List.of());
+    }
+
+    // linkTypes are the ones the workload uses, restricted walks are checked for each of them
+    DifferentialRunner(boolean verify, Set<Feature> features, List<LinkType> linkTypes){
+        this.verify = verify;
+        this.features = features.isEmpty() ? EnumSet.noneOf(Feature.class) : EnumSet.copyOf(features);
+        this.linkTypes = List.copyOf(linkTypes);
+    }
+
+    @SuppressWarnings("unchecked")
+    Report run(GraphWorkload<LinkType> workload){
+        // Nodes are made once up front, the graph calls only see shared instances as with a NodeInterner
+        nodes = new GraphNode[workload.maxNodes()];
+        for(int i = 0; i < nodes.length; i++)
+            nodes[i] = new GraphNode<>(i);
+
+        owners.clear();
+        graphs.clear();
+        reference = verify ? new ReferenceGraph<>() : null;
+        report = new Report();
+
+        var steps = workload.steps();
+
+        for(int i = 0; i < steps.size(); i++){
+            var step = steps.get(i);
+            String context = "step " + i + ": " + step;
+
+            // Taken before the step, it has to look the same afterwards whatever the step did
+            var graph = owners.get(nodes[step.node1()]);
+            GraphSnapshot<Integer, LinkType> snapshotBefore = null;
+            Map<GraphNode<Integer>, Set<GraphLink<Integer, LinkType>>> adjacenciesBefore = null;
+
+            if(verify && graph != null && features.contains(Feature.SNAPSHOTS)){
+                snapshotBefore = graph.snapshot();
+                adjacenciesBefore = graph.getAdjacencies();
+            }
+
+            if(!apply(step, context) || !verify)
+                continue;
+
+            if(snapshotBefore != null)
+                assertEquals(adjacenciesBefore, snapshotBefore.getAdjacencies(), context);
+
+            verifyGraphs(context);
+        }
+
+        return report;
+    }
+
+    // False if the step was skipped
+    private boolean apply(Step<LinkType> step, String context){
+        var node1 = nodes[step.node1()];
+        var node2 = nodes[step.node2()];
+        var graph = owners.get(node1);
+
+        switch(step.kind()){
+            case ADD_NODE -> {
+                if(graph != null)
+                    return false;
+
+                var connectedToGraph = owners.get(node2);
+
+                // Nothing to connect to, the node starts a graph of its own
+                if(connectedToGraph == null){
+                    adopt(new Graph<>(node1));
+                    if(verify)
+                        reference.addNode(step.node1());
+
+                    return true;
+                }
+
+                boolean added = connectedToGraph.addNode(node1, node2, step.linkType());
+
+                if(verify){
+                    reference.addNode(step.node1());
+                    reference.link(step.node1(), step.node2(), step.linkType());
+                    assertTrue(added, context);
+                }
+
+                owners.put(node1, connectedToGraph);
+            }
+            case ADD_LINK -> {
+                if(graph == null)
+                    return false;
+
+                boolean added = graph.addLink(node1, node2, step.linkType());
+
+                if(verify){
+                    boolean expected = reference.contains(step.node2()) && reference.component(step.node1()).contains(step.node2());
+                    if(expected)
+                        reference.link(step.node1(), step.node2(), step.linkType());
+
+                    assertEquals(expected, added, context);
+                }
+            }
+            case REMOVE_CONNECTION_AND_SPLIT -> {
+                if(graph == null)
+                    return false;
+
+                var newGraph = graph.removeConnectionAndSplit(node1, node2);
+
+                if(verify){
+                    boolean split = reference.unlink(step.node1(), step.node2()) && step.node1() != step.node2()
+                            && !reference.component(step.node1()).contains(step.node2());
+
+                    assertEquals(split, newGraph.isPresent(), context);
+
+                    // Either side may move out when both are the same size
+                    newGraph.ifPresent(splitOff -> assertTrue(
+                            toIds(splitOff.getNodes()).equals(reference.component(step.node1()))
+                                    || toIds(splitOff.getNodes()).equals(reference.component(step.node2())),
+                            context
+                    ));
+                }
+
+                newGraph.ifPresent(this::adopt);
+            }
+            case REMOVE_NODE_AND_SPLIT -> {
+                if(graph == null)
+                    return false;
+
+                var newGraphs = graph.removeNodeAndSplit(node1);
+
+                assertTrue(newGraphs.isPresent(), context);
+
+                if(verify){
+                    var neighbors = reference.removeNode(step.node1());
+                    Set<Set<Integer>> components = new HashSet<>();
+                    neighbors.forEach(neighbor -> components.add(reference.component(neighbor)));
+
+                    assertEquals(Math.max(components.size() - 1, 0), newGraphs.get().size(), context);
+                }
+
+                owners.remove(node1);
+                newGraphs.get().forEach(this::adopt);
+                if(!graph.canExist())
+                    graphs.remove(graph);
+            }
+            case MERGE_WITH -> {
+                var otherGraph = owners.get(node2);
+
+                if(graph == null || otherGraph == null)
+                    return false;
+
+                // Nodes of the absorbed graph, taken before the merge empties it
+                var absorbedNodes = graph == otherGraph ? Set.<GraphNode<Integer>>of() : Set.copyOf(otherGraph.getNodes());
+
+                var survivor = graph.mergeWith(node1, otherGraph, node2, step.linkType());
+
+                assertSame(graph, survivor, context);
+
+                if(verify && !reference.component(step.node1()).contains(step.node2()))
+                    reference.link(step.node1(), step.node2(), step.linkType());
+
+                if(graph != otherGraph){
+                    assertFalse(otherGraph.canExist(), context);
+
+                    graphs.remove(otherGraph);
+                    absorbedNodes.forEach(node -> owners.put(node, graph));
+                }
+            }
+        }
+
+        report.record(step.kind());
+        return true;
+    }
+
+    // Graphs split off start without any of the features, so they are switched on here
+    private void adopt(Graph<Integer, LinkType> graph){
+        if(features.contains(Feature.CONNECTIVITY_CACHE))
+            graph.enableConnectivityCache();
+        if(features.contains(Feature.SNAPSHOTS))
+            graph.snapshot();
+        if(features.contains(Feature.LINK_TYPE_INDEX))
+            graph.enableLinkTypeIndex();
+
+        graphs.add(graph);
+        graph.getNodes().forEach(node -> owners.put(node, graph));
+    }
+
+    private void verifyGraphs(String context){
+        int nodeCount = 0;
+
+        for(var graph : graphs){
+            assertTrue(graph.canExist(), context);
+            nodeCount += graph.size();
+
+            for(var node : graph.getNodes()){
+                assertSame(graph, owners.get(node), context);
+
+                var neighbors = graph.getNeighbors(node);
+                Map<Integer, Set<LinkType>> neighborIds = new HashMap<>();
+
+                for(var entry : neighbors.entrySet()){
+                    // Symmetric, and the other end lives in the same graph
+                    var backLinks = graph.getNeighbors(entry.getKey());
+                    assertNotNull(backLinks, context);
+                    assertEquals(entry.getValue(), backLinks.get(node), context);
+
+                    neighborIds.put(entry.getKey().data(), entry.getValue());
+                }
+
+                assertEquals(reference.neighbors(node.data()), neighborIds, context);
+            }
+
+            // No links leave a graph, so being connected makes it exactly one component. With the cache on this
+            // is asked twice, so the second answer comes from the cache.
+            var firstNode = graph.getNodes().iterator().next();
+            assertEquals(reference.component(firstNode.data()), toIds(graph.getConnectedNodes(firstNode)), context);
+
+            if(features.contains(Feature.CONNECTIVITY_CACHE)){
+                assertEquals(graph.getNodes(), graph.getConnectedNodes(firstNode), context);
+                graph.getNodes().forEach(node -> assertTrue(graph.isConnected(firstNode, node), context));
+            }
+
+            if(features.contains(Feature.SNAPSHOTS)){
+                var snapshot = graph.snapshot();
+
+                assertEquals(graph.size(), snapshot.size(), context);
+                assertEquals(graph.getAdjacencies(), snapshot.getAdjacencies(), context);
+            }
+
+            if(features.contains(Feature.LINK_TYPE_INDEX)){
+                for(var linkType : linkTypes)
+                    assertEquals(reference.component(firstNode.data(), linkType), toIds(graph.getConnectedNodes(firstNode, Set.of(linkType))), context);
+            }
+        }
+
+        assertEquals(reference.size(), nodeCount, context);
+    }
+
+    private static Set<Integer> toIds(Set<GraphNode<Integer>> nodes){
+        Set<Integer> ids = new HashSet<>();
+        nodes.forEach(node -> ids.add(node.data()));
+
+        return ids;
+    }
+
+    // Undirected multigraph with nothing clever in it, components are found by walking from a node every time
+    static final class ReferenceGraph<LinkType> {
+        private final Map<Integer, Map<Integer, Set<LinkType>>> links = new HashMap<>();
+
+        int size(){
+            return links.size();
+        }
+
+        boolean contains(int node){
+            return links.containsKey(node);
+        }
+
+        Map<Integer, Set<LinkType>> neighbors(int node){
+            return links.get(node);
+        }
+
+        void addNode(int node){
+            links.put(node, new HashMap<>());
+        }
+
+        void link(int node1, int node2, LinkType linkType){
+            links.get(node1).computeIfAbsent(node2, key -> new HashSet<>()).add(linkType);
+            links.get(node2).computeIfAbsent(node1, key -> new HashSet<>()).add(linkType);
+        }
+
+        // Removes links of every type, false if there were none
+        boolean unlink(int node1, int node2){
+            if(!contains(node1) || !contains(node2) || links.get(node1).remove(node2) == null)
+                return false;
+
+            links.get(node2).remove(node1);
+            return true;
+        }
+
+        // The former neighbors, not counting the node itself
+        Set<Integer> removeNode(int node){
+            var neighbors = links.remove(node).keySet();
+            neighbors.remove(node);
+            neighbors.forEach(neighbor -> links.get(neighbor).remove(node));
+
+            return neighbors;
+        }
+
+        Set<Integer> component(int node){
+            return component(node, null);
+        }
+
+        // Only following links of the given type, null for any
+        Set<Integer> component(int node, LinkType linkType){
+            Set<Integer> visited = new HashSet<>(List.of(node));
+            ArrayDeque<Integer> pending = new ArrayDeque<>(visited);
+
+            while(!pending.isEmpty()){
+                for(var entry : links.get(pending.poll()).entrySet()){
+                    if((linkType == null || entry.getValue().contains(linkType)) && visited.add(entry.getKey()))
+                        pending.add(entry.getKey());
+                }
+            }
+
+            return visited;
+        }
+    }
+
+    // Steps applied per kind of operation, skipped steps are not in it
+    static final class Report {
+        private final long[] operations = new long[Kind.values().length];
+
+        private void record(Kind kind){
+            operations[kind.ordinal()]++;
+        }
+
+        long operations(Kind kind){
+            return operations[kind.ordinal()];
+        }
+
+        long operations(){
+            return Arrays.stream(operations).sum();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphBatchTests {
+
+    private static Graph<Integer, LinkType> buildChain(int length){
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+
+        for(int i = 1; i < length; i++)
+            assertTrue(graph.addNode(new GraphNode<>(i), new GraphNode<>(i - 1), LinkType.TYPE_1));
+
+        return graph;
+    }
+
+    private static Set<Set<GraphNode<Integer>>> nodeSets(Set<Graph<Integer, LinkType>> graphs){
+        return graphs.stream().map(graph -> Set.copyOf(graph.getNodes())).collect(Collectors.toSet());
+    }
+
+    private static Set<GraphNode<Integer>> nodes(int... ids){
+        return Arrays.stream(ids).mapToObj(GraphNode::new).collect(Collectors.toSet());
+    }
+
+    @Test
+    void batchRemoval_SplitsOnceAtCommit(){
+        var graph = buildChain(10);
+
+        var graphs = graph.batch()
+                .removeConnection(new GraphNode<>(2), new GraphNode<>(3))
+                .removeConnection(new GraphNode<>(6), new GraphNode<>(7))
+                .removeNode(new GraphNode<>(8))
+                .commit();
+
+        assertEquals(Set.of(nodes(0, 1, 2), nodes(3, 4, 5, 6), nodes(7), nodes(9)), nodeSets(graphs));
+
+        // The largest part stays in the original graph
+        assertTrue(graphs.contains(graph));
+        assertEquals(nodes(3, 4, 5, 6), graph.getNodes());
+    }
+
+    @Test
+    void batchMixedOperations_AppliedInOrder(){
+        var graph = buildChain(4);
+
+        var graphs = graph.batch()
+                .addNode(new GraphNode<>(10), new GraphNode<>(3), LinkType.TYPE_2)
+                .removeConnection(new GraphNode<>(1), new GraphNode<>(2))
+                .addLink(new GraphNode<>(10), new GraphNode<>(0), LinkType.TYPE_3)
+                .removeNode(new GraphNode<>(5))
+                .commit();
+
+        assertEquals(Set.of(graph), graphs);
+        assertEquals(nodes(0, 1, 2, 3, 10), graph.getNodes());
+        assertEquals(
+                Set.of(new GraphLink<>(new GraphNode<>(3), LinkType.TYPE_2), new GraphLink<>(new GraphNode<>(0), LinkType.TYPE_3)),
+                graph.getAdjacencies().get(new GraphNode<>(10))
+        );
+    }
+
+    @Test
+    void batchOperations_SkippedWhenTheyNoLongerApply(){
+        var graph = buildChain(3);
+
+        var graphs = graph.batch()
+                .removeNode(new GraphNode<>(1))
+                .addNode(new GraphNode<>(5), new GraphNode<>(1), LinkType.TYPE_1)
+                .addLink(new GraphNode<>(0), new GraphNode<>(1), LinkType.TYPE_1)
+                .commit();
+
+        assertEquals(Set.of(nodes(0), nodes(2)), nodeSets(graphs));
+    }
+
+    @Test
+    void batchRemoval_EverythingRemoved(){
+        var graph = buildChain(2);
+
+        var graphs = graph.batch()
+                .removeNode(new GraphNode<>(0))
+                .removeNode(new GraphNode<>(1))
+                .commit();
+
+        assertEquals(Set.of(), graphs);
+        assertEquals(Map.of(), graph.getAdjacencies());
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
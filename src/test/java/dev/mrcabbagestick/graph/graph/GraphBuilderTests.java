@@ -0,0 +1,136 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphBuilderTests {
+
+    @Test
+    void builder_MatchesGraphBuiltLinkByLink(){
+        Random random = new Random(3);
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+        GraphBuilder<Integer, LinkType> builder = new GraphBuilder<>();
+
+        for(int i = 1; i < 1000; i++){
+            var node = new GraphNode<>(i);
+            var connectedTo = new GraphNode<>(random.nextInt(i));
+            var linkType = LinkType.values()[random.nextInt(3)];
+
+            assertTrue(graph.addNode(node, connectedTo, linkType));
+            builder.addLink(node, connectedTo, linkType);
+
+            if(random.nextInt(4) == 0){
+                var other = new GraphNode<>(random.nextInt(i + 1));
+
+                assertTrue(graph.addLink(node, other, LinkType.TYPE_2));
+                builder.addLink(node, other, LinkType.TYPE_2);
+            }
+        }
+
+        var built = builder.build();
+
+        assertTrue(built.isPresent());
+        assertEquals(1000, builder.nodeCount());
+        assertEquals(graph.getAdjacencies(), built.get().getAdjacencies());
+    }
+
+    @Test
+    void builder_LinksBeforeTheirNodes(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+
+        var built = new GraphBuilder<String, LinkType>()
+                .addLink(nodeC, nodeB, LinkType.TYPE_1)
+                .addLink(nodeA, nodeB, LinkType.TYPE_2)
+                .addNode(nodeA)
+                .build();
+
+        assertEquals(Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_2)),
+                nodeB, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_2), new GraphLink<>(nodeC, LinkType.TYPE_1)),
+                nodeC, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_1))
+        ), built.get().getAdjacencies());
+    }
+
+    @Test
+    void builder_DisconnectedEdgesAreSplit(){
+        GraphBuilder<Integer, LinkType> builder = new GraphBuilder<>(8, 8);
+
+        builder.addLinks(List.of(
+                new GraphEdge<>(new GraphNode<>(0), new GraphNode<>(1), LinkType.TYPE_1),
+                new GraphEdge<>(new GraphNode<>(5), new GraphNode<>(6), LinkType.TYPE_1),
+                new GraphEdge<>(new GraphNode<>(1), new GraphNode<>(2), LinkType.TYPE_3),
+                new GraphEdge<>(new GraphNode<>(7), new GraphNode<>(7), LinkType.TYPE_2)
+        ).iterator());
+        builder.addNode(new GraphNode<>(9));
+
+        assertEquals(4, builder.countComponents());
+        assertEquals(Optional.empty(), builder.build());
+
+        var components = builder.buildComponents();
+
+        assertEquals(4, components.size());
+        assertEquals(Set.of(new GraphNode<>(0), new GraphNode<>(1), new GraphNode<>(2)), components.get(0).getNodes());
+        assertEquals(Set.of(new GraphNode<>(5), new GraphNode<>(6)), components.get(1).getNodes());
+        assertEquals(Set.of(new GraphLink<>(new GraphNode<>(1), LinkType.TYPE_3)), components.get(0).getAdjacencies().get(new GraphNode<>(2)));
+
+        for(var component : components)
+            assertEquals(component.getNodes(), component.getConnectedNodes(component.getNodes().iterator().next()));
+    }
+
+    @Test
+    void builder_ReadsEdgeList() throws IOException{
+        String edgeList = """
+                # node1 node2 type
+                1 2 TYPE_1
+                2\t3   TYPE_2
+
+                3 1 TYPE_3
+                4
+                """;
+
+        var builder = new GraphBuilder<Integer, LinkType>()
+                .readEdgeList(new BufferedReader(new StringReader(edgeList)), Integer::parseInt, LinkType::valueOf);
+
+        assertEquals(4, builder.nodeCount());
+        assertEquals(3, builder.linkCount());
+        assertEquals(2, builder.countComponents());
+        assertEquals(Set.of(new GraphLink<>(new GraphNode<>(2), LinkType.TYPE_2), new GraphLink<>(new GraphNode<>(1), LinkType.TYPE_3)),
+                builder.buildComponents().get(0).getAdjacencies().get(new GraphNode<>(3)));
+    }
+
+    @Test
+    void builder_RejectsBadLines(){
+        var builder = new GraphBuilder<Integer, LinkType>();
+
+        var wrongFieldCount = assertThrows(IOException.class,
+                () -> builder.readEdgeList(new BufferedReader(new StringReader("1 2 TYPE_1\n1 2\n")), Integer::parseInt, LinkType::valueOf));
+        assertTrue(wrongFieldCount.getMessage().startsWith("Line 2"));
+
+        assertThrows(IOException.class,
+                () -> builder.readEdgeList(new BufferedReader(new StringReader("1 x TYPE_1\n")), Integer::parseInt, LinkType::valueOf));
+        assertThrows(IOException.class,
+                () -> builder.readEdgeList(new BufferedReader(new StringReader("1 2 TYPE_9\n")), Integer::parseInt, LinkType::valueOf));
+    }
+
+    @Test
+    void builder_Empty(){
+        GraphBuilder<Integer, LinkType> builder = new GraphBuilder<>();
+
+        assertEquals(Optional.empty(), builder.build());
+        assertEquals(List.of(), builder.buildComponents());
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
@@ -0,0 +1,88 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphComponentsTests {
+
+    // Grid of width x height nodes, numbered row by row
+    private static Graph<Integer, LinkType> buildGrid(int width, int height){
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+
+        for(int i = 1; i < width * height; i++){
+            boolean firstInRow = i % width == 0;
+            assertTrue(graph.addNode(new GraphNode<>(i), new GraphNode<>(firstInRow ? i - width : i - 1), LinkType.TYPE_1));
+
+            if(!firstInRow && i >= width)
+                assertTrue(graph.addLink(new GraphNode<>(i), new GraphNode<>(i - width), LinkType.TYPE_2));
+        }
+
+        return graph;
+    }
+
+    @Test
+    void components_ConnectedGraph(){
+        var graph = buildGrid(4, 4);
+
+        var components = graph.connectedComponents();
+
+        assertEquals(1, components.size());
+        assertEquals(graph.getNodes(), components.get(0));
+        assertEquals(Set.of(), graph.splitIntoComponents());
+    }
+
+    @Test
+    void components_SmallDisconnectedGraph(){
+        var graph = buildGrid(3, 2);
+
+        // Cut the grid between its first and second column, bypassing the split
+        assertTrue(graph.removeConnection_unsafe(new GraphNode<>(0), new GraphNode<>(1)));
+        assertTrue(graph.removeConnection_unsafe(new GraphNode<>(3), new GraphNode<>(4)));
+
+        var components = new HashSet<>(graph.connectedComponents());
+        assertEquals(Set.of(
+                Set.of(new GraphNode<>(0), new GraphNode<>(3)),
+                Set.of(new GraphNode<>(1), new GraphNode<>(2), new GraphNode<>(4), new GraphNode<>(5))
+        ), components);
+
+        var newGraphs = graph.splitIntoComponents();
+        assertEquals(1, newGraphs.size());
+        assertEquals(Set.of(new GraphNode<>(0), new GraphNode<>(3)), newGraphs.iterator().next().getNodes());
+        assertEquals(4, graph.size());
+    }
+
+    @Test
+    void components_LargeGraphLabeledInParallel(){
+        int width = 200, height = 200;
+        var graph = buildGrid(width, height);
+
+        // Cut every row into a left and a right half, and the left half into top and bottom
+        for(int row = 0; row < height; row++)
+            assertTrue(graph.removeConnection_unsafe(new GraphNode<>(row * width + width / 2 - 1), new GraphNode<>(row * width + width / 2)));
+        for(int column = 0; column < width / 2; column++)
+            assertTrue(graph.removeConnection_unsafe(new GraphNode<>((height / 2 - 1) * width + column), new GraphNode<>(height / 2 * width + column)));
+
+        List<Set<GraphNode<Integer>>> components = graph.connectedComponents();
+
+        assertEquals(3, components.size());
+        assertEquals(width * height, components.stream().mapToInt(Set::size).sum());
+        assertTrue(components.stream().anyMatch(component -> component.size() == width * height / 2));
+        assertEquals(graph.getConnectedNodes(new GraphNode<>(0)), components.stream().filter(component -> component.contains(new GraphNode<>(0))).findFirst().get());
+
+        var newGraphs = graph.splitIntoComponents();
+        assertEquals(2, newGraphs.size());
+        assertEquals(width * height / 2, graph.size());
+        assertTrue(graph.getNodes().contains(new GraphNode<>(width - 1)));
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
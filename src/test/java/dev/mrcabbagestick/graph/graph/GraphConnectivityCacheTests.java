@@ -0,0 +1,178 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphConnectivityCacheTests {
+
+    // Chain 0 - 1 - ... - (length - 1)
+    private static Graph<Integer, LinkType> buildChain(int length){
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+
+        for(int i = 1; i < length; i++)
+            assertTrue(graph.addNode(new GraphNode<>(i), new GraphNode<>(i - 1), LinkType.TYPE_1));
+
+        return graph;
+    }
+
+    @Test
+    void connectivityCache_RepeatedQueriesHit(){
+        var graph = buildChain(10);
+        graph.enableConnectivityCache();
+
+        assertEquals(graph.getNodes(), graph.getConnectedNodes(new GraphNode<>(0)));
+        assertTrue(graph.isConnected(new GraphNode<>(3), new GraphNode<>(9)));
+        assertEquals(graph.getNodes(), graph.getConnectedNodes(new GraphNode<>(7)));
+
+        assertEquals(1, graph.connectivityCacheMisses());
+        assertEquals(2, graph.connectivityCacheHits());
+    }
+
+    @Test
+    void connectivityCache_AdditionsUpdateInPlace(){
+        var graph = buildChain(4);
+        graph.enableConnectivityCache();
+        graph.getConnectedNodes(new GraphNode<>(0));
+
+        assertTrue(graph.addNode(new GraphNode<>(4), new GraphNode<>(3), LinkType.TYPE_2));
+        assertTrue(graph.addLink(new GraphNode<>(4), new GraphNode<>(0), LinkType.TYPE_3));
+
+        assertEquals(Set.of(0, 1, 2, 3, 4), data(graph.getConnectedNodes(new GraphNode<>(4))));
+        assertEquals(1, graph.connectivityCacheMisses());
+        assertEquals(1, graph.connectivityCacheHits());
+    }
+
+    @Test
+    void connectivityCache_LinkMergesCachedComponents(){
+        var graph = buildChain(6);
+
+        // Two components in one graph, as left by removals without a split
+        assertTrue(graph.removeConnection_unsafe(new GraphNode<>(2), new GraphNode<>(3)));
+
+        graph.enableConnectivityCache();
+        assertFalse(graph.isConnected(new GraphNode<>(0), new GraphNode<>(5)));
+        assertEquals(Set.of(3, 4, 5), data(graph.getConnectedNodes(new GraphNode<>(5))));
+
+        assertTrue(graph.addLink(new GraphNode<>(1), new GraphNode<>(4), LinkType.TYPE_1));
+
+        assertTrue(graph.isConnected(new GraphNode<>(0), new GraphNode<>(5)));
+        assertEquals(graph.getNodes(), graph.getConnectedNodes(new GraphNode<>(3)));
+        assertEquals(2, graph.connectivityCacheMisses());
+        assertEquals(2, graph.connectivityCacheHits());
+    }
+
+    @Test
+    void connectivityCache_LinkToUnknownComponentIsRecomputed(){
+        var graph = buildChain(6);
+        assertTrue(graph.removeConnection_unsafe(new GraphNode<>(2), new GraphNode<>(3)));
+
+        graph.enableConnectivityCache();
+        assertEquals(Set.of(0, 1, 2), data(graph.getConnectedNodes(new GraphNode<>(0))));
+
+        assertTrue(graph.addLink(new GraphNode<>(2), new GraphNode<>(5), LinkType.TYPE_1));
+
+        assertEquals(graph.getNodes(), graph.getConnectedNodes(new GraphNode<>(0)));
+        assertEquals(2, graph.connectivityCacheMisses());
+    }
+
+    @Test
+    void connectivityCache_RemovalsInvalidate(){
+        var graph = buildChain(6);
+        graph.enableConnectivityCache();
+        graph.getConnectedNodes(new GraphNode<>(0));
+
+        long epoch = graph.getModificationEpoch();
+        var newGraph = graph.removeConnectionAndSplit(new GraphNode<>(3), new GraphNode<>(4));
+
+        assertTrue(newGraph.isPresent());
+        assertTrue(graph.getModificationEpoch() > epoch);
+        assertEquals(Set.of(0, 1, 2, 3), data(graph.getConnectedNodes(new GraphNode<>(0))));
+        assertFalse(graph.isConnected(new GraphNode<>(0), new GraphNode<>(5)));
+
+        graph.removeNodeAndSplit(new GraphNode<>(1));
+
+        assertEquals(Set.of(), graph.getConnectedNodes(new GraphNode<>(1)));
+        assertEquals(2, graph.connectivityCacheMisses());
+    }
+
+    @Test
+    void connectivityCache_MergeInvalidatesBothGraphs(){
+        var graph = buildChain(3);
+        Graph<Integer, LinkType> otherGraph = new Graph<>(new GraphNode<>(10));
+        assertTrue(otherGraph.addNode(new GraphNode<>(11), new GraphNode<>(10), LinkType.TYPE_1));
+
+        graph.enableConnectivityCache();
+        otherGraph.enableConnectivityCache();
+        graph.getConnectedNodes(new GraphNode<>(0));
+        otherGraph.getConnectedNodes(new GraphNode<>(10));
+
+        graph.mergeWith(new GraphNode<>(2), otherGraph, new GraphNode<>(10), LinkType.TYPE_2);
+
+        assertEquals(Set.of(0, 1, 2, 10, 11), data(graph.getConnectedNodes(new GraphNode<>(0))));
+        assertEquals(Set.of(), otherGraph.getConnectedNodes(new GraphNode<>(10)));
+    }
+
+    @Test
+    void connectivityCache_ResultOwnedByCaller(){
+        var graph = buildChain(5);
+        graph.enableConnectivityCache();
+        var connected = graph.getConnectedNodes(new GraphNode<>(0));
+
+        // Growing the graph while going through the result, as callers may without the cache
+        for(var node : connected)
+            assertTrue(graph.addNode(new GraphNode<>(node.data() + 100), node, LinkType.TYPE_1));
+
+        assertEquals(Set.of(0, 1, 2, 3, 4), data(connected));
+
+        graph.removeConnectionAndSplit(new GraphNode<>(1), new GraphNode<>(2));
+        assertEquals(Set.of(0, 1, 2, 3, 4), data(connected));
+
+        // Changing the result leaves the cached component alone
+        var component = graph.getConnectedNodes(new GraphNode<>(4));
+        component.clear();
+        assertEquals(Set.of(2, 3, 4, 102, 103, 104), data(graph.getConnectedNodes(new GraphNode<>(4))));
+        assertTrue(graph.isConnected(new GraphNode<>(4), new GraphNode<>(102)));
+    }
+
+    @Test
+    void connectivityCache_MatchesUncachedUnderRandomChanges(){
+        Random random = new Random(7);
+        var cached = buildChain(40);
+        var uncached = buildChain(40);
+        cached.enableConnectivityCache();
+
+        for(int i = 0; i < 2000; i++){
+            var node1 = new GraphNode<>(random.nextInt(60));
+            var node2 = new GraphNode<>(random.nextInt(60));
+
+            switch(random.nextInt(5)){
+                case 0 -> assertEquals(uncached.addNode(node1, node2, LinkType.TYPE_1), cached.addNode(node1, node2, LinkType.TYPE_1));
+                case 1 -> assertEquals(uncached.addLink(node1, node2, LinkType.TYPE_2), cached.addLink(node1, node2, LinkType.TYPE_2));
+                case 2 -> assertEquals(uncached.removeConnection_unsafe(node1, node2), cached.removeConnection_unsafe(node1, node2));
+                default -> {
+                    assertEquals(uncached.getConnectedNodes(node1), cached.getConnectedNodes(node1));
+                    assertEquals(uncached.isConnected(node1, node2), cached.isConnected(node1, node2));
+                }
+            }
+        }
+
+        assertTrue(cached.connectivityCacheHits() > 0);
+        assertEquals(0, uncached.connectivityCacheHits());
+    }
+
+    private static Set<Integer> data(Set<GraphNode<Integer>> nodes){
+        HashSet<Integer> data = new HashSet<>();
+        nodes.forEach(node -> data.add(node.data()));
+
+        return data;
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
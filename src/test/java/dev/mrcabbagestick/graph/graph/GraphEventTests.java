@@ -0,0 +1,162 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphEventTests {
+
+    @Test
+    void events_Immediate(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+
+        List<GraphEvent<String, LinkType>> events = new ArrayList<>();
+        var subscription = graph.subscribe(events::add);
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeC, nodeB, LinkType.TYPE_1));
+        assertTrue(graph.addLink(nodeA, nodeB, LinkType.TYPE_1));
+        assertTrue(graph.addLink(nodeA, nodeB, LinkType.TYPE_2));
+
+        var newGraph = graph.removeConnectionAndSplit(nodeB, nodeC).get();
+
+        assertEquals(List.of(
+                new GraphEvent.NodeAdded<>(nodeB),
+                new GraphEvent.LinkAdded<>(nodeB, nodeA, LinkType.TYPE_1),
+                new GraphEvent.NodeAdded<>(nodeC),
+                new GraphEvent.LinkAdded<>(nodeC, nodeB, LinkType.TYPE_1),
+                new GraphEvent.LinkAdded<>(nodeA, nodeB, LinkType.TYPE_2),
+                new GraphEvent.LinkRemoved<>(nodeB, nodeC, LinkType.TYPE_1),
+                new GraphEvent.Split<>(newGraph, Set.of(nodeC))
+        ), events);
+
+        events.clear();
+        subscription.close();
+        graph.removeNodeAndSplit(nodeA);
+
+        assertEquals(List.of(), events);
+    }
+
+    @Test
+    void events_MergeReachesBothGraphs(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+        Graph<String, LinkType> otherGraph = new Graph<>(nodeB);
+        assertTrue(otherGraph.addNode(nodeC, nodeB, LinkType.TYPE_1));
+
+        List<GraphEvent<String, LinkType>> events = new ArrayList<>();
+        List<GraphEvent<String, LinkType>> otherEvents = new ArrayList<>();
+        graph.subscribe(events::add);
+        otherGraph.subscribe(otherEvents::add);
+
+        graph.mergeWith(nodeA, otherGraph, nodeB, LinkType.TYPE_3);
+
+        var merged = new GraphEvent.Merged<>(graph, otherGraph, nodeA, nodeB, LinkType.TYPE_3);
+
+        assertEquals(List.of(merged), events);
+        assertEquals(List.of(merged), otherEvents);
+
+        // Listeners stay with the graph objects even though the contents were swapped
+        assertTrue(graph.addNode(new GraphNode<>("D"), nodeC, LinkType.TYPE_1));
+        assertEquals(3, events.size());
+        assertEquals(1, otherEvents.size());
+    }
+
+    @Test
+    void events_BatchedAndCoalesced(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+        GraphNode<String> nodeD = new GraphNode<>("D");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+
+        List<List<GraphEvent<String, LinkType>>> batches = new ArrayList<>();
+        List<List<GraphEvent<String, LinkType>>> coalescedBatches = new ArrayList<>();
+        graph.subscribe(batches::add, 100, false);
+        graph.subscribe(coalescedBatches::add, 100, true);
+
+        graph.batch()
+                .addLink(nodeA, nodeB, LinkType.TYPE_2)
+                .addNode(nodeC, nodeB, LinkType.TYPE_1)
+                .addNode(nodeD, nodeC, LinkType.TYPE_1)
+                .removeNode(nodeD)
+                .removeConnection(nodeA, nodeB)
+                .addLink(nodeA, nodeB, LinkType.TYPE_1)
+                .commit();
+
+        assertEquals(1, batches.size());
+        assertEquals(9, batches.getFirst().size());
+
+        // D came and went, A - B lost TYPE_2 again and TYPE_1 came back
+        assertEquals(List.of(List.of(
+                new GraphEvent.NodeAdded<>(nodeC),
+                new GraphEvent.LinkAdded<>(nodeC, nodeB, LinkType.TYPE_1)
+        )), coalescedBatches);
+
+        // Nothing is delivered when everything cancels out
+        assertTrue(graph.addLink(nodeA, nodeC, LinkType.TYPE_3));
+        graph.removeConnectionAndSplit(nodeC, nodeA, Set.of(LinkType.TYPE_3));
+        graph.flushEvents();
+
+        assertEquals(2, batches.size());
+        assertEquals(1, coalescedBatches.size());
+    }
+
+    @Test
+    void events_CoalescingStopsAtNodeRemoval(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeC, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addLink(nodeB, nodeC, LinkType.TYPE_1));
+
+        List<List<GraphEvent<String, LinkType>>> batches = new ArrayList<>();
+        graph.subscribe(batches::add, 100, true);
+
+        // B leaves between the link removal and the add, so those two may not cancel: B comes back without B - C
+        assertEquals(Optional.empty(), graph.removeConnectionAndSplit(nodeA, nodeB));
+        assertEquals(Optional.of(Set.of()), graph.removeNodeAndSplit(nodeB));
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        graph.flushEvents();
+
+        assertEquals(List.of(List.of(
+                new GraphEvent.LinkRemoved<>(nodeA, nodeB, LinkType.TYPE_1),
+                new GraphEvent.NodeRemoved<>(nodeB),
+                new GraphEvent.NodeAdded<>(nodeB),
+                new GraphEvent.LinkAdded<>(nodeB, nodeA, LinkType.TYPE_1)
+        )), batches);
+    }
+
+    @Test
+    void events_BatchSizeLimit(){
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+        List<List<GraphEvent<Integer, LinkType>>> batches = new ArrayList<>();
+        var subscription = graph.subscribe(batches::add, 4, false);
+
+        for(int i = 1; i <= 5; i++)
+            assertTrue(graph.addNode(new GraphNode<>(i), new GraphNode<>(i - 1), LinkType.TYPE_1));
+
+        assertEquals(List.of(4, 4), batches.stream().map(List::size).toList());
+
+        subscription.close();
+
+        assertEquals(List.of(4, 4, 2), batches.stream().map(List::size).toList());
+        assertThrows(IllegalArgumentException.class, () -> graph.subscribe(batches::add, 0, false));
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
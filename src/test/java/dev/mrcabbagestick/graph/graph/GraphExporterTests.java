@@ -0,0 +1,245 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphExporterTests {
+
+    private static Graph<String, LinkType> triangleWithTail(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+
+        graph.addNode(new GraphNode<>("B"), nodeA, LinkType.TYPE_1);
+        graph.addNode(new GraphNode<>("C"), new GraphNode<>("B"), LinkType.TYPE_1);
+        graph.addLink(new GraphNode<>("C"), nodeA, LinkType.TYPE_1);
+        graph.addLink(new GraphNode<>("C"), nodeA, LinkType.TYPE_2);
+        graph.addNode(new GraphNode<>("D"), new GraphNode<>("C"), LinkType.TYPE_2);
+
+        return graph;
+    }
+
+    private static String export(GraphExporter<String, LinkType> exporter, Graph<String, LinkType> graph) throws IOException{
+        var out = new StringWriter();
+        exporter.write(graph, out);
+
+        return out.toString();
+    }
+
+    @Test
+    void graphExporter_Dot() throws IOException{
+        var lines = export(new GraphExporter<>(GraphExporter.Format.DOT), triangleWithTail()).lines().toList();
+
+        assertEquals("graph {", lines.getFirst());
+        assertEquals("}", lines.getLast());
+
+        // Every link once, in either direction
+        var links = lines.stream().filter(line -> line.contains("--")).map(line -> line.strip().replaceAll("\"([A-D])\" -- \"([A-D])\"", "$1$2")).toList();
+
+        assertEquals(5, links.size());
+        for(var link : List.of("AB", "BC", "AC", "CD")){
+            assertTrue(links.stream().anyMatch(line -> line.startsWith(link) || line.startsWith(new StringBuilder(link).reverse().toString())), link);
+        }
+
+        assertEquals(4, lines.stream().filter(line -> line.matches(" {2}\"[A-D]\";")).count());
+    }
+
+    @Test
+    void graphExporter_EdgeListRoundTrip() throws IOException{
+        Random random = new Random(5);
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+
+        for(int i = 1; i < 500; i++){
+            graph.addNode(new GraphNode<>(i), new GraphNode<>(random.nextInt(i)), LinkType.values()[random.nextInt(3)]);
+            graph.addLink(new GraphNode<>(i), new GraphNode<>(random.nextInt(i)), LinkType.values()[random.nextInt(3)]);
+        }
+
+        // Self links included, they must come out exactly once as well
+        graph.addLink(new GraphNode<>(7), new GraphNode<>(7), LinkType.TYPE_3);
+
+        var out = new StringWriter();
+        new GraphExporter<Integer, LinkType>(GraphExporter.Format.EDGE_LIST).write(graph, out);
+
+        var rebuilt = new GraphBuilder<Integer, LinkType>()
+                .readEdgeList(new BufferedReader(new StringReader(out.toString())), Integer::valueOf, LinkType::valueOf)
+                .build();
+
+        assertTrue(rebuilt.isPresent());
+        assertEquals(graph.getAdjacencies(), rebuilt.get().getAdjacencies());
+
+        long linkCount = graph.getAdjacencies().entrySet().stream()
+                .mapToLong(entry -> entry.getValue().stream().filter(link -> link.node().data() >= entry.getKey().data()).count())
+                .sum();
+        assertEquals(linkCount, out.toString().lines().count());
+    }
+
+    @Test
+    void graphExporter_EdgeListSingleNodeAndBadLabels() throws IOException{
+        Graph<String, LinkType> single = new Graph<>(new GraphNode<>("lonely"));
+        assertEquals("lonely\n", export(new GraphExporter<>(GraphExporter.Format.EDGE_LIST), single));
+
+        Graph<String, LinkType> spaced = new Graph<>(new GraphNode<>("two words"));
+        assertThrows(IOException.class, () -> export(new GraphExporter<>(GraphExporter.Format.EDGE_LIST), spaced));
+
+        // Other formats quote labels, so anything goes there
+        assertEquals("graph {\n  \"two words\";\n}\n", export(new GraphExporter<>(GraphExporter.Format.DOT), spaced));
+    }
+
+    @Test
+    void graphExporter_JsonEscapes() throws IOException{
+        GraphNode<String> quoted = new GraphNode<>("say \"hi\"\n");
+        Graph<String, LinkType> graph = new Graph<>(quoted);
+        graph.addNode(new GraphNode<>("back\\slash"), quoted, LinkType.TYPE_1);
+
+        String json = export(new GraphExporter<>(GraphExporter.Format.JSON), graph);
+
+        assertTrue(json.startsWith("{\"nodes\":["));
+        assertTrue(json.contains("\"say \\\"hi\\\"\\n\""));
+        assertTrue(json.contains("\"back\\\\slash\""));
+        assertEquals(1, json.split("\"source\"", -1).length - 1);
+        assertTrue(json.contains("\"type\":\"TYPE_1\"}]}"));
+    }
+
+    @Test
+    void graphExporter_CustomLabels() throws IOException{
+        String edgeList = export(new GraphExporter<>(GraphExporter.Format.EDGE_LIST, data -> "n" + data, type -> type.name().toLowerCase()), triangleWithTail());
+
+        assertTrue(edgeList.lines().allMatch(line -> line.matches("n[A-D] n[A-D] type_[12]")));
+    }
+
+    @Test
+    void graphExporter_RestrictedToComponent() throws IOException{
+        var graph = triangleWithTail();
+        var components = graph.connectedComponents(Set.of(LinkType.TYPE_2));
+
+        var withD = components.stream().filter(component -> component.contains(new GraphNode<>("D"))).findFirst().orElseThrow();
+        var exporter = new GraphExporter<String, LinkType>(GraphExporter.Format.EDGE_LIST).restrictedTo(withD);
+
+        // The TYPE_1 links of A and C are still written, they run inside the component
+        var lines = Set.copyOf(export(exporter, graph).lines().toList());
+        assertEquals(3, lines.size());
+        assertTrue(lines.contains("C D TYPE_2") || lines.contains("D C TYPE_2"));
+        assertTrue(lines.contains("A C TYPE_1") || lines.contains("C A TYPE_1"));
+
+        var onlyB = new GraphExporter<String, LinkType>(GraphExporter.Format.EDGE_LIST).restrictedTo(Set.of(new GraphNode<>("B"), new GraphNode<>("X")));
+        assertEquals("B\n", export(onlyB, graph));
+    }
+
+    @Test
+    void graphExporter_RestrictedToForeignNodes() throws IOException{
+        var graph = triangleWithTail();
+
+        // Y is linked to B, but in another graph, so neither it nor that link belong to this export
+        GraphNode<String> nodeY = new GraphNode<>("Y");
+        Graph<String, LinkType> otherGraph = new Graph<>(nodeY);
+        otherGraph.addNode(new GraphNode<>("B"), nodeY, LinkType.TYPE_3);
+
+        Set<GraphNode<String>> nodes = Set.of(new GraphNode<>("A"), new GraphNode<>("B"), nodeY);
+
+        var edgeList = new StringWriter();
+        new GraphExporter<String, LinkType>(GraphExporter.Format.EDGE_LIST).restrictedTo(nodes).write(graph, edgeList);
+        assertTrue(Set.of("A B TYPE_1\n", "B A TYPE_1\n").contains(edgeList.toString()));
+
+        var dot = new StringWriter();
+        new GraphExporter<String, LinkType>(GraphExporter.Format.DOT).restrictedTo(nodes).write(graph, dot);
+        assertFalse(dot.toString().contains("\"Y\""));
+        assertFalse(dot.toString().contains("TYPE_3"));
+
+        // Only foreign nodes leave nothing to write
+        var json = new StringWriter();
+        new GraphExporter<String, LinkType>(GraphExporter.Format.JSON).restrictedTo(Set.of(nodeY)).write(graph, json);
+        assertEquals("{\"nodes\":[],\"links\":[]}\n", json.toString());
+    }
+
+    @Test
+    void graphExporter_EdgeListSelfLink() throws IOException{
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+        assertTrue(graph.addLink(nodeA, nodeA, LinkType.TYPE_2));
+
+        String edgeList = export(new GraphExporter<>(GraphExporter.Format.EDGE_LIST), graph);
+        assertEquals("A A TYPE_2\n", edgeList);
+
+        var rebuilt = new GraphBuilder<String, LinkType>()
+                .readEdgeList(new BufferedReader(new StringReader(edgeList)), data -> data, LinkType::valueOf)
+                .build();
+        assertEquals(graph.getAdjacencies(), rebuilt.get().getAdjacencies());
+    }
+
+    @Test
+    void printAdjacencies_KeepsFormat(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+        graph.addNode(new GraphNode<>("B"), nodeA, LinkType.TYPE_1);
+
+        var printed = new ByteArrayOutputStream();
+        var systemOut = System.out;
+        System.setOut(new PrintStream(printed, true));
+
+        try{
+            graph.printAdjacencies();
+        }
+        finally{
+            System.setOut(systemOut);
+        }
+
+        assertEquals(Set.of("A -> (B, TYPE_1), ", "B -> (A, TYPE_1), "), Set.copyOf(printed.toString().lines().toList()));
+    }
+
+    @Test
+    void graphExporter_BoundedBuffer() throws IOException{
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+        for(int i = 1; i < 1000; i++)
+            graph.addNode(new GraphNode<>(i), new GraphNode<>(i - 1), LinkType.TYPE_1);
+
+        List<Integer> writeSizes = new ArrayList<>();
+        var collected = new StringWriter();
+        Writer recording = new Writer(){
+            @Override
+            public void write(char[] chars, int offset, int length){
+                writeSizes.add(length);
+                collected.write(chars, offset, length);
+            }
+
+            @Override
+            public void flush(){}
+
+            @Override
+            public void close(){}
+        };
+
+        new GraphExporter<Integer, LinkType>(GraphExporter.Format.DOT, String::valueOf, String::valueOf, null, 64).write(graph, recording);
+
+        // Full buffers only, except for the last one
+        assertTrue(writeSizes.subList(0, writeSizes.size() - 1).stream().allMatch(size -> size == 64));
+        var expected = new StringWriter();
+        new GraphExporter<Integer, LinkType>(GraphExporter.Format.DOT).write(graph, expected);
+        assertEquals(expected.toString(), collected.toString());
+    }
+
+    @Test
+    void graphExporter_StreamAndChannel() throws IOException{
+        var graph = triangleWithTail();
+        var exporter = new GraphExporter<String, LinkType>(GraphExporter.Format.JSON, data -> data + "\u00e9", String::valueOf);
+        String expected = export(exporter, graph);
+
+        var stream = new ByteArrayOutputStream();
+        exporter.write(graph, stream);
+        assertEquals(expected, stream.toString(StandardCharsets.UTF_8));
+
+        var channelBytes = new ByteArrayOutputStream();
+        exporter.write(graph, Channels.newChannel(channelBytes));
+        assertEquals(expected, channelBytes.toString(StandardCharsets.UTF_8));
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
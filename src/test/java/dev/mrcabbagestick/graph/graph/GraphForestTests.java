@@ -0,0 +1,119 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphForestTests {
+
+    @Test
+    void forestLinkAddition_MergesComponents(){
+        GraphForest<String, LinkType> forest = new GraphForest<>();
+
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeX = new GraphNode<>("X");
+
+        var graphA = forest.addComponent(nodeA).get();
+        assertTrue(forest.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        var graphX = forest.addComponent(nodeX).get();
+
+        assertTrue(forest.addComponent(nodeB).isEmpty());
+        assertEquals(2, forest.getComponents().size());
+        assertFalse(forest.areConnected(nodeB, nodeX));
+
+        assertTrue(forest.addLink(nodeX, nodeB, LinkType.TYPE_2));
+
+        // The larger graph survives whichever side the link was added from
+        assertEquals(Set.of(graphA), forest.getComponents());
+        assertSame(graphA, forest.getComponent(nodeX).get());
+        assertFalse(graphX.canExist());
+        assertTrue(forest.areConnected(nodeA, nodeX));
+
+        assertEquals(Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_1)),
+                nodeB, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_1), new GraphLink<>(nodeX, LinkType.TYPE_2)),
+                nodeX, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_2))
+        ), graphA.getAdjacencies());
+    }
+
+    @Test
+    void forestConnectionRemoval_SplitsComponents(){
+        GraphForest<String, LinkType> forest = new GraphForest<>();
+
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+        GraphNode<String> nodeD = new GraphNode<>("D");
+
+        forest.addComponent(nodeA);
+        assertTrue(forest.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(forest.addNode(nodeC, nodeB, LinkType.TYPE_1));
+        assertTrue(forest.addNode(nodeD, nodeC, LinkType.TYPE_1));
+        assertTrue(forest.addLink(nodeD, nodeB, LinkType.TYPE_1));
+
+        assertTrue(forest.removeConnection(nodeA, nodeB));
+        assertEquals(2, forest.getComponents().size());
+        assertFalse(forest.areConnected(nodeA, nodeB));
+        assertTrue(forest.areConnected(nodeB, nodeD));
+        assertEquals(Set.of(nodeA), forest.getComponent(nodeA).get().getNodes());
+
+        // Still connected through D
+        assertTrue(forest.removeConnection(nodeB, nodeC));
+        assertTrue(forest.areConnected(nodeB, nodeC));
+        assertFalse(forest.removeConnection(nodeA, nodeC));
+    }
+
+    @Test
+    void forestNodeRemoval_SplitsComponents(){
+        GraphForest<String, LinkType> forest = new GraphForest<>();
+
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+        GraphNode<String> nodeD = new GraphNode<>("D");
+
+        forest.addComponent(nodeA);
+        assertTrue(forest.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(forest.addNode(nodeC, nodeB, LinkType.TYPE_1));
+        assertTrue(forest.addNode(nodeD, nodeB, LinkType.TYPE_1));
+
+        assertTrue(forest.removeNode(nodeB));
+        assertFalse(forest.contains(nodeB));
+        assertEquals(3, forest.getComponents().size());
+        assertEquals(3, forest.nodeCount());
+
+        for(var node : Set.of(nodeA, nodeC, nodeD))
+            assertEquals(Set.of(node), forest.getComponent(node).get().getNodes());
+
+        assertTrue(forest.removeNode(nodeA));
+        assertEquals(2, forest.getComponents().size());
+        assertTrue(forest.getComponent(nodeA).isEmpty());
+    }
+
+    @Test
+    void forestAddExistingGraph(){
+        GraphForest<String, LinkType> forest = new GraphForest<>();
+
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        forest.addComponent(nodeA);
+
+        Graph<String, LinkType> graph = new Graph<>(nodeB);
+        graph.addNode(nodeA, nodeB, LinkType.TYPE_1);
+        assertFalse(forest.addComponent(graph));
+
+        Graph<String, LinkType> otherGraph = new Graph<>(nodeB);
+        assertTrue(forest.addComponent(otherGraph));
+        assertSame(otherGraph, forest.getComponent(nodeB).get());
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
@@ -0,0 +1,173 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphLinkTypeFilterTests {
+
+    // A - B - C over TYPE_1, C - D over TYPE_2, A - D over TYPE_1 and TYPE_3
+    private static Graph<String, LinkType> buildSquare(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+
+        assertTrue(graph.addNode(new GraphNode<>("B"), nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(new GraphNode<>("C"), new GraphNode<>("B"), LinkType.TYPE_1));
+        assertTrue(graph.addNode(new GraphNode<>("D"), new GraphNode<>("C"), LinkType.TYPE_2));
+        assertTrue(graph.addLink(nodeA, new GraphNode<>("D"), LinkType.TYPE_1));
+        assertTrue(graph.addLink(nodeA, new GraphNode<>("D"), LinkType.TYPE_3));
+
+        return graph;
+    }
+
+    private static Set<String> data(Collection<GraphNode<String>> nodes){
+        return nodes.stream().map(GraphNode::data).collect(Collectors.toSet());
+    }
+
+    @Test
+    void linkTypeFilter_ConnectedNodes(){
+        for(boolean indexed : new boolean[]{false, true}){
+            var graph = buildSquare();
+            if(indexed)
+                graph.enableLinkTypeIndex();
+
+            assertEquals(Set.of("A", "B", "C", "D"), data(graph.getConnectedNodes(new GraphNode<>("A"), Set.of(LinkType.TYPE_1))));
+            assertEquals(Set.of("C", "D"), data(graph.getConnectedNodes(new GraphNode<>("C"), Set.of(LinkType.TYPE_2))));
+            assertEquals(Set.of("A", "C", "D"), data(graph.getConnectedNodes(new GraphNode<>("A"), Set.of(LinkType.TYPE_2, LinkType.TYPE_3))));
+            assertEquals(Set.of("B"), data(graph.getConnectedNodes(new GraphNode<>("B"), Set.of(LinkType.TYPE_3))));
+            assertEquals(Set.of(), graph.getConnectedNodes(new GraphNode<>("E"), Set.of(LinkType.TYPE_1)));
+        }
+    }
+
+    @Test
+    void linkTypeFilter_ComponentsAndTraversal(){
+        var graph = buildSquare();
+        graph.enableLinkTypeIndex();
+
+        var components = graph.connectedComponents(Set.of(LinkType.TYPE_2));
+
+        assertEquals(3, components.size());
+        assertTrue(components.stream().anyMatch(component -> data(component).equals(Set.of("C", "D"))));
+        assertEquals(1, graph.connectedComponents().size());
+
+        var steps = graph.traverse(new GraphNode<>("A"), TraversalOrder.BREADTH_FIRST, Set.of(LinkType.TYPE_3, LinkType.TYPE_2)).toList();
+
+        assertEquals(List.of("A", "D", "C"), steps.stream().map(step -> step.node().data()).toList());
+        assertEquals(new GraphLink<>(new GraphNode<>("D"), LinkType.TYPE_3), steps.get(1).reachedBy());
+        assertEquals(2, steps.get(2).depth());
+    }
+
+    @Test
+    void linkTypeFilter_RemovalKeepsOtherTypes(){
+        var graph = buildSquare();
+        graph.enableLinkTypeIndex();
+
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        GraphNode<String> nodeD = new GraphNode<>("D");
+
+        // A - D stays linked through TYPE_3
+        assertEquals(Optional.empty(), graph.removeConnectionAndSplit(nodeA, nodeD, Set.of(LinkType.TYPE_1)));
+        assertEquals(Set.of(new GraphLink<>(nodeD, LinkType.TYPE_3), new GraphLink<>(new GraphNode<>("B"), LinkType.TYPE_1)), graph.getAdjacencies().get(nodeA));
+        assertEquals(Set.of("A", "B", "C"), data(graph.getConnectedNodes(new GraphNode<>("B"), Set.of(LinkType.TYPE_1))));
+        assertEquals(Set.of("A", "D"), data(graph.getConnectedNodes(nodeD, Set.of(LinkType.TYPE_3))));
+
+        // Without the TYPE_3 link nothing holds A - D together but the path over B and C
+        assertEquals(Optional.empty(), graph.removeConnectionAndSplit(nodeA, nodeD, Set.of(LinkType.TYPE_3)));
+        assertFalse(graph.getAdjacencies().get(nodeA).stream().anyMatch(link -> link.node().equals(nodeD)));
+
+        var newGraph = graph.removeConnectionAndSplit(new GraphNode<>("B"), new GraphNode<>("C"), Set.of(LinkType.TYPE_1));
+
+        assertTrue(newGraph.isPresent());
+        assertEquals(Set.of(Set.of("A", "B"), Set.of("C", "D")), Set.of(data(graph.getNodes()), data(newGraph.get().getNodes())));
+    }
+
+    @Test
+    void linkTypeFilter_IndexSurvivesMergeIntoLargerGraph(){
+        Graph<Integer, LinkType> small = new Graph<>(new GraphNode<>(0));
+        Graph<Integer, LinkType> large = new Graph<>(new GraphNode<>(10));
+        small.enableLinkTypeIndex();
+
+        for(int i = 11; i < 20; i++)
+            assertTrue(large.addNode(new GraphNode<>(i), new GraphNode<>(i - 1), LinkType.TYPE_1));
+
+        // small takes over the larger map, which came without an index
+        small.mergeWith(new GraphNode<>(0), large, new GraphNode<>(15), LinkType.TYPE_2);
+
+        assertEquals(Set.of(new GraphNode<>(0), new GraphNode<>(15)), small.getConnectedNodes(new GraphNode<>(15), Set.of(LinkType.TYPE_2)));
+
+        // Components over some link types come from the index without scanning any neighbor map
+        List<GraphOperationStats> stats = new ArrayList<>();
+        small.enableInstrumentation(stats::add);
+
+        assertEquals(10, small.connectedComponents(Set.of(LinkType.TYPE_2)).size());
+        assertEquals(0, stats.getFirst().linksVisited());
+
+        // The other way round, a graph without the index does not pick one up and scans every link
+        Graph<Integer, LinkType> unindexed = new Graph<>(new GraphNode<>(100));
+        unindexed.mergeWith(new GraphNode<>(100), small, new GraphNode<>(0), LinkType.TYPE_1);
+        unindexed.enableInstrumentation(stats::add);
+
+        assertEquals(11, unindexed.connectedComponents(Set.of(LinkType.TYPE_2)).size());
+        assertEquals(2 * 11, stats.getLast().linksVisited());
+    }
+
+    @Test
+    void linkTypeFilter_IndexFollowsChanges(){
+        Random random = new Random(17);
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+        Graph<Integer, LinkType> other = new Graph<>(new GraphNode<>(1000));
+        graph.enableLinkTypeIndex();
+        other.enableLinkTypeIndex();
+
+        for(int i = 1; i < 50; i++)
+            assertTrue(other.addNode(new GraphNode<>(1000 + i), new GraphNode<>(1000 + random.nextInt(i)), LinkType.values()[random.nextInt(3)]));
+
+        for(int i = 0; i < 3000; i++){
+            var node1 = new GraphNode<>(random.nextInt(300));
+            var node2 = new GraphNode<>(random.nextInt(300));
+            var linkType = LinkType.values()[random.nextInt(3)];
+
+            switch(random.nextInt(6)){
+                case 0, 1 -> graph.addNode(node1, node2, linkType);
+                case 2 -> graph.addLink(node1, node2, linkType);
+                case 3 -> graph.removeConnectionAndSplit(node1, node2, Set.of(linkType));
+                case 4 -> graph.removeNodeAndSplit(node1);
+                default -> graph.removeConnectionAndSplit(node1, node2);
+            }
+
+            if(!graph.canExist()){
+                graph = new Graph<>(node1);
+                graph.enableLinkTypeIndex();
+            }
+            if(i == 1500)
+                graph.mergeWith(graph.getNodes().iterator().next(), other, new GraphNode<>(1000), LinkType.TYPE_1);
+        }
+
+        assertTrue(graph.size() > 50);
+
+        // Compare against walks over the plain adjacency list
+        var filters = List.of(Set.of(LinkType.TYPE_1), Set.of(LinkType.TYPE_2, LinkType.TYPE_3));
+        Map<Set<LinkType>, Map<GraphNode<Integer>, Set<GraphNode<Integer>>>> indexed = new HashMap<>();
+
+        for(var linkTypes : filters){
+            for(var node : graph.getNodes())
+                indexed.computeIfAbsent(linkTypes, key -> new HashMap<>()).put(node, graph.getConnectedNodes(node, linkTypes));
+        }
+
+        graph.disableLinkTypeIndex();
+
+        for(var linkTypes : filters){
+            for(var node : graph.getNodes())
+                assertEquals(graph.getConnectedNodes(node, linkTypes), indexed.get(linkTypes).get(node));
+        }
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
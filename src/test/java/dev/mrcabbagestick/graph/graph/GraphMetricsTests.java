@@ -0,0 +1,131 @@
+package dev.mrcabbagestick.graph.graph;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphMetricsTests {
+
+    @TempDir
+    Path directory;
+
+    // 0 - 1 - ... - (length - 1)
+    private static Graph<Integer, LinkType> buildChain(int length){
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+
+        for(int i = 1; i < length; i++)
+            assertTrue(graph.addNode(new GraphNode<>(i), new GraphNode<>(i - 1), LinkType.TYPE_1));
+
+        return graph;
+    }
+
+    @Test
+    void metrics_SplitStats(){
+        var graph = buildChain(10);
+        List<GraphOperationStats> stats = new ArrayList<>();
+        graph.enableInstrumentation(stats::add);
+
+        graph.removeConnectionAndSplit(new GraphNode<>(6), new GraphNode<>(7));
+
+        var split = stats.getFirst();
+
+        assertEquals(1, stats.size());
+        assertEquals(GraphOperation.REMOVE_CONNECTION_AND_SPLIT, split.operation());
+        assertEquals(10, split.graphSize());
+        assertEquals(1, split.newGraphs());
+        assertEquals(3, split.largestNewGraph());
+        assertEquals(3, split.nodesMoved());
+        assertTrue(split.durationNanos() >= 0);
+
+        // Both sides of the removed link are walked in turns until the smaller one runs out
+        assertEquals(5, split.nodesVisited());
+        assertEquals(7, split.linksVisited());
+    }
+
+    @Test
+    void metrics_NestedOperationsCountOnce(){
+        var graph = buildChain(9);
+        List<GraphOperationStats> stats = new ArrayList<>();
+        graph.enableInstrumentation(stats::add);
+
+        var newGraph = graph.removeNodeAndSplit(new GraphNode<>(4)).get().iterator().next();
+        graph.addNode(new GraphNode<>(100), graph.getNodes().iterator().next(), LinkType.TYPE_2);
+        graph.mergeWith(new GraphNode<>(100), newGraph, newGraph.getNodes().iterator().next(), LinkType.TYPE_1);
+        graph.getConnectedNodes(new GraphNode<>(100));
+
+        assertEquals(List.of(GraphOperation.REMOVE_NODE_AND_SPLIT, GraphOperation.ADD_NODE, GraphOperation.MERGE_WITH, GraphOperation.GET_CONNECTED_NODES), stats.stream().map(GraphOperationStats::operation).toList());
+        assertEquals(1, stats.get(0).newGraphs());
+        assertEquals(4, stats.get(0).largestNewGraph());
+        assertEquals(4, stats.get(2).nodesMoved());
+        assertEquals(9, stats.get(3).nodesVisited());
+
+        // The walks of the commit count towards it, not as operations of their own
+        stats.clear();
+        graph.batch()
+                .removeNode(new GraphNode<>(100))
+                .commit();
+
+        assertEquals(1, stats.size());
+        assertEquals(GraphOperation.BATCH_COMMIT, stats.getFirst().operation());
+        assertEquals(1, stats.getFirst().newGraphs());
+        assertTrue(stats.getFirst().nodesVisited() >= 8);
+
+        // connectedComponents runs nested here, its walk still shows up in the outer stats
+        stats.clear();
+        int size = graph.size();
+        graph.splitIntoComponents();
+
+        assertEquals(1, stats.size());
+        assertEquals(GraphOperation.SPLIT_INTO_COMPONENTS, stats.getFirst().operation());
+        assertEquals(size, stats.getFirst().nodesVisited());
+        assertTrue(stats.getFirst().linksVisited() > 0);
+
+        graph.disableInstrumentation();
+        graph.connectedComponents();
+
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    void metrics_FlightRecorderEvents() throws IOException {
+        var graph = buildChain(20);
+        graph.enableInstrumentation(GraphMetrics.NONE);
+
+        Path recordingFile = directory.resolve("graph.jfr");
+
+        try(Recording recording = new Recording()){
+            recording.enable("dev.mrcabbagestick.graph.GraphOperation").withoutThreshold();
+            recording.start();
+
+            graph.splitIntoComponents();
+            graph.removeNodeAndSplit(new GraphNode<>(10));
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+
+        assertEquals(List.of("SPLIT_INTO_COMPONENTS", "REMOVE_NODE_AND_SPLIT"), events.stream().map(event -> event.getString("operation")).toList());
+
+        var split = events.get(1);
+
+        assertEquals(20, split.getInt("graphSize"));
+        assertEquals(1, split.getInt("newGraphs"));
+        assertEquals(9, split.getInt("nodesMoved"));
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
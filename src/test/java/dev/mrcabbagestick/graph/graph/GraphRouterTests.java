@@ -0,0 +1,190 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphRouterTests {
+
+    private static double cost(LinkType linkType){
+        return switch(linkType){
+            case ROAD -> 1;
+            case HIGHWAY -> 0.25;
+            case FERRY -> 5;
+            case CLOSED -> Double.POSITIVE_INFINITY;
+        };
+    }
+
+    private static Graph<Integer, LinkType> buildRandomGraph(int size, long seed){
+        Random random = new Random(seed);
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+
+        for(int i = 1; i < size; i++){
+            assertTrue(graph.addNode(new GraphNode<>(i), new GraphNode<>(random.nextInt(i)), LinkType.values()[random.nextInt(4)]));
+
+            for(int extra = random.nextInt(3); extra > 0; extra--)
+                graph.addLink(new GraphNode<>(i), new GraphNode<>(random.nextInt(i + 1)), LinkType.values()[random.nextInt(4)]);
+        }
+
+        return graph;
+    }
+
+    // Bellman-Ford over the adjacencies, slow but obviously right
+    private static Map<GraphNode<Integer>, Double> referenceDistances(Graph<Integer, LinkType> graph, GraphNode<Integer> from){
+        Map<GraphNode<Integer>, Double> distances = new HashMap<>();
+        distances.put(from, 0.0);
+
+        for(boolean changed = true; changed;){
+            changed = false;
+
+            for(var entry : graph.getAdjacencies().entrySet()){
+                Double distance = distances.get(entry.getKey());
+                if(distance == null)
+                    continue;
+
+                for(var link : entry.getValue()){
+                    double viaLink = distance + cost(link.type());
+
+                    if(viaLink < distances.getOrDefault(link.node(), Double.POSITIVE_INFINITY)){
+                        distances.put(link.node(), viaLink);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        return distances;
+    }
+
+    private static void assertValidPath(Graph<Integer, LinkType> graph, GraphPath<Integer, LinkType> path){
+        double cost = 0;
+        var current = path.start();
+
+        for(var link : path.links()){
+            assertTrue(graph.getAdjacencies().get(current).contains(link));
+            cost += cost(link.type());
+            current = link.node();
+        }
+
+        assertEquals(path.cost(), cost, 1e-9);
+    }
+
+    @Test
+    void router_MatchesReference(){
+        var graph = buildRandomGraph(300, 5);
+        GraphRouter<Integer, LinkType> router = new GraphRouter<>(graph, GraphRouterTests::cost);
+        Random random = new Random(6);
+
+        for(int query = 0; query < 20; query++){
+            var from = new GraphNode<>(random.nextInt(300));
+            var expected = referenceDistances(graph, from);
+
+            assertEquals(expected, router.distances(from, graph.getNodes()));
+
+            for(int i = 0; i < 10; i++){
+                var to = new GraphNode<>(random.nextInt(300));
+                var bidirectional = router.shortestPath(from, to);
+                var aStar = router.shortestPath(from, to, node -> 0);
+
+                assertEquals(expected.containsKey(to), bidirectional.isPresent());
+                assertEquals(expected.containsKey(to), aStar.isPresent());
+
+                if(bidirectional.isPresent()){
+                    assertEquals(expected.get(to), bidirectional.get().cost(), 1e-9);
+                    assertEquals(expected.get(to), aStar.get().cost(), 1e-9);
+                    assertEquals(to, bidirectional.get().end());
+                    assertValidPath(graph, bidirectional.get());
+                    assertValidPath(graph, aStar.get());
+                }
+            }
+        }
+    }
+
+    @Test
+    void router_CheapestOfSeveralLinkTypes(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.FERRY));
+        assertTrue(graph.addLink(nodeA, nodeB, LinkType.HIGHWAY));
+        assertTrue(graph.addNode(nodeC, nodeB, LinkType.ROAD));
+        assertTrue(graph.addLink(nodeA, nodeC, LinkType.FERRY));
+
+        GraphRouter<String, LinkType> router = new GraphRouter<>(graph, GraphRouterTests::cost);
+        var path = router.shortestPath(nodeA, nodeC).get();
+
+        assertEquals(List.of(new GraphLink<>(nodeB, LinkType.HIGHWAY), new GraphLink<>(nodeC, LinkType.ROAD)), path.links());
+        assertEquals(List.of(nodeA, nodeB, nodeC), path.nodes());
+        assertEquals(1.25, path.cost());
+        assertEquals(new GraphPath<>(nodeA, List.of(), 0), router.shortestPath(nodeA, nodeA).get());
+    }
+
+    @Test
+    void router_ClosedLinksAndChanges(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.CLOSED));
+
+        GraphRouter<String, LinkType> router = new GraphRouter<>(graph, GraphRouterTests::cost);
+
+        assertEquals(Optional.empty(), router.shortestPath(nodeA, nodeB));
+        assertEquals(Optional.empty(), router.shortestPath(nodeA, nodeC));
+        assertEquals(Map.of(nodeA, 0.0), router.distances(nodeA, List.of(nodeA, nodeB, nodeC)));
+
+        // The index is rebuilt once the graph changed
+        assertTrue(graph.addNode(nodeC, nodeA, LinkType.ROAD));
+        assertTrue(graph.addLink(nodeC, nodeB, LinkType.ROAD));
+
+        assertEquals(2.0, router.shortestPath(nodeA, nodeB).get().cost());
+        assertEquals(Map.of(nodeB, 2.0, nodeC, 1.0), router.distances(nodeA, List.of(nodeB, nodeC)));
+    }
+
+    @Test
+    void router_AStarOnGrid(){
+        int width = 60;
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+
+        for(int i = 1; i < width * width; i++){
+            boolean firstInRow = i % width == 0;
+            assertTrue(graph.addNode(new GraphNode<>(i), new GraphNode<>(firstInRow ? i - width : i - 1), LinkType.ROAD));
+
+            if(!firstInRow && i >= width)
+                assertTrue(graph.addLink(new GraphNode<>(i), new GraphNode<>(i - width), LinkType.ROAD));
+        }
+
+        GraphRouter<Integer, LinkType> router = new GraphRouter<>(graph, GraphRouterTests::cost);
+        var target = new GraphNode<>(width * width - 1);
+
+        // Manhattan distance is exact on a grid of unit costs
+        var path = router.shortestPath(new GraphNode<>(0), target, node -> 2 * (width - 1) - node.data() % width - node.data() / width);
+
+        assertEquals(2.0 * (width - 1), path.get().cost());
+        assertEquals(2 * (width - 1), path.get().links().size());
+        assertEquals(path.get().cost(), router.shortestPath(new GraphNode<>(0), target).get().cost());
+    }
+
+    @Test
+    void router_RejectsNegativeCosts(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+        assertTrue(graph.addNode(new GraphNode<>("B"), nodeA, LinkType.ROAD));
+
+        GraphRouter<String, LinkType> router = new GraphRouter<>(graph, linkType -> -1);
+
+        assertThrows(IllegalArgumentException.class, () -> router.shortestPath(nodeA, nodeA));
+    }
+
+    public enum LinkType {
+        ROAD,
+        HIGHWAY,
+        FERRY,
+        CLOSED
+    }
+}
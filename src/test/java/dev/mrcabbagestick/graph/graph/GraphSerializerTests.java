@@ -0,0 +1,115 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphSerializerTests {
+
+    @TempDir
+    Path directory;
+
+    private final GraphSerializer<Integer, LinkType> serializer = new GraphSerializer<>(GraphCodec.integers(), GraphCodec.enums(LinkType.class));
+
+    private static Graph<Integer, LinkType> buildRandomGraph(int size, long seed){
+        Random random = new Random(seed);
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+
+        for(int i = 1; i < size; i++){
+            assertTrue(graph.addNode(new GraphNode<>(i), new GraphNode<>(random.nextInt(i)), LinkType.TYPE_1));
+
+            if(random.nextInt(3) == 0)
+                graph.addLink(new GraphNode<>(i), new GraphNode<>(random.nextInt(i + 1)), LinkType.values()[random.nextInt(3)]);
+        }
+
+        return graph;
+    }
+
+    @Test
+    void serializer_RoundTrip(){
+        var graph = buildRandomGraph(500, 1);
+        var file = directory.resolve("graph.bin");
+
+        assertDoesNotThrow(() -> serializer.write(graph, file));
+        var loaded = assertDoesNotThrow(() -> serializer.read(file));
+
+        assertEquals(graph.getAdjacencies(), loaded.getAdjacencies());
+    }
+
+    @Test
+    void serializer_SelfLinksAndSeveralTypes() throws IOException{
+        GraphNode<Integer> node0 = new GraphNode<>(0);
+        GraphNode<Integer> node1 = new GraphNode<>(1);
+        Graph<Integer, LinkType> graph = new Graph<>(node0);
+
+        assertTrue(graph.addNode(node1, node0, LinkType.TYPE_1));
+        assertTrue(graph.addLink(node1, node0, LinkType.TYPE_2));
+        assertTrue(graph.addLink(node1, node1, LinkType.TYPE_3));
+
+        var file = directory.resolve("graph.bin");
+        serializer.write(graph, file);
+
+        assertEquals(graph.getAdjacencies(), serializer.read(file).getAdjacencies());
+    }
+
+    @Test
+    void serializer_StringsAcrossSmallWindows() throws IOException{
+        Graph<String, Integer> graph = new Graph<>(new GraphNode<>("node 0"));
+
+        for(int i = 1; i < 20_000; i++)
+            assertTrue(graph.addNode(new GraphNode<>("node " + i + " ✓"), new GraphNode<>(i % 7 == 0 ? "node 0" : "node " + (i - 1) + (i > 1 ? " ✓" : "")), i % 5));
+
+        // Forces both value blocks and link blocks to be read through several windows
+        var smallWindows = new GraphSerializer<>(GraphCodec.strings(), GraphCodec.integers(), 1 << 17);
+        var file = directory.resolve("graph.bin");
+        smallWindows.write(graph, file);
+
+        assertTrue(Files.size(file) > 4 * (1 << 17));
+        assertEquals(graph.getAdjacencies(), smallWindows.read(file).getAdjacencies());
+    }
+
+    @Test
+    void serializer_EmptyGraph() throws IOException{
+        GraphNode<Integer> node = new GraphNode<>(0);
+        Graph<Integer, LinkType> graph = new Graph<>(node);
+        graph.removeNodeAndSplit(node);
+
+        var file = directory.resolve("graph.bin");
+        serializer.write(graph, file);
+
+        assertFalse(serializer.read(file).canExist());
+    }
+
+    @Test
+    void serializer_RejectsOtherFiles() throws IOException{
+        var notAGraph = directory.resolve("other.bin");
+        Files.write(notAGraph, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        assertThrows(IOException.class, () -> serializer.read(notAGraph));
+
+        var file = directory.resolve("graph.bin");
+        serializer.write(buildRandomGraph(100, 2), file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        var newerVersion = directory.resolve("newer.bin");
+        Files.write(newerVersion, ByteBuffer.wrap(bytes.clone()).putInt(4, 99).array());
+        assertThrows(IOException.class, () -> serializer.read(newerVersion));
+
+        var truncated = directory.resolve("truncated.bin");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 10));
+        assertThrows(IOException.class, () -> serializer.read(truncated));
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
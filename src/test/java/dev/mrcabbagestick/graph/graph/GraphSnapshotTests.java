@@ -0,0 +1,174 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphSnapshotTests {
+
+    @Test
+    void snapshot_UnaffectedByLaterChanges(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+
+        var first = graph.snapshot();
+
+        assertTrue(graph.addNode(nodeC, nodeB, LinkType.TYPE_2));
+        assertTrue(graph.addLink(nodeA, nodeB, LinkType.TYPE_3));
+
+        var second = graph.snapshot();
+
+        assertTrue(graph.removeConnectionAndSplit(nodeB, nodeC).isPresent());
+
+        assertEquals(Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_1)),
+                nodeB, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_1))
+        ), first.getAdjacencies());
+        assertEquals(Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_1), new GraphLink<>(nodeB, LinkType.TYPE_3)),
+                nodeB, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_1), new GraphLink<>(nodeA, LinkType.TYPE_3), new GraphLink<>(nodeC, LinkType.TYPE_2)),
+                nodeC, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_2))
+        ), second.getAdjacencies());
+        assertEquals(graph.getAdjacencies(), graph.snapshot().getAdjacencies());
+
+        assertEquals(3, second.size());
+        assertTrue(second.contains(nodeC));
+        assertFalse(first.contains(nodeC));
+        assertEquals(Set.of(nodeA, nodeB, nodeC), second.getConnectedNodes(nodeA));
+        assertEquals(Set.of(LinkType.TYPE_1, LinkType.TYPE_3), second.getNeighbors(nodeA).get(nodeB));
+        assertEquals(Map.of(), first.getNeighbors(nodeC));
+    }
+
+    @Test
+    void snapshot_ViewsAreReadOnly(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+        var snapshot = graph.snapshot();
+
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getNodes().add(new GraphNode<>("B")));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getNeighbors(nodeA).put(nodeA, Set.of()));
+    }
+
+    @Test
+    void snapshot_MergeAndNodeRemoval(){
+        Graph<Integer, LinkType> small = new Graph<>(new GraphNode<>(0));
+        Graph<Integer, LinkType> large = new Graph<>(new GraphNode<>(10));
+
+        for(int i = 11; i < 20; i++)
+            assertTrue(large.addNode(new GraphNode<>(i), new GraphNode<>(i - 1), LinkType.TYPE_1));
+
+        var smallBefore = small.snapshot();
+        var largeBefore = large.snapshot();
+
+        // The larger graph's contents, and its persistent copy, move into the smaller one
+        small.mergeWith(new GraphNode<>(0), large, new GraphNode<>(15), LinkType.TYPE_2);
+
+        assertEquals(small.getAdjacencies(), small.snapshot().getAdjacencies());
+        assertEquals(Set.of(new GraphNode<>(0)), smallBefore.getNodes());
+        assertEquals(10, largeBefore.size());
+        assertEquals(0, large.snapshot().size());
+
+        small.removeNodeAndSplit(new GraphNode<>(15));
+
+        assertEquals(small.getAdjacencies(), small.snapshot().getAdjacencies());
+        assertEquals(11, largeBefore.size() + smallBefore.size());
+    }
+
+    @Test
+    void snapshot_TrackingStaysWithTheGraph(){
+        Graph<Integer, LinkType> small = new Graph<>(new GraphNode<>(0));
+        Graph<Integer, LinkType> large = new Graph<>(new GraphNode<>(10));
+
+        for(int i = 11; i < 20; i++)
+            assertTrue(large.addNode(new GraphNode<>(i), new GraphNode<>(i - 1), LinkType.TYPE_1));
+
+        // Only the smaller side tracks snapshots, it still does after taking over the larger side's contents
+        var smallBefore = small.snapshot();
+        small.mergeWith(new GraphNode<>(0), large, new GraphNode<>(15), LinkType.TYPE_2);
+
+        assertTrue(small.tracksSnapshots());
+        assertFalse(large.tracksSnapshots());
+        assertEquals(small.getAdjacencies(), small.snapshot().getAdjacencies());
+        assertEquals(1, smallBefore.size());
+
+        assertTrue(small.addNode(new GraphNode<>(20), new GraphNode<>(19), LinkType.TYPE_3));
+        assertEquals(small.getAdjacencies(), small.snapshot().getAdjacencies());
+
+        // A smaller graph that never took a snapshot does not start tracking by taking over a larger one that did
+        Graph<Integer, LinkType> untracked = new Graph<>(new GraphNode<>(100));
+        untracked.mergeWith(new GraphNode<>(100), small, new GraphNode<>(0), LinkType.TYPE_1);
+
+        assertFalse(untracked.tracksSnapshots());
+        assertFalse(small.tracksSnapshots());
+        assertEquals(13, untracked.size());
+    }
+
+    @Test
+    void snapshot_MatchesGraphUnderRandomChanges(){
+        Random random = new Random(11);
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+        List<GraphSnapshot<Integer, LinkType>> snapshots = new ArrayList<>();
+        List<Map<GraphNode<Integer>, Set<GraphLink<Integer, LinkType>>>> expected = new ArrayList<>();
+
+        for(int i = 0; i < 3000; i++){
+            var node1 = new GraphNode<>(random.nextInt(400));
+            var node2 = new GraphNode<>(random.nextInt(400));
+
+            switch(random.nextInt(6)){
+                case 0, 1 -> graph.addNode(node1, node2, LinkType.values()[random.nextInt(3)]);
+                case 2 -> graph.addLink(node1, node2, LinkType.values()[random.nextInt(3)]);
+                case 3 -> graph.removeConnection_unsafe(node1, node2);
+                case 4 -> graph.removeNode_unsafe(node1);
+                default -> {
+                    snapshots.add(graph.snapshot());
+                    expected.add(graph.getAdjacencies());
+                }
+            }
+
+            if(!graph.canExist())
+                graph = new Graph<>(node1);
+        }
+
+        for(int i = 0; i < snapshots.size(); i++)
+            assertEquals(expected.get(i), snapshots.get(i).getAdjacencies());
+    }
+
+    @Test
+    void snapshot_HashCollisions(){
+        Graph<CollidingKey, LinkType> graph = new Graph<>(new GraphNode<>(new CollidingKey(0)));
+
+        for(int i = 1; i < 200; i++)
+            assertTrue(graph.addNode(new GraphNode<>(new CollidingKey(i)), new GraphNode<>(new CollidingKey(i / 2)), LinkType.TYPE_1));
+
+        var before = graph.snapshot();
+        var expectedBefore = graph.getAdjacencies();
+
+        for(int i = 199; i > 100; i -= 3)
+            graph.removeNode_unsafe(new GraphNode<>(new CollidingKey(i)));
+
+        assertEquals(expectedBefore, before.getAdjacencies());
+        assertEquals(graph.getAdjacencies(), graph.snapshot().getAdjacencies());
+        assertTrue(before.contains(new GraphNode<>(new CollidingKey(199))));
+        assertFalse(graph.snapshot().contains(new GraphNode<>(new CollidingKey(199))));
+    }
+
+    // Only 4 distinct hash codes, so the trie has to fall back to collision nodes
+    private record CollidingKey(int id){
+        @Override
+        public int hashCode(){
+            return id % 4;
+        }
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
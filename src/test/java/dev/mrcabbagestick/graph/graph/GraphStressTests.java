@@ -0,0 +1,88 @@
+package dev.mrcabbagestick.graph.graph;
+
+import dev.mrcabbagestick.graph.graph.DifferentialRunner.Feature;
+import dev.mrcabbagestick.graph.graph.GraphWorkload.Kind;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphStressTests {
+    private static final List<LinkType> LINK_TYPES = List.of(LinkType.values());
+
+    @Test
+    void workload_SameSeedSameSteps(){
+        var steps = new GraphWorkload<>(42, 5000, 300, LINK_TYPES).steps();
+
+        assertEquals(steps, new GraphWorkload<>(42, 5000, 300, LINK_TYPES).steps());
+        assertNotEquals(steps, new GraphWorkload<>(43, 5000, 300, LINK_TYPES).steps());
+
+        assertTrue(steps.stream().allMatch(step -> step.node1() >= 0 && step.node1() < 300 && step.node2() >= 0 && step.node2() < 300));
+        for(var kind : Kind.values())
+            assertTrue(steps.stream().anyMatch(step -> step.kind() == kind), kind.toString());
+    }
+
+    @Test
+    void differential_ManySmallWorkloads(){
+        // Few nodes, so graphs keep splitting apart and merging back
+        for(long seed = 0; seed < 25; seed++){
+            var report = new DifferentialRunner<LinkType>(true).run(new GraphWorkload<>(seed, 2000, 40, LINK_TYPES));
+
+            for(var kind : Kind.values())
+                assertTrue(report.operations(kind) > 0, "seed " + seed + " never ran " + kind);
+        }
+    }
+
+    @Test
+    void differential_RemovalHeavyWorkload(){
+        var workload = new GraphWorkload<>(7, 10000, 400, LINK_TYPES, new int[]{25, 15, 35, 15, 10});
+
+        assertTrue(new DifferentialRunner<LinkType>(true).run(workload).operations() > 5000);
+    }
+
+    @Test
+    void differential_LargerWorkload(){
+        var report = new DifferentialRunner<LinkType>(true).run(new GraphWorkload<>(2024, 10000, 1000, LINK_TYPES));
+
+        assertTrue(report.operations(Kind.MERGE_WITH) > 0);
+        assertTrue(report.operations(Kind.REMOVE_NODE_AND_SPLIT) > 0);
+    }
+
+    @Test
+    void differential_WithConnectivityCache(){
+        runWithFeatures(Set.of(Feature.CONNECTIVITY_CACHE));
+    }
+
+    @Test
+    void differential_WithSnapshots(){
+        runWithFeatures(Set.of(Feature.SNAPSHOTS));
+    }
+
+    @Test
+    void differential_WithLinkTypeIndex(){
+        runWithFeatures(Set.of(Feature.LINK_TYPE_INDEX));
+    }
+
+    @Test
+    void differential_WithAllFeatures(){
+        runWithFeatures(EnumSet.allOf(Feature.class));
+    }
+
+    private static void runWithFeatures(Set<Feature> features){
+        for(long seed = 0; seed < 8; seed++){
+            var report = new DifferentialRunner<>(true, features, LINK_TYPES).run(new GraphWorkload<>(seed, 1500, 60, LINK_TYPES));
+
+            for(var kind : Kind.values())
+                assertTrue(report.operations(kind) > 0, "seed " + seed + " never ran " + kind);
+        }
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
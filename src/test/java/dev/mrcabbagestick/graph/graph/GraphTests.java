@@ -2,9 +2,14 @@ package dev.mrcabbagestick.graph.graph;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -73,6 +78,29 @@ public class GraphTests {
         assertEquals(correctStructure, graph.getAdjacencies());
     }
 
+    @Test
+    void graphLinkAddition_SeveralTypesBetweenTwoNodes(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+
+        GraphNode<String> nodeB = new GraphNode<>("B");
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addLink(nodeA, nodeB, LinkType.TYPE_2));
+        assertTrue(graph.addLink(nodeB, nodeA, LinkType.TYPE_1));
+
+        Map<GraphNode<String>, Set<GraphLink<String, LinkType>>> correctStructure = Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_1), new GraphLink<>(nodeB, LinkType.TYPE_2)),
+                nodeB, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_1), new GraphLink<>(nodeA, LinkType.TYPE_2))
+        );
+        assertEquals(correctStructure, graph.getAdjacencies());
+
+        // Removing the connection drops every link between the two nodes
+        var newGraph = graph.removeConnectionAndSplit(nodeA, nodeB);
+        assertFalse(newGraph.isEmpty());
+        assertEquals(Map.of(nodeA, Set.of()), graph.getAdjacencies());
+    }
+
     @Test
     void graph_ConnectedNodes(){
         GraphNode<String> nodeA = new GraphNode<>("A");
@@ -90,6 +118,43 @@ public class GraphTests {
         assertEquals(Set.of(nodeA, nodeB, nodeC), connectedNodes);
     }
 
+    @Test
+    void graph_ConnectedNodes_RepeatedQueries(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeC, nodeB, LinkType.TYPE_2));
+
+        assertEquals(Set.of(nodeA, nodeB, nodeC), graph.getConnectedNodes(nodeC));
+        assertEquals(Optional.empty(), graph.removeConnectionAndSplit(nodeA, nodeC));
+        assertEquals(Set.of(nodeA, nodeB, nodeC), graph.getConnectedNodes(nodeA));
+        assertEquals(Set.of(), graph.getConnectedNodes(new GraphNode<>("X")));
+        assertEquals(Set.of(nodeA, nodeB, nodeC), graph.getConnectedNodes(nodeB));
+    }
+
+    @Test
+    void graph_ConnectedNodes_ConcurrentReaders() throws Exception{
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+        for(int i = 1; i < 5000; i++)
+            graph.addNode(new GraphNode<>(i), new GraphNode<>(i / 2), LinkType.TYPE_1);
+
+        // Reads don't change the graph, so they may run side by side
+        List<Future<Set<GraphNode<Integer>>>> results = new ArrayList<>();
+        try(ExecutorService executor = Executors.newFixedThreadPool(4)){
+            for(int i = 0; i < 64; i++){
+                int start = i * 70;
+                results.add(executor.submit(() -> graph.getConnectedNodes(new GraphNode<>(start))));
+            }
+        }
+
+        for(var result : results)
+            assertEquals(5000, result.get().size());
+    }
+
     @Test
     void graphConnectionRemoval_NoSplit_Triangle(){
         GraphNode<String> nodeA = new GraphNode<>("A");
@@ -163,6 +228,63 @@ public class GraphTests {
         assertEquals(correctStructure2, newGraph.get().getAdjacencies());
     }
 
+    @Test
+    void graphConnectionRemoval_Split_SmallerSideMoved(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+        GraphNode<String> nodeD = new GraphNode<>("D");
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeC, nodeB, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeD, nodeC, LinkType.TYPE_1));
+
+        var newGraph = graph.removeConnectionAndSplit(nodeC, nodeD);
+        assertFalse(newGraph.isEmpty());
+
+        Map<GraphNode<String>, Set<GraphLink<String, LinkType>>> correctStructure1 = Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_1)),
+                nodeB, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_1), new GraphLink<>(nodeC, LinkType.TYPE_1)),
+                nodeC, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_1))
+        );
+        assertEquals(correctStructure1, graph.getAdjacencies());
+
+        assertEquals(Map.of(nodeD, Set.of()), newGraph.get().getAdjacencies());
+
+        // The split off side is the smaller one, whichever end of the link it is on
+        var secondNewGraph = graph.removeConnectionAndSplit(nodeA, nodeB);
+        assertFalse(secondNewGraph.isEmpty());
+
+        assertEquals(Map.of(nodeA, Set.of()), secondNewGraph.get().getAdjacencies());
+        assertEquals(Set.of(nodeB, nodeC), graph.getConnectedNodes(nodeB));
+    }
+
+    @Test
+    void graphConnectionRemoval_NoSplit_LongCycle(){
+        /*
+        * A-B-C-D-E-F-A, remove A-B
+        */
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+
+        var previousNode = nodeB;
+        for(var name : new String[]{"C", "D", "E", "F"}){
+            var node = new GraphNode<>(name);
+            assertTrue(graph.addNode(node, previousNode, LinkType.TYPE_1));
+            previousNode = node;
+        }
+        assertTrue(graph.addLink(previousNode, nodeA, LinkType.TYPE_2));
+
+        assertEquals(Optional.empty(), graph.removeConnectionAndSplit(nodeA, nodeB));
+        assertEquals(6, graph.getConnectedNodes(nodeA).size());
+        assertEquals(Set.of(new GraphLink<>(previousNode, LinkType.TYPE_2)), graph.getAdjacencies().get(nodeA));
+    }
+
     @Test
     void graphNodeRemoval_NoSplit_SingleNode(){
         GraphNode<String> nodeA = new GraphNode<>("A");
@@ -196,6 +318,23 @@ public class GraphTests {
         assertTrue(graph.canExist());
     }
 
+    @Test
+    void graphNodeRemoval_NoSplit_SelfLink(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+
+        GraphNode<String> nodeB = new GraphNode<>("B");
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addLink(nodeB, nodeB, LinkType.TYPE_2));
+
+        var newGraphs = graph.removeNodeAndSplit(nodeB);
+        assertFalse(newGraphs.isEmpty());
+        assertEquals(Set.of(), newGraphs.get());
+
+        assertEquals(Map.of(nodeA, Set.of()), graph.getAdjacencies());
+    }
+
     @Test
     void graphNodeRemoval_Split_ThreeNodes(){
         GraphNode<String> nodeA = new GraphNode<>("A");
@@ -324,6 +463,36 @@ public class GraphTests {
         assertEquals(correctGraph1Structure, graph1.getAdjacencies());
     }
 
+    @Test
+    void graphMerge_LargerIntoSmaller_ThisGraphSurvives(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        Graph<String, LinkType> graph1 = new Graph<>(nodeA);
+
+        GraphNode<String> nodeX = new GraphNode<>("X");
+        GraphNode<String> nodeY = new GraphNode<>("Y");
+        Graph<String, LinkType> graph2 = new Graph<>(nodeX);
+        graph2.addNode(nodeY, nodeX, LinkType.TYPE_2);
+
+        assertSame(graph1, graph1.mergeWith(nodeA, graph2, nodeY, LinkType.TYPE_1));
+        assertEquals(3, graph1.size());
+        assertEquals(0, graph2.size());
+
+        // The emptied graph no longer shares anything with the survivor
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        assertFalse(graph2.addNode(nodeB, nodeX, LinkType.TYPE_1));
+        assertTrue(graph1.addNode(nodeB, nodeX, LinkType.TYPE_3));
+
+        var correctGraph1Structure = Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeY, LinkType.TYPE_1)),
+                nodeX, Set.of(new GraphLink<>(nodeY, LinkType.TYPE_2), new GraphLink<>(nodeB, LinkType.TYPE_3)),
+                nodeY, Set.of(new GraphLink<>(nodeX, LinkType.TYPE_2), new GraphLink<>(nodeA, LinkType.TYPE_1)),
+                nodeB, Set.of(new GraphLink<>(nodeX, LinkType.TYPE_3))
+        );
+
+        assertEquals(correctGraph1Structure, graph1.getAdjacencies());
+        assertEquals(Map.of(), graph2.getAdjacencies());
+    }
+
     public enum LinkType {
         TYPE_1,
         TYPE_2,
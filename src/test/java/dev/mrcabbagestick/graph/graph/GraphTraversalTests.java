@@ -0,0 +1,153 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphTraversalTests {
+
+    /*
+    *     A
+    *    / \
+    *   B   C
+    *   |   |  (C-E is TYPE_2)
+    *   D   E
+    */
+    private static final GraphNode<String> nodeA = new GraphNode<>("A");
+    private static final GraphNode<String> nodeB = new GraphNode<>("B");
+    private static final GraphNode<String> nodeC = new GraphNode<>("C");
+    private static final GraphNode<String> nodeD = new GraphNode<>("D");
+    private static final GraphNode<String> nodeE = new GraphNode<>("E");
+
+    private static Graph<String, LinkType> buildTree(){
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeC, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeD, nodeB, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeE, nodeC, LinkType.TYPE_2));
+
+        return graph;
+    }
+
+    @Test
+    void traversal_BreadthFirstDepths(){
+        var graph = buildTree();
+
+        var steps = graph.traverse(nodeA, TraversalOrder.BREADTH_FIRST).toList();
+
+        assertEquals(5, steps.size());
+        assertEquals(List.of(0, 1, 1, 2, 2), steps.stream().map(TraversalStep::depth).toList());
+        assertEquals(nodeA, steps.get(0).node());
+        assertNull(steps.get(0).reachedBy());
+
+        var stepE = steps.stream().filter(step -> step.node().equals(nodeE)).findFirst().get();
+        assertEquals(nodeC, stepE.reachedFrom());
+        assertEquals(new GraphLink<>(nodeE, LinkType.TYPE_2), stepE.reachedBy());
+    }
+
+    @Test
+    void traversal_DepthFirstFollowsOneBranchAtATime(){
+        var graph = buildTree();
+
+        var nodes = graph.traverse(nodeA, TraversalOrder.DEPTH_FIRST).map(TraversalStep::node).toList();
+
+        assertEquals(5, nodes.size());
+        assertEquals(nodeA, nodes.get(0));
+
+        // Whichever branch comes first, its leaf comes right after it
+        assertEquals(nodeD, nodes.get(nodes.indexOf(nodeB) + 1));
+        assertEquals(nodeE, nodes.get(nodes.indexOf(nodeC) + 1));
+    }
+
+    @Test
+    void traversal_MaxDepthAndLinkFilter(){
+        var graph = buildTree();
+
+        assertEquals(
+                Set.of(nodeA, nodeB, nodeC),
+                graph.traverse(nodeA, TraversalOrder.DEPTH_FIRST, 1).map(TraversalStep::node).collect(Collectors.toSet())
+        );
+
+        assertEquals(
+                Set.of(nodeA, nodeB, nodeC, nodeD),
+                graph.traverse(nodeA, TraversalOrder.BREADTH_FIRST, Integer.MAX_VALUE, link -> link.type() == LinkType.TYPE_1)
+                        .map(TraversalStep::node).collect(Collectors.toSet())
+        );
+
+        assertEquals(0, graph.traverse(new GraphNode<>("X"), TraversalOrder.BREADTH_FIRST).count());
+    }
+
+    @Test
+    void traversal_DepthFirstMaxDepthFindsShorterPaths(){
+        /*
+        *     A
+        *    / \
+        *   B - C
+        *   |
+        *   E
+        */
+        Graph<String, LinkType> graph = new Graph<>(nodeA);
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeC, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addLink(nodeC, nodeB, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeE, nodeB, LinkType.TYPE_1));
+
+        // Whether B is first reached directly or through C, E is two links from A
+        var nodes = graph.traverse(nodeA, TraversalOrder.DEPTH_FIRST, 2).map(TraversalStep::node).toList();
+
+        assertEquals(4, nodes.size());
+        assertEquals(Set.of(nodeA, nodeB, nodeC, nodeE), Set.copyOf(nodes));
+
+        assertEquals(
+                Set.of(nodeA, nodeB, nodeC),
+                graph.traverse(nodeA, TraversalOrder.DEPTH_FIRST, 1).map(TraversalStep::node).collect(Collectors.toSet())
+        );
+    }
+
+    @Test
+    void traversal_ExpandsOnlyWhenNextStepIsPulled(){
+        var graph = buildTree();
+
+        for(var order : TraversalOrder.values()){
+            AtomicInteger linksLookedAt = new AtomicInteger();
+            var traversal = new GraphTraversal<>(graph, nodeA, order, Integer.MAX_VALUE, link -> linksLookedAt.incrementAndGet() > 0, null);
+
+            assertEquals(nodeA, traversal.next().node());
+            assertEquals(0, linksLookedAt.get());
+
+            traversal.next();
+            assertEquals(2, linksLookedAt.get());
+        }
+    }
+
+    @Test
+    void traversal_StopsWhenConsumerStops(){
+        GraphNode<Integer> first = new GraphNode<>(0);
+        Graph<Integer, LinkType> chain = new Graph<>(first);
+
+        for(int i = 1; i < 1000; i++)
+            assertTrue(chain.addNode(new GraphNode<>(i), new GraphNode<>(i - 1), LinkType.TYPE_1));
+
+        AtomicInteger linksLookedAt = new AtomicInteger();
+        var found = chain.traverse(first, TraversalOrder.BREADTH_FIRST, Integer.MAX_VALUE, link -> linksLookedAt.incrementAndGet() > 0)
+                .anyMatch(step -> step.node().data() == 5);
+
+        assertTrue(found);
+        assertTrue(linksLookedAt.get() <= 6);
+
+        assertTrue(chain.isReachable(first, node -> node.data() == 999));
+        assertFalse(chain.isReachable(first, node -> node.data() == 1000));
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
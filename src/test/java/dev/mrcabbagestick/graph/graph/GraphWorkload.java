@@ -0,0 +1,139 @@
+package dev.mrcabbagestick.graph.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Seeded sequence of graph operations on nodes numbered 0..maxNodes-1, the same seed always gives the same steps.
+// The generator keeps no graph, it only mimics how real callers touch one: most operations go to recently used
+// nodes, links mostly join nodes with close numbers and removals mostly pick links added not long ago. Whether
+// a step applies to the graphs at that point is up to whoever replays it, see DifferentialRunner.
+final class GraphWorkload<LinkType> {
+    enum Kind {
+        ADD_NODE,
+        ADD_LINK,
+        REMOVE_CONNECTION_AND_SPLIT,
+        REMOVE_NODE_AND_SPLIT,
+        MERGE_WITH
+    }
+
+    record Step<LinkType>(Kind kind, int node1, int node2, LinkType linkType){}
+
+    private static final int RECENT_NODES = 64;
+    private static final int RECENT_LINKS = 256;
+
+    private final long seed;
+    private final int stepCount;
+    private final int maxNodes;
+    private final List<LinkType> linkTypes;
+    private final int[] weights;
+
+    GraphWorkload(long seed, int stepCount, int maxNodes, List<LinkType> linkTypes){
+        this(seed, stepCount, maxNodes, linkTypes, new int[]{30, 30, 20, 8, 12});
+    }
+
+    // One weight per Kind, in declaration order
+    GraphWorkload(long seed, int stepCount, int maxNodes, List<LinkType> linkTypes, int[] weights){
+        if(weights.length != Kind.values().length)
+            throw new IllegalArgumentException("Expected " + Kind.values().length + " weights, got " + weights.length);
+
+        this.seed = seed;
+        this.stepCount = stepCount;
+        this.maxNodes = maxNodes;
+        this.linkTypes = List.copyOf(linkTypes);
+        this.weights = weights.clone();
+    }
+
+    int maxNodes(){
+        return maxNodes;
+    }
+
+    List<Step<LinkType>> steps(){
+        var random = new Random(seed);
+        List<Step<LinkType>> steps = new ArrayList<>(stepCount);
+
+        int totalWeight = 0;
+        for(int weight : weights)
+            totalWeight += weight;
+
+        int[] recentNodes = new int[RECENT_NODES];
+        int recentNodeCount = 0;
+        long[] recentLinks = new long[RECENT_LINKS];
+        int recentLinkCount = 0;
+
+        // Ids are handed out in order until maxNodes, after that removed ones come back
+        int nextNode = 0;
+
+        for(int i = 0; i < stepCount; i++){
+            var kind = pick(random, totalWeight);
+            var linkType = linkTypes.get(random.nextInt(linkTypes.size()));
+
+            int node1;
+            int node2;
+
+            // Until there are nodes every step starts a new graph
+            if(nextNode == 0)
+                kind = Kind.ADD_NODE;
+
+            switch(kind){
+                case ADD_NODE -> {
+                    node1 = nextNode < maxNodes ? nextNode++ : random.nextInt(maxNodes);
+                    // Now and then connected to a node nobody has, which starts a new graph
+                    node2 = random.nextInt(20) == 0 || nextNode == 1 ? random.nextInt(maxNodes) : usedNode(random, recentNodes, recentNodeCount, nextNode);
+                }
+                case ADD_LINK -> {
+                    node1 = usedNode(random, recentNodes, recentNodeCount, nextNode);
+                    node2 = random.nextInt(5) < 3 ? Math.floorMod(node1 + random.nextInt(17) - 8, nextNode) : usedNode(random, recentNodes, recentNodeCount, nextNode);
+                }
+                case REMOVE_CONNECTION_AND_SPLIT -> {
+                    if(recentLinkCount > 0 && random.nextInt(5) < 4){
+                        long link = recentLinks[random.nextInt(Math.min(recentLinkCount, RECENT_LINKS))];
+                        node1 = (int) (link >>> 32);
+                        node2 = (int) link;
+                    }
+                    else{
+                        node1 = usedNode(random, recentNodes, recentNodeCount, nextNode);
+                        node2 = usedNode(random, recentNodes, recentNodeCount, nextNode);
+                    }
+                }
+                case REMOVE_NODE_AND_SPLIT -> {
+                    node1 = usedNode(random, recentNodes, recentNodeCount, nextNode);
+                    node2 = node1;
+                }
+                default -> {
+                    // Uniform, so both ends usually sit in different graphs
+                    node1 = random.nextInt(nextNode);
+                    node2 = random.nextInt(nextNode);
+                }
+            }
+
+            steps.add(new Step<>(kind, node1, node2, linkType));
+
+            recentNodes[recentNodeCount++ % RECENT_NODES] = node1;
+            if(kind == Kind.ADD_NODE || kind == Kind.ADD_LINK || kind == Kind.MERGE_WITH)
+                recentLinks[recentLinkCount++ % RECENT_LINKS] = (long) node1 << 32 | node2;
+        }
+
+        return steps;
+    }
+
+    private Kind pick(Random random, int totalWeight){
+        int roll = random.nextInt(totalWeight);
+
+        for(var kind : Kind.values()){
+            roll -= weights[kind.ordinal()];
+            if(roll < 0)
+                return kind;
+        }
+
+        throw new IllegalStateException("Weights must be positive");
+    }
+
+    // Mostly one of the last nodes touched, otherwise any handed out so far
+    private static int usedNode(Random random, int[] recentNodes, int recentNodeCount, int nextNode){
+        if(recentNodeCount > 0 && random.nextInt(10) < 7)
+            return recentNodes[random.nextInt(Math.min(recentNodeCount, RECENT_NODES))];
+
+        return random.nextInt(nextNode);
+    }
+}
@@ -0,0 +1,101 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodeInternerTests {
+
+    // Composite key that counts how often it is hashed and compared
+    private static final class CountingKey {
+        private final String region;
+        private final int number;
+        private int hashCalls;
+        private int equalsCalls;
+
+        private CountingKey(String region, int number){
+            this.region = region;
+            this.number = number;
+        }
+
+        @Override
+        public int hashCode(){
+            hashCalls++;
+            return Objects.hash(region, number);
+        }
+
+        @Override
+        public boolean equals(Object other){
+            equalsCalls++;
+            return other instanceof CountingKey key && region.equals(key.region) && number == key.number;
+        }
+    }
+
+    @Test
+    void graphNode_EqualityAndCachedHash(){
+        var key = new CountingKey("north", 1);
+        var node = new GraphNode<>(key);
+        var equalNode = new GraphNode<>(new CountingKey("north", 1));
+
+        assertEquals(1, key.hashCalls);
+        assertEquals(node, equalNode);
+        assertEquals(node.hashCode(), equalNode.hashCode());
+        assertNotEquals(node, new GraphNode<>(new CountingKey("south", 1)));
+        assertEquals(1, key.hashCalls);
+
+        assertEquals(new GraphNode<>(null), new GraphNode<>(null));
+        assertEquals("GraphNode[data=A]", new GraphNode<>("A").toString());
+    }
+
+    @Test
+    void nodeInterner_SameInstanceForEqualData(){
+        NodeInterner<CountingKey> interner = new NodeInterner<>();
+        var node = interner.nodeOf(new CountingKey("north", 1));
+
+        assertSame(node, interner.nodeOf(new CountingKey("north", 1)));
+        assertSame(node, interner.intern(new GraphNode<>(new CountingKey("north", 1))));
+
+        var adopted = new GraphNode<>(new CountingKey("south", 2));
+        assertSame(adopted, interner.intern(adopted));
+        assertEquals(2, interner.size());
+
+        assertTrue(interner.forget(new CountingKey("north", 1)));
+        assertNotSame(node, interner.nodeOf(new CountingKey("north", 1)));
+    }
+
+    @Test
+    void nodeInterner_GraphLookupsSkipData(){
+        NodeInterner<CountingKey> interner = new NodeInterner<>();
+        List<CountingKey> keys = new ArrayList<>();
+
+        for(int i = 0; i < 100; i++)
+            keys.add(new CountingKey("region", i));
+
+        Graph<CountingKey, LinkType> graph = new Graph<>(interner.nodeOf(keys.get(0)));
+        for(int i = 1; i < 100; i++)
+            assertTrue(graph.addNode(interner.nodeOf(keys.get(i)), interner.nodeOf(keys.get(i - 1)), LinkType.TYPE_1));
+
+        keys.forEach(key -> {
+            key.hashCalls = 0;
+            key.equalsCalls = 0;
+        });
+
+        assertEquals(100, graph.getConnectedNodes(interner.nodeOf(keys.get(50))).size());
+        assertTrue(graph.removeConnectionAndSplit(interner.nodeOf(keys.get(10)), interner.nodeOf(keys.get(11))).isPresent());
+
+        // Only the three interner lookups hashed a key, the graph itself never touched them
+        assertEquals(3, keys.stream().mapToInt(key -> key.hashCalls).sum());
+        assertEquals(0, keys.stream().mapToInt(key -> key.equalsCalls).sum());
+
+        // Nodes created directly still find the interned ones by their data
+        assertTrue(graph.getNodes().contains(new GraphNode<>(new CountingKey("region", 99))));
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}
@@ -0,0 +1,194 @@
+package dev.mrcabbagestick.graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapGraphTests {
+
+    @Test
+    void offHeapGraph_Triangle(){
+        GraphNode<String> nodeA = new GraphNode<>("A");
+        OffHeapGraph<String, LinkType> graph = new OffHeapGraph<>(nodeA);
+
+        GraphNode<String> nodeB = new GraphNode<>("B");
+        GraphNode<String> nodeC = new GraphNode<>("C");
+
+        assertTrue(graph.addNode(nodeB, nodeA, LinkType.TYPE_1));
+        assertTrue(graph.addNode(nodeC, nodeB, LinkType.TYPE_2));
+        assertTrue(graph.addLink(nodeC, nodeA, LinkType.TYPE_3));
+        assertTrue(graph.addLink(nodeC, nodeA, LinkType.TYPE_3));
+        assertFalse(graph.addNode(nodeC, nodeA, LinkType.TYPE_1));
+        assertFalse(graph.addLink(nodeC, new GraphNode<>("X"), LinkType.TYPE_1));
+
+        Map<GraphNode<String>, Set<GraphLink<String, LinkType>>> correctStructure = Map.of(
+                nodeA, Set.of(new GraphLink<>(nodeB, LinkType.TYPE_1), new GraphLink<>(nodeC, LinkType.TYPE_3)),
+                nodeB, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_1), new GraphLink<>(nodeC, LinkType.TYPE_2)),
+                nodeC, Set.of(new GraphLink<>(nodeA, LinkType.TYPE_3), new GraphLink<>(nodeB, LinkType.TYPE_2))
+        );
+
+        assertEquals(correctStructure, graph.getAdjacencies());
+        assertEquals(Set.of(nodeA, nodeB, nodeC), graph.getConnectedNodes(nodeB));
+
+        assertEquals(Optional.empty(), graph.removeConnectionAndSplit(nodeA, nodeB));
+        var newGraph = graph.removeConnectionAndSplit(nodeB, nodeC);
+
+        assertTrue(newGraph.isPresent());
+        assertEquals(Map.of(nodeB, Set.of()), newGraph.get().getAdjacencies());
+        assertEquals(Set.of(nodeA, nodeC), graph.getConnectedNodes(nodeA));
+    }
+
+    @Test
+    void offHeapGraph_CopyOfGraph(){
+        Random random = new Random(3);
+        Graph<Integer, LinkType> graph = new Graph<>(new GraphNode<>(0));
+
+        for(int i = 1; i < 2000; i++){
+            assertTrue(graph.addNode(new GraphNode<>(i), new GraphNode<>(random.nextInt(i)), LinkType.values()[random.nextInt(3)]));
+
+            // Some hubs, so rows of many size classes are needed
+            graph.addLink(new GraphNode<>(i), new GraphNode<>(random.nextInt(10)), LinkType.values()[random.nextInt(3)]);
+        }
+
+        var copy = OffHeapGraph.copyOf(graph);
+
+        assertEquals(graph.getAdjacencies(), copy.getAdjacencies());
+        assertEquals(2000, copy.getConnectedNodes(new GraphNode<>(1234)).size());
+        assertTrue(copy.offHeapBytes() > 0);
+    }
+
+    @Test
+    void offHeapGraph_MatchesGraph(){
+        Random random = new Random(11);
+        List<Graph<Integer, LinkType>> expectedGraphs = new ArrayList<>(List.of(new Graph<>(new GraphNode<>(0))));
+        List<OffHeapGraph<Integer, LinkType>> graphs = new ArrayList<>(List.of(new OffHeapGraph<>(new GraphNode<>(0))));
+
+        for(int step = 0; step < 4000; step++){
+            var node1 = new GraphNode<>(random.nextInt(150));
+            var node2 = new GraphNode<>(random.nextInt(150));
+            var linkType = LinkType.values()[random.nextInt(3)];
+
+            int expectedIndex = indexOf(expectedGraphs, expectedGraph -> expectedGraph.getNodes().contains(node1));
+            int index = indexOf(graphs, offHeapGraph -> !offHeapGraph.getConnectedNodes(node1).isEmpty());
+
+            if(expectedIndex < 0){
+                expectedGraphs.add(new Graph<>(node1));
+                graphs.add(new OffHeapGraph<>(node1));
+                continue;
+            }
+
+            var expected = expectedGraphs.get(expectedIndex);
+            var graph = graphs.get(index);
+
+            switch(random.nextInt(5)){
+                // A node may only live in one graph
+                case 0 -> {
+                    if(indexOf(expectedGraphs, expectedGraph -> expectedGraph.getNodes().contains(node2)) < 0)
+                        assertEquals(expected.addNode(node2, node1, linkType), graph.addNode(node2, node1, linkType));
+                }
+                case 1 -> assertEquals(expected.addLink(node1, node2, linkType), graph.addLink(node1, node2, linkType));
+                case 2 -> {
+                    expected.removeConnectionAndSplit(node1, node2).ifPresent(expectedGraphs::add);
+                    graph.removeConnectionAndSplit(node1, node2).ifPresent(graphs::add);
+                }
+                case 3 -> {
+                    expectedGraphs.addAll(expected.removeNodeAndSplit(node1).get());
+                    graphs.addAll(graph.removeNodeAndSplit(node1).get());
+                }
+                default -> {
+                    int otherExpectedIndex = indexOf(expectedGraphs, expectedGraph -> expectedGraph.getNodes().contains(node2));
+
+                    if(otherExpectedIndex >= 0 && otherExpectedIndex != expectedIndex){
+                        int otherIndex = indexOf(graphs, offHeapGraph -> !offHeapGraph.getConnectedNodes(node2).isEmpty());
+
+                        expected.mergeWith(node1, expectedGraphs.get(otherExpectedIndex), node2, linkType);
+                        graph.mergeWith(node1, graphs.get(otherIndex), node2, linkType);
+                    }
+                }
+            }
+
+            expectedGraphs.removeIf(expectedGraph -> !expectedGraph.canExist());
+            graphs.removeIf(offHeapGraph -> !offHeapGraph.canExist());
+
+            // Ties between equally large sides may go either way, so only the union and the partition are compared
+            if(step % 100 == 0){
+                assertEquals(union(expectedGraphs.stream().map(Graph::getAdjacencies).toList()), union(graphs.stream().map(OffHeapGraph::getAdjacencies).toList()));
+                assertEquals(
+                        expectedGraphs.stream().map(expectedGraph -> Set.copyOf(expectedGraph.getNodes())).collect(Collectors.toSet()),
+                        graphs.stream().map(offHeapGraph -> Set.copyOf(offHeapGraph.getAdjacencies().keySet())).collect(Collectors.toSet())
+                );
+            }
+        }
+    }
+
+    @Test
+    void offHeapGraph_ReusesFreedRows(){
+        OffHeapGraph<Integer, LinkType> graph = new OffHeapGraph<>(new GraphNode<>(0));
+
+        for(int i = 1; i < 500; i++)
+            assertTrue(graph.addNode(new GraphNode<>(i), new GraphNode<>(0), LinkType.TYPE_1));
+
+        long bytes = graph.offHeapBytes();
+
+        for(int round = 0; round < 20; round++){
+            for(int i = 1; i < 500; i++)
+                graph.removeNodeAndSplit(new GraphNode<>(i));
+            for(int i = 1; i < 500; i++)
+                assertTrue(graph.addNode(new GraphNode<>(i), new GraphNode<>(0), LinkType.TYPE_2));
+        }
+
+        assertEquals(500, graph.size());
+        assertEquals(bytes, graph.offHeapBytes());
+    }
+
+    @Test
+    void offHeapGraph_SplitReservesWhatItNeeds(){
+        List<GraphNode<Integer>> nodes = new ArrayList<>();
+        for(int i = 0; i < 2000; i++)
+            nodes.add(new GraphNode<>(i));
+
+        OffHeapGraph<Integer, LinkType> graph = new OffHeapGraph<>(nodes.get(0));
+        for(int i = 1; i < nodes.size(); i++)
+            assertTrue(graph.addNode(nodes.get(i), nodes.get(i - 1), LinkType.TYPE_1));
+
+        // Cutting the chain from its start splits off one three node graph at a time
+        long splitBytes = 0;
+        for(int i = 3; i + 3 < nodes.size(); i += 3){
+            var newGraph = graph.removeConnectionAndSplit(nodes.get(i - 1), nodes.get(i));
+
+            assertTrue(newGraph.isPresent());
+            assertEquals(3, newGraph.get().size());
+            assertTrue(newGraph.get().offHeapBytes() <= 1024, newGraph.get().offHeapBytes() + " bytes");
+
+            splitBytes += newGraph.get().offHeapBytes();
+        }
+
+        assertTrue(splitBytes <= 666 * 1024, splitBytes + " bytes");
+    }
+
+    private static <AnyGraph> int indexOf(List<AnyGraph> graphs, Predicate<AnyGraph> containsNode){
+        for(int i = 0; i < graphs.size(); i++){
+            if(containsNode.test(graphs.get(i)))
+                return i;
+        }
+
+        return -1;
+    }
+
+    private static Map<GraphNode<Integer>, Set<GraphLink<Integer, LinkType>>> union(List<Map<GraphNode<Integer>, Set<GraphLink<Integer, LinkType>>>> adjacencies){
+        Map<GraphNode<Integer>, Set<GraphLink<Integer, LinkType>>> union = new HashMap<>();
+        adjacencies.forEach(union::putAll);
+
+        return union;
+    }
+
+    public enum LinkType {
+        TYPE_1,
+        TYPE_2,
+        TYPE_3
+    }
+}